@@ -0,0 +1,157 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.benchmarks;
+
+import com.spotify.mobius.Connectable;
+import com.spotify.mobius.Connection;
+import com.spotify.mobius.Mobius;
+import com.spotify.mobius.MobiusLoop;
+import com.spotify.mobius.Next;
+import com.spotify.mobius.Update;
+import com.spotify.mobius.functions.Producer;
+import com.spotify.mobius.runners.WorkRunner;
+import com.spotify.mobius.runners.WorkRunners;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the event-update-effect hot path of a {@link MobiusLoop} created through {@link
+ * Mobius#loop(Update, Connectable)}.
+ *
+ * <p>Every benchmark invocation waits until the loop has emitted the resulting models and the
+ * effect handler has received all resulting effects, so the numbers cover the full round trip
+ * through both the event and the effect runner. Run with the {@code gc} profiler (the default for
+ * this module) to get the number of bytes allocated per event ({@code gc.alloc.rate.norm}); note
+ * that this includes the boxed {@code Long} model that the update function allocates per event.
+ */
+@State(Scope.Benchmark)
+public class MobiusLoopBenchmark {
+
+  private static final int EVENTS_PER_BATCH = 1000;
+
+  @Param({"immediate", "singleThread", "cachedThreadPool"})
+  public String runner;
+
+  @Param({"0", "1", "8"})
+  public int effectsPerNext;
+
+  private MobiusLoop<Long, Integer, String> loop;
+
+  private final AtomicLong handledEffects = new AtomicLong();
+  private volatile long latestModel;
+
+  private long expectedModel;
+  private long expectedEffects;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    final Set<String> effects = new HashSet<>();
+    for (int i = 0; i < effectsPerNext; i++) {
+      effects.add("effect-" + i);
+    }
+
+    Update<Long, Integer, String> update =
+        (model, event) ->
+            effects.isEmpty() ? Next.next(model + event) : Next.next(model + event, effects);
+
+    Connectable<String, Integer> effectHandler =
+        output ->
+            new Connection<String>() {
+              @Override
+              public void accept(String value) {
+                handledEffects.incrementAndGet();
+              }
+
+              @Override
+              public void dispose() {}
+            };
+
+    loop =
+        Mobius.loop(update, effectHandler)
+            .eventRunner(runnerProducer(runner))
+            .effectRunner(runnerProducer(runner))
+            .startFrom(0L);
+
+    loop.observe(model -> latestModel = model);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    loop.dispose();
+  }
+
+  /** Events per second that make it all the way through update and effect handling. */
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @OperationsPerInvocation(EVENTS_PER_BATCH)
+  public void dispatchEvents() {
+    for (int i = 0; i < EVENTS_PER_BATCH; i++) {
+      loop.dispatchEvent(1);
+    }
+
+    awaitProcessed(EVENTS_PER_BATCH);
+  }
+
+  /** Latency distribution (p50, p99, ...) of a single event on an otherwise idle loop. */
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void dispatchSingleEvent() {
+    loop.dispatchEvent(1);
+
+    awaitProcessed(1);
+  }
+
+  private void awaitProcessed(int events) {
+    expectedModel += events;
+    expectedEffects += (long) events * effectsPerNext;
+
+    while (latestModel < expectedModel || handledEffects.get() < expectedEffects) {
+      Thread.yield();
+    }
+  }
+
+  private static Producer<WorkRunner> runnerProducer(String runner) {
+    switch (runner) {
+      case "immediate":
+        return WorkRunners::immediate;
+      case "singleThread":
+        return WorkRunners::singleThread;
+      case "cachedThreadPool":
+        return WorkRunners::cachedThreadPool;
+      default:
+        throw new IllegalArgumentException("unknown runner: " + runner);
+    }
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+/**
+ * A {@link Connection} that can accept several values in a single call.
+ *
+ * <p>If the effect handler of a {@link MobiusLoop} returns a batch connection, all the effects
+ * from one {@link Next} are handed to the effect runner as a single task, and passed to {@link
+ * #acceptAll(Iterable)} in one call, instead of being posted and passed to {@link
+ * #accept(Object)} one by one.
+ */
+public interface BatchConnection<I> extends Connection<I> {
+
+  /**
+   * Send several values to this connection. This should be equivalent to calling {@link
+   * #accept(Object)} with each value in iteration order. Implementations may receive values from
+   * different threads and are thus expected to be thread-safe.
+   *
+   * <p>The iterable must not be modified, and should not be used after this method returns.
+   *
+   * @param values the values that should be sent to the connection
+   */
+  void acceptAll(Iterable<? extends I> values);
+}
@@ -0,0 +1,75 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import com.spotify.mobius.functions.Consumer;
+import com.spotify.mobius.runners.WorkRunner;
+import java.util.ArrayDeque;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link MessageDispatcher} that puts messages on a queue and drains them in batches, instead of
+ * posting a separate {@link Runnable} to the runner for each message.
+ *
+ * <p>At most one drain task is posted to the runner at any time, so messages are delivered one at
+ * a time and in the order they were accepted, regardless of whether the runner itself is
+ * single-threaded. After delivering {@code maxBatchSize} messages, the drain task re-posts itself
+ * so that other work on the same runner gets a chance to execute.
+ *
+ * @param <M> message type (typically a model, event, or effect descriptor type)
+ */
+class BatchingMessageDispatcher<M> extends QueueingMessageDispatcher<M> {
+
+  // guarded by the lock
+  private final ArrayDeque<M> queue = new ArrayDeque<>();
+
+  BatchingMessageDispatcher(WorkRunner runner, Consumer<M> consumer, int maxBatchSize) {
+    super(runner, consumer, maxBatchSize);
+  }
+
+  @Override
+  public void accept(M message) {
+    if (isDisposed()) {
+      return;
+    }
+
+    synchronized (lock()) {
+      queue.addLast(message);
+    }
+
+    signal();
+  }
+
+  @Nullable
+  @Override
+  M poll() {
+    return queue.pollFirst();
+  }
+
+  @Override
+  boolean isEmpty() {
+    return queue.isEmpty();
+  }
+
+  @Override
+  void clear() {
+    queue.clear();
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.functions.Consumer;
+import com.spotify.mobius.runners.WorkRunner;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link MessageDispatcher} that holds messages in a queue of limited capacity, and drains them
+ * in batches like {@link BatchingMessageDispatcher}. When the queue is full, a new message is
+ * handled according to the {@link OverflowPolicy}. Messages that are dropped are passed to an
+ * {@code onDropped} consumer.
+ *
+ * <p>If {@link EventCoalescing} is configured, a message is merged with a waiting message that has
+ * the same key like in {@link CoalescingMessageDispatcher}, whether the queue is full or not, so it
+ * never counts towards the capacity. Both use a {@link CoalescingQueue}.
+ *
+ * @param <M> message type (typically a model, event, or effect descriptor type)
+ */
+class BoundedMessageDispatcher<M> extends QueueingMessageDispatcher<M> {
+
+  private final int capacity;
+  private final OverflowPolicy policy;
+  private final Consumer<M> onDropped;
+
+  // guarded by the lock. The queue only grows beyond the capacity if the draining thread itself
+  // dispatches messages to a full queue with the BLOCK policy.
+  private final CoalescingQueue<M> queue;
+
+  BoundedMessageDispatcher(
+      WorkRunner runner,
+      Consumer<M> consumer,
+      int maxBatchSize,
+      EventQueueBounds bounds,
+      @Nullable EventCoalescing<M> coalescing,
+      Consumer<M> onDropped) {
+    super(runner, consumer, maxBatchSize);
+
+    this.capacity = bounds.capacity;
+    this.policy = bounds.policy;
+    this.onDropped = checkNotNull(onDropped);
+    this.queue = new CoalescingQueue<>(coalescing);
+  }
+
+  @Override
+  public void accept(M message) {
+    if (isDisposed()) {
+      return;
+    }
+
+    M dropped = null;
+
+    synchronized (lock()) {
+      CoalescingQueue.Slot<M> slot = queue.mergeOrWrap(message);
+
+      // a message that was merged with a waiting one doesn't need a place in the queue
+      if (slot != null && queue.size() < capacity) {
+        queue.addLast(slot);
+      } else if (slot != null) {
+        switch (policy) {
+          case BLOCK:
+            if (awaitCapacity()) {
+              queue.addLast(slot);
+            } else if (!isDisposed()) {
+              dropped = message;
+            }
+            break;
+          case DROP_OLDEST:
+            dropped = queue.poll();
+            queue.addLast(slot);
+            break;
+          case DROP_NEWEST:
+            dropped = message;
+            break;
+          case FAIL:
+            throw new EventQueueFullException(
+                "Event queue is full (capacity: " + capacity + "), rejecting: " + message);
+        }
+      }
+    }
+
+    if (dropped != null) {
+      onDropped.accept(dropped);
+    }
+
+    signal();
+  }
+
+  /** Returns the number of messages waiting in the queue. */
+  int size() {
+    synchronized (lock()) {
+      return queue.size();
+    }
+  }
+
+  @Nullable
+  @Override
+  M poll() {
+    M message = queue.poll();
+
+    if (message != null) {
+      // wake up threads blocked on a full queue
+      lock().notifyAll();
+    }
+
+    return message;
+  }
+
+  @Override
+  boolean isEmpty() {
+    return queue.isEmpty();
+  }
+
+  @Override
+  void clear() {
+    queue.clear();
+    // release any threads blocked on a full queue
+    lock().notifyAll();
+  }
+
+  /**
+   * Waits until the queue has room for another message. Returns false if the message should be
+   * discarded instead, because the dispatcher was disposed or the thread was interrupted.
+   */
+  private boolean awaitCapacity() {
+    if (isDrainingThread()) {
+      // nobody else is going to make room, so accept going over capacity instead
+      return true;
+    }
+
+    while (queue.size() >= capacity) {
+      if (isDisposed()) {
+        return false;
+      }
+
+      try {
+        lock().wait();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+
+    return !isDisposed();
+  }
+}
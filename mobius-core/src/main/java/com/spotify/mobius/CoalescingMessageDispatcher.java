@@ -0,0 +1,90 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.functions.Consumer;
+import com.spotify.mobius.runners.WorkRunner;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link MessageDispatcher} that merges messages with the same key while they are waiting to be
+ * delivered, and drains them in batches like {@link BatchingMessageDispatcher}.
+ *
+ * <p>When a message that one of the {@link EventCoalescing} rules applies to is accepted while a
+ * message with the same key is waiting, the two are merged into one message that takes the place
+ * of the waiting one in the queue. Other messages are queued and delivered as usual, and messages
+ * are delivered in the order their places in the queue were taken. The queue itself is a {@link
+ * CoalescingQueue}.
+ *
+ * @param <M> message type (typically an event type)
+ */
+class CoalescingMessageDispatcher<M> extends QueueingMessageDispatcher<M> {
+
+  // guarded by the lock
+  private final CoalescingQueue<M> queue;
+
+  CoalescingMessageDispatcher(
+      WorkRunner runner, Consumer<M> consumer, int maxBatchSize, EventCoalescing<M> coalescing) {
+    super(runner, consumer, maxBatchSize);
+
+    this.queue = new CoalescingQueue<>(checkNotNull(coalescing));
+  }
+
+  @Override
+  public void accept(M message) {
+    if (isDisposed()) {
+      return;
+    }
+
+    synchronized (lock()) {
+      CoalescingQueue.Slot<M> slot = queue.mergeOrWrap(message);
+      if (slot != null) {
+        queue.addLast(slot);
+      }
+    }
+
+    signal();
+  }
+
+  /** Returns the number of messages waiting in the queue, after merging. */
+  int size() {
+    synchronized (lock()) {
+      return queue.size();
+    }
+  }
+
+  @Nullable
+  @Override
+  M poll() {
+    return queue.poll();
+  }
+
+  @Override
+  boolean isEmpty() {
+    return queue.isEmpty();
+  }
+
+  @Override
+  void clear() {
+    queue.clear();
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * A first-in first-out queue of messages, where a message that one of the {@link EventCoalescing}
+ * rules applies to is merged with a waiting message that has the same key, taking its place in the
+ * queue.
+ *
+ * <p>Each message waits in a {@link Slot} that remembers the rule and key it was added with, so
+ * that merged messages keep them, and keys only need to be computed when a message is added. This
+ * class is not thread-safe; the dispatchers that use it guard it with a lock.
+ *
+ * @param <M> message type (typically an event type)
+ */
+final class CoalescingQueue<M> {
+
+  @Nullable private final EventCoalescing<M> coalescing;
+
+  private final ArrayDeque<Slot<M>> slots = new ArrayDeque<>();
+
+  // one map per rule, from key to the waiting slot with that key
+  private final List<Map<Object, Slot<M>>> waitingByKey;
+
+  /** Creates a queue that merges messages according to {@code coalescing}, if it isn't null. */
+  CoalescingQueue(@Nullable EventCoalescing<M> coalescing) {
+    this.coalescing = coalescing;
+
+    int rules = coalescing != null ? coalescing.size() : 0;
+    this.waitingByKey = new ArrayList<>(rules);
+    for (int i = 0; i < rules; i++) {
+      waitingByKey.add(new HashMap<Object, Slot<M>>());
+    }
+  }
+
+  /**
+   * Merges the message with the waiting message that has the same key and returns null, if there
+   * is one. Otherwise, returns a slot for the message, which takes a place in the queue once it is
+   * passed to {@link #addLast(Slot)}.
+   */
+  @Nullable
+  Slot<M> mergeOrWrap(M message) {
+    if (coalescing == null) {
+      return new Slot<>(message, EventCoalescing.NO_RULE, null);
+    }
+
+    int rule = coalescing.ruleFor(message);
+    if (rule == EventCoalescing.NO_RULE) {
+      return new Slot<>(message, rule, null);
+    }
+
+    Object key = coalescing.key(rule, message);
+    Slot<M> waiting = waitingByKey.get(rule).get(key);
+
+    if (waiting == null) {
+      return new Slot<>(message, rule, key);
+    }
+
+    waiting.message = coalescing.merge(rule, waiting.message, message);
+    return null;
+  }
+
+  /** Adds a slot returned by {@link #mergeOrWrap(Object)} to the end of the queue. */
+  void addLast(Slot<M> slot) {
+    slots.addLast(slot);
+
+    if (slot.key != null) {
+      // if another slot with this key is still waiting, later messages merge with this one instead
+      waitingByKey.get(slot.rule).put(slot.key, slot);
+    }
+  }
+
+  /**
+   * Removes the first message from the queue and returns it, or returns null if the queue is
+   * empty. Messages that are added from now on start a new slot, rather than merging with it.
+   */
+  @Nullable
+  M poll() {
+    Slot<M> slot = slots.pollFirst();
+    if (slot == null) {
+      return null;
+    }
+
+    if (slot.key != null) {
+      Map<Object, Slot<M>> waiting = waitingByKey.get(slot.rule);
+      if (waiting.get(slot.key) == slot) {
+        waiting.remove(slot.key);
+      }
+    }
+
+    return slot.message;
+  }
+
+  int size() {
+    return slots.size();
+  }
+
+  boolean isEmpty() {
+    return slots.isEmpty();
+  }
+
+  void clear() {
+    slots.clear();
+    for (Map<Object, Slot<M>> waiting : waitingByKey) {
+      waiting.clear();
+    }
+  }
+
+  /** A place in the queue, holding a message and the coalescing rule and key it was added with. */
+  static final class Slot<M> {
+    private M message;
+    private final int rule;
+    @Nullable private final Object key;
+
+    private Slot(M message, int rule, @Nullable Object key) {
+      this.message = message;
+      this.rule = rule;
+      this.key = key;
+    }
+  }
+}
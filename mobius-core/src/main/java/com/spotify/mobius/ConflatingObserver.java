@@ -0,0 +1,143 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.disposables.Disposable;
+import com.spotify.mobius.functions.Consumer;
+import com.spotify.mobius.internal_util.FireAtLeastOnceObserver;
+import com.spotify.mobius.runners.WorkRunner;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
+
+/**
+ * An observer that only forwards the most recent value to its delegate. Values that arrive while a
+ * previous value is still waiting to be forwarded replace it, so intermediate values are dropped
+ * without being queued.
+ *
+ * <p>Like {@link FireAtLeastOnceObserver}, it supports emitting an initial value that will be
+ * dropped if some other value already has been accepted.
+ */
+class ConflatingObserver<V> implements Consumer<V>, Disposable {
+
+  private final Consumer<V> delegate;
+  @Nullable private final WorkRunner runner;
+
+  private final AtomicReference<V> latest = new AtomicReference<>();
+  private final AtomicReference<V> firstValue = new AtomicReference<>();
+  private final AtomicBoolean draining = new AtomicBoolean(false);
+
+  private final Runnable drainTask =
+      new Runnable() {
+        @Override
+        public void run() {
+          drain();
+        }
+      };
+
+  // only written from the draining thread
+  private volatile boolean hasStartedEmitting = false;
+  private volatile boolean disposed = false;
+
+  /**
+   * @param delegate the observer to forward values to
+   * @param runner the runner to notify the delegate on, or null to notify it on the thread that
+   *     accepted the value
+   */
+  ConflatingObserver(Consumer<V> delegate, @Nullable WorkRunner runner) {
+    this.delegate = checkNotNull(delegate);
+    this.runner = runner;
+  }
+
+  @Override
+  public void accept(V value) {
+    latest.set(checkNotNull(value));
+    scheduleDrain();
+  }
+
+  public void acceptIfFirst(V value) {
+    if (firstValue.compareAndSet(null, checkNotNull(value))) {
+      scheduleDrain();
+    }
+  }
+
+  @Override
+  public void dispose() {
+    disposed = true;
+  }
+
+  private void scheduleDrain() {
+    if (!draining.compareAndSet(false, true)) {
+      // someone else is already draining, and will pick up the value we just stored
+      return;
+    }
+
+    if (runner == null) {
+      drain();
+      return;
+    }
+
+    try {
+      runner.post(drainTask);
+    } catch (RuntimeException e) {
+      // no drain is coming, so leave the flag free for the next value
+      draining.set(false);
+      throw e;
+    }
+  }
+
+  private void drain() {
+    // We are now in a safe section that can only execute on one thread at the time.
+    boolean done = false;
+
+    while (!done) {
+      try {
+        V value = latest.getAndSet(null);
+
+        // The first value is only used if no other value has been emitted, and a value that was
+        // accepted normally always takes precedence over it, since it is more recent.
+        if (!hasStartedEmitting && value == null) {
+          value = firstValue.get();
+        }
+
+        if (value != null) {
+          hasStartedEmitting = true;
+
+          if (!disposed) {
+            delegate.accept(value);
+          }
+        }
+
+      } finally {
+        draining.set(false); // leave the safe section
+
+        // Note: it's important that we check for pending values first, otherwise we might leak
+        // the draining flag.
+        done = !hasPendingValue() || !draining.compareAndSet(false, true);
+      }
+    }
+  }
+
+  private boolean hasPendingValue() {
+    return latest.get() != null || (!hasStartedEmitting && firstValue.get() != null);
+  }
+}
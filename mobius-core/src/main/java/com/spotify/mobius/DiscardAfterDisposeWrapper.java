@@ -30,8 +30,11 @@ import javax.annotation.Nullable;
  * values after the wrapper has been disposed. Does not prevent races between {@link
  * #accept(Object)} and {@link #dispose()} for wrapped {@link Connection}s; the behaviour if such a
  * race happens is up to the original connection.
+ *
+ * <p>Batches of values are passed on in one call if the wrapped consumer is a {@link
+ * BatchConnection}, and one at a time otherwise.
  */
-class DiscardAfterDisposeWrapper<I> implements Consumer<I>, Disposable {
+class DiscardAfterDisposeWrapper<I> implements BatchConnection<I> {
   private final Consumer<I> consumer;
   @Nullable private final Disposable disposable;
   private volatile boolean disposed;
@@ -58,6 +61,22 @@ class DiscardAfterDisposeWrapper<I> implements Consumer<I>, Disposable {
     consumer.accept(effect);
   }
 
+  @Override
+  public void acceptAll(Iterable<? extends I> values) {
+    if (disposed) {
+      return;
+    }
+
+    if (consumer instanceof BatchConnection) {
+      ((BatchConnection<I>) consumer).acceptAll(values);
+      return;
+    }
+
+    for (I value : values) {
+      accept(value);
+    }
+  }
+
   @Override
   public void dispose() {
     disposed = true;
@@ -20,8 +20,8 @@
 package com.spotify.mobius;
 
 import com.spotify.mobius.internal_util.Preconditions;
+import com.spotify.mobius.internal_util.SnapshotSet;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Set;
 import javax.annotation.Nonnull;
 
@@ -34,8 +34,8 @@ public final class Effects {
 
   /**
    * Convenience method for instantiating a set of effects. Note that this returns a mutable set of
-   * effects to avoid creating too many copies - the set will normally be added to a {@link Next} or
-   * {@link First}, leading to another safe-copy being made.
+   * effects. Adding the set to a {@link Next} doesn't copy its contents; instead, the set makes a
+   * private copy the next time it is modified, so that the {@link Next} isn't affected.
    *
    * @return a *mutable* set of effects
    */
@@ -44,7 +44,7 @@ public final class Effects {
   // implementation note: the type signature of this method helps ensure that you can get a set of a
   // super type even if you only submit items of a sub type. Hence the 'G extends F' type parameter.
   public static <F, G extends F> Set<F> effects(G... effects) {
-    Set<F> result = new HashSet<>(effects.length);
+    Set<F> result = new SnapshotSet<>(effects.length);
     Collections.addAll(result, (F[]) Preconditions.checkArrayNoNulls((F[]) effects));
 
     return result;
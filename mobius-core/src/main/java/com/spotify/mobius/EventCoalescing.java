@@ -0,0 +1,163 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.functions.BiFunction;
+import com.spotify.mobius.functions.Function;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * The configuration of event coalescing: a list of rules, each of which says which events it
+ * applies to, how to find their keys, and how to merge a waiting event with a new event that has
+ * the same key. An event is coalesced according to the first rule that applies to it.
+ *
+ * @param <M> message type
+ */
+final class EventCoalescing<M> {
+
+  static final int NO_RULE = -1;
+
+  private final List<Rule<M>> rules;
+
+  private EventCoalescing(List<Rule<M>> rules) {
+    this.rules = rules;
+  }
+
+  /** Returns a configuration with a single rule. */
+  static <M> EventCoalescing<M> of(Rule<M> rule) {
+    return new EventCoalescing<>(Collections.singletonList(checkNotNull(rule)));
+  }
+
+  /** Returns a configuration with the rules of this one, followed by the supplied rule. */
+  EventCoalescing<M> with(Rule<M> rule) {
+    List<Rule<M>> newRules = new ArrayList<>(rules.size() + 1);
+    newRules.addAll(rules);
+    newRules.add(checkNotNull(rule));
+    return new EventCoalescing<>(Collections.unmodifiableList(newRules));
+  }
+
+  /** Returns the number of rules. */
+  int size() {
+    return rules.size();
+  }
+
+  /** Returns the index of the first rule that applies to the message, or {@link #NO_RULE}. */
+  int ruleFor(M message) {
+    for (int i = 0; i < rules.size(); i++) {
+      if (rules.get(i).appliesTo(message)) {
+        return i;
+      }
+    }
+
+    return NO_RULE;
+  }
+
+  /** Returns the key of a message, according to the rule with the given index. */
+  Object key(int rule, M message) {
+    return checkNotNull(rules.get(rule).key(message));
+  }
+
+  /** Merges a waiting message with a new one, according to the rule with the given index. */
+  M merge(int rule, M queued, M message) {
+    return checkNotNull(rules.get(rule).merge(queued, message));
+  }
+
+  /**
+   * Returns the same configuration for a queue of messages that wrap messages of this queue's
+   * type. The {@code rewrap} function creates the wrapper of a merged message, given the wrapper
+   * of the waiting message.
+   */
+  <T> EventCoalescing<T> forWrapped(
+      final Function<T, M> unwrap, final BiFunction<T, M, T> rewrap) {
+    List<Rule<T>> wrapped = new ArrayList<>(rules.size());
+
+    for (final Rule<M> rule : rules) {
+      wrapped.add(
+          new Rule<T>() {
+            @Override
+            boolean appliesTo(T message) {
+              return rule.appliesTo(unwrap.apply(message));
+            }
+
+            @Override
+            Object key(T message) {
+              return rule.key(unwrap.apply(message));
+            }
+
+            @Override
+            T merge(T queued, T message) {
+              return rewrap.apply(
+                  queued, rule.merge(unwrap.apply(queued), unwrap.apply(message)));
+            }
+          });
+    }
+
+    return new EventCoalescing<>(Collections.unmodifiableList(wrapped));
+  }
+
+  /**
+   * Creates a rule for messages of the given type. If {@code merge} is null, a new message simply
+   * replaces the waiting one.
+   */
+  static <M, T extends M> Rule<M> rule(
+      final Class<T> type,
+      final Function<T, ?> key,
+      @Nullable final BiFunction<T, T, T> merge) {
+    checkNotNull(type);
+    checkNotNull(key);
+
+    return new Rule<M>() {
+      @Override
+      boolean appliesTo(M message) {
+        return type.isInstance(message);
+      }
+
+      @Override
+      Object key(M message) {
+        return key.apply(type.cast(message));
+      }
+
+      @Override
+      M merge(M queued, M message) {
+        if (merge == null) {
+          return message;
+        }
+
+        return merge.apply(type.cast(queued), type.cast(message));
+      }
+    };
+  }
+
+  abstract static class Rule<M> {
+    abstract boolean appliesTo(M message);
+
+    @Nonnull
+    abstract Object key(M message);
+
+    @Nonnull
+    abstract M merge(M queued, M message);
+  }
+}
@@ -0,0 +1,36 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+/**
+ * The priority of an event in a {@link MobiusLoop} configured with {@link
+ * MobiusLoop.Builder#eventPriority(com.spotify.mobius.functions.Function)}. Waiting events with a
+ * higher priority are processed before waiting events with a lower priority.
+ */
+public enum EventPriority {
+  /** For latency-critical events, such as those caused by user input. */
+  HIGH,
+
+  /** For ordinary events. */
+  NORMAL,
+
+  /** For events that can wait, such as background synchronisation results. */
+  LOW
+}
@@ -22,10 +22,16 @@ package com.spotify.mobius;
 import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
 
 import com.spotify.mobius.functions.Consumer;
+import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * Processes events and emits effects and models as a result of that.
  *
+ * <p>This class is not thread-safe: calls to {@link #update(Object)} must not overlap. Use {@link
+ * Factory#create(Consumer, Consumer, boolean)} to get an instance that serialises calls itself if
+ * events may be delivered concurrently.
+ *
  * @param <M> model type
  * @param <E> event type
  * @param <F> effect descriptor type
@@ -35,24 +41,34 @@ class EventProcessor<M, E, F> {
   private final MobiusStore<M, E, F> store;
   private final Consumer<F> effectConsumer;
   private final Consumer<M> modelConsumer;
+  @Nullable private final ModelEquality distinctModels;
 
   EventProcessor(
       MobiusStore<M, E, F> store, Consumer<F> effectConsumer, Consumer<M> modelConsumer) {
+    this(store, effectConsumer, modelConsumer, null);
+  }
+
+  EventProcessor(
+      MobiusStore<M, E, F> store,
+      Consumer<F> effectConsumer,
+      Consumer<M> modelConsumer,
+      @Nullable ModelEquality distinctModels) {
     this.store = checkNotNull(store);
     this.effectConsumer = checkNotNull(effectConsumer);
     this.modelConsumer = checkNotNull(modelConsumer);
+    this.distinctModels = distinctModels;
   }
 
-  synchronized void update(E event) {
+  void update(E event) {
+    M previousModel = store.currentModel();
     Next<M, F> next = store.update(event);
 
-    next.ifHasModel(
-        new Consumer<M>() {
-          @Override
-          public void accept(M model) {
-            dispatchModel(model);
-          }
-        });
+    if (next.hasModel()) {
+      M model = next.modelUnsafe();
+      if (distinctModels == null || !distinctModels.isSame(previousModel, model)) {
+        dispatchModel(model);
+      }
+    }
     dispatchEffects(next.effects());
   }
 
@@ -60,12 +76,41 @@ class EventProcessor<M, E, F> {
     modelConsumer.accept(model);
   }
 
-  private void dispatchEffects(Iterable<F> effects) {
+  private void dispatchEffects(Set<F> effects) {
+    int size = effects.size();
+
+    if (size == 0) {
+      return;
+    }
+
+    if (size > 1 && effectConsumer instanceof BatchConnection) {
+      // hand off all effects at once, so that they are delivered in a single runner task
+      ((BatchConnection<F>) effectConsumer).acceptAll(effects);
+      return;
+    }
+
     for (F effect : effects) {
       effectConsumer.accept(effect);
     }
   }
 
+  /** An event processor that can safely be called from multiple threads concurrently. */
+  private static class SynchronizedEventProcessor<M, E, F> extends EventProcessor<M, E, F> {
+
+    SynchronizedEventProcessor(
+        MobiusStore<M, E, F> store,
+        Consumer<F> effectConsumer,
+        Consumer<M> modelConsumer,
+        @Nullable ModelEquality distinctModels) {
+      super(store, effectConsumer, modelConsumer, distinctModels);
+    }
+
+    @Override
+    synchronized void update(E event) {
+      super.update(event);
+    }
+  }
+
   /**
    * Factory for event processors.
    *
@@ -76,13 +121,36 @@ class EventProcessor<M, E, F> {
   static class Factory<M, E, F> {
 
     private final MobiusStore<M, E, F> store;
+    @Nullable private final ModelEquality distinctModels;
 
     Factory(MobiusStore<M, E, F> store) {
+      this(store, null);
+    }
+
+    /**
+     * @param distinctModels how to detect models that are the same as the current one, which then
+     *     aren't emitted, or null to emit every model returned by the update function
+     */
+    Factory(MobiusStore<M, E, F> store, @Nullable ModelEquality distinctModels) {
       this.store = checkNotNull(store);
+      this.distinctModels = distinctModels;
     }
 
-    public EventProcessor<M, E, F> create(Consumer<F> effectConsumer, Consumer<M> modelConsumer) {
-      return new EventProcessor<>(store, checkNotNull(effectConsumer), checkNotNull(modelConsumer));
+    /**
+     * Creates an event processor.
+     *
+     * @param serialEvents true if the caller guarantees that events are never delivered
+     *     concurrently, in which case the processor skips locking on each update
+     */
+    public EventProcessor<M, E, F> create(
+        Consumer<F> effectConsumer, Consumer<M> modelConsumer, boolean serialEvents) {
+      if (serialEvents) {
+        return new EventProcessor<>(
+            store, checkNotNull(effectConsumer), checkNotNull(modelConsumer), distinctModels);
+      }
+
+      return new SynchronizedEventProcessor<>(
+          store, checkNotNull(effectConsumer), checkNotNull(modelConsumer), distinctModels);
     }
   }
 }
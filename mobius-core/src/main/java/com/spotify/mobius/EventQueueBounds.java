@@ -0,0 +1,37 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+/** The configuration of a bounded event queue: its capacity, and what to do when it is full. */
+final class EventQueueBounds {
+  final int capacity;
+  final OverflowPolicy policy;
+
+  EventQueueBounds(int capacity, OverflowPolicy policy) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be positive, was: " + capacity);
+    }
+
+    this.capacity = capacity;
+    this.policy = checkNotNull(policy);
+  }
+}
@@ -0,0 +1,30 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+/**
+ * Exception thrown when dispatching an event to a loop whose bounded event queue is full, and that
+ * is configured to use {@link OverflowPolicy#FAIL}.
+ */
+public class EventQueueFullException extends IllegalStateException {
+  public EventQueueFullException(String s) {
+    super(s);
+  }
+}
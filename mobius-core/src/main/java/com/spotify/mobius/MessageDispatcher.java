@@ -21,17 +21,23 @@ package com.spotify.mobius;
 
 import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
 
-import com.spotify.mobius.disposables.Disposable;
 import com.spotify.mobius.functions.Consumer;
+import com.spotify.mobius.functions.Function;
+import com.spotify.mobius.runners.SerialWorkRunner;
 import com.spotify.mobius.runners.WorkRunner;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
  * Dispatches messages to a given runner.
  *
+ * <p>Messages passed to {@link #acceptAll(Iterable)} are posted to the runner as a single task,
+ * and delivered in iteration order. If the consumer is a {@link BatchConnection}, they are passed
+ * to it in one call.
+ *
  * @param <M> message type (typically a model, event, or effect descriptor type)
  */
-class MessageDispatcher<M> implements Consumer<M>, Disposable {
+class MessageDispatcher<M> implements BatchConnection<M> {
 
   @Nonnull private final WorkRunner runner;
   @Nonnull private final Consumer<M> consumer;
@@ -43,22 +49,147 @@ class MessageDispatcher<M> implements Consumer<M>, Disposable {
     this.consumer = checkNotNull(consumer);
   }
 
+  /**
+   * Creates a dispatcher that posts each message to the runner separately if {@code maxBatchSize}
+   * is {@link MobiusLoop#NO_EVENT_BATCHING}, or a {@link BatchingMessageDispatcher} otherwise.
+   */
+  static <M> MessageDispatcher<M> create(
+      WorkRunner runner, Consumer<M> consumer, int maxBatchSize) {
+    return maxBatchSize == MobiusLoop.NO_EVENT_BATCHING
+        ? new MessageDispatcher<>(runner, consumer)
+        : new BatchingMessageDispatcher<>(runner, consumer, maxBatchSize);
+  }
+
+  /**
+   * Like {@link #create(WorkRunner, Consumer, int)}, but creates a {@link
+   * BoundedMessageDispatcher} if {@code bounds} is non-null. Without batching, the bounded
+   * dispatcher delivers one message per task posted to the runner.
+   */
+  static <M> MessageDispatcher<M> create(
+      WorkRunner runner,
+      Consumer<M> consumer,
+      int maxBatchSize,
+      @Nullable EventQueueBounds bounds,
+      Consumer<M> onDropped) {
+    return create(runner, consumer, maxBatchSize, bounds, null, null, onDropped);
+  }
+
+  /**
+   * Like {@link #create(WorkRunner, Consumer, int, EventQueueBounds, Consumer)}, but creates a
+   * {@link PriorityMessageDispatcher} if {@code priority} is non-null, or a {@link
+   * CoalescingMessageDispatcher} if only {@code coalescing} is non-null. A bounded dispatcher
+   * coalesces messages too if {@code coalescing} is non-null.
+   *
+   * @throws IllegalArgumentException if {@code priority} is combined with {@code bounds} or {@code
+   *     coalescing}
+   */
+  static <M> MessageDispatcher<M> create(
+      WorkRunner runner,
+      Consumer<M> consumer,
+      int maxBatchSize,
+      @Nullable EventQueueBounds bounds,
+      @Nullable Function<M, EventPriority> priority,
+      @Nullable EventCoalescing<M> coalescing,
+      Consumer<M> onDropped) {
+    checkCombination(bounds, priority, coalescing);
+
+    if (bounds == null && priority == null && coalescing == null) {
+      return create(runner, consumer, maxBatchSize);
+    }
+
+    int batchSize = maxBatchSize == MobiusLoop.NO_EVENT_BATCHING ? 1 : maxBatchSize;
+
+    if (bounds != null) {
+      return new BoundedMessageDispatcher<>(
+          runner, consumer, batchSize, bounds, coalescing, onDropped);
+    }
+
+    return priority != null
+        ? new PriorityMessageDispatcher<>(runner, consumer, batchSize, priority)
+        : new CoalescingMessageDispatcher<>(runner, consumer, batchSize, checkNotNull(coalescing));
+  }
+
+  /**
+   * Checks that the event queue options can be combined; event priorities can't be combined with
+   * the others.
+   *
+   * @throws IllegalArgumentException if they can't
+   */
+  static void checkCombination(
+      @Nullable EventQueueBounds bounds,
+      @Nullable Function<?, EventPriority> priority,
+      @Nullable EventCoalescing<?> coalescing) {
+    if (priority != null && (bounds != null || coalescing != null)) {
+      throw new IllegalArgumentException(
+          "Event priorities can't be combined with a bounded event queue or event coalescing");
+    }
+  }
+
   @Override
   public void accept(final M message) {
     if (disposed) {
       return;
     }
 
-    runner.post(
-        () -> {
-          try {
-            consumer.accept(message);
-          } catch (Throwable throwable) {
-            MobiusHooks.handleError(
-                new RuntimeException(
-                    "Consumer threw an exception when accepting message: " + message, throwable));
-          }
-        });
+    runner.post(() -> deliver(message));
+  }
+
+  @Override
+  public void acceptAll(final Iterable<? extends M> messages) {
+    if (disposed) {
+      return;
+    }
+
+    runner.post(() -> deliverAll(messages));
+  }
+
+  /** Passes a message on to the consumer, reporting any exception to {@link MobiusHooks}. */
+  void deliver(M message) {
+    try {
+      consumer.accept(message);
+    } catch (Throwable throwable) {
+      MobiusHooks.handleError(
+          new RuntimeException(
+              "Consumer threw an exception when accepting message: " + message, throwable));
+    }
+  }
+
+  /**
+   * Passes messages on to the consumer, in one call if it is a {@link BatchConnection}. Exceptions
+   * are reported to {@link MobiusHooks}; when delivering messages one by one, an exception doesn't
+   * stop the remaining messages from being delivered.
+   */
+  void deliverAll(Iterable<? extends M> messages) {
+    if (!(consumer instanceof BatchConnection)) {
+      for (M message : messages) {
+        deliver(message);
+      }
+      return;
+    }
+
+    try {
+      ((BatchConnection<M>) consumer).acceptAll(messages);
+    } catch (Throwable throwable) {
+      MobiusHooks.handleError(
+          new RuntimeException(
+              "Consumer threw an exception when accepting messages: " + messages, throwable));
+    }
+  }
+
+  /**
+   * Returns true if this dispatcher never delivers messages concurrently, so that the consumer
+   * doesn't need to guard against overlapping calls.
+   */
+  boolean isSerial() {
+    return runner instanceof SerialWorkRunner;
+  }
+
+  WorkRunner runner() {
+    return runner;
+  }
+
+  boolean isDisposed() {
+    return disposed;
   }
 
   @Override
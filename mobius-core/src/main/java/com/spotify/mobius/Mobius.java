@@ -21,6 +21,8 @@ package com.spotify.mobius;
 
 import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
 
+import com.spotify.mobius.functions.BiFunction;
+import com.spotify.mobius.functions.Function;
 import com.spotify.mobius.functions.Producer;
 import com.spotify.mobius.internal_util.ImmutableUtil;
 import com.spotify.mobius.runners.WorkRunner;
@@ -114,7 +116,13 @@ public final class Mobius {
           public WorkRunner get() {
             return MobiusPlugins.defaultEffectRunner();
           }
-        });
+        },
+        MobiusLoop.NO_EVENT_BATCHING,
+        null,
+        MobiusLoop.NO_METRICS,
+        null,
+        null,
+        null);
   }
 
   /**
@@ -180,6 +188,12 @@ public final class Mobius {
     private final Producer<WorkRunner> eventRunner;
     private final Producer<WorkRunner> effectRunner;
     private final MobiusLoop.Logger<M, E, F> logger;
+    private final int eventBatchSize;
+    @Nullable private final EventQueueBounds eventQueueBounds;
+    private final MobiusLoop.Metrics metrics;
+    @Nullable private final ModelEquality distinctModels;
+    @Nullable private final Function<E, EventPriority> eventPriority;
+    @Nullable private final EventCoalescing<E> eventCoalescing;
 
     private Builder(
         Update<M, E, F> update,
@@ -188,7 +202,13 @@ public final class Mobius {
         Connectable<M, E> eventSource,
         MobiusLoop.Logger<M, E, F> logger,
         Producer<WorkRunner> eventRunner,
-        Producer<WorkRunner> effectRunner) {
+        Producer<WorkRunner> effectRunner,
+        int eventBatchSize,
+        @Nullable EventQueueBounds eventQueueBounds,
+        MobiusLoop.Metrics metrics,
+        @Nullable ModelEquality distinctModels,
+        @Nullable Function<E, EventPriority> eventPriority,
+        @Nullable EventCoalescing<E> eventCoalescing) {
       this.update = checkNotNull(update);
       this.effectHandler = checkNotNull(effectHandler);
       this.init = init;
@@ -196,6 +216,12 @@ public final class Mobius {
       this.eventRunner = checkNotNull(eventRunner);
       this.effectRunner = checkNotNull(effectRunner);
       this.logger = checkNotNull(logger);
+      this.eventBatchSize = eventBatchSize;
+      this.eventQueueBounds = eventQueueBounds;
+      this.metrics = checkNotNull(metrics);
+      this.distinctModels = distinctModels;
+      this.eventPriority = eventPriority;
+      this.eventCoalescing = eventCoalescing;
     }
 
     @Override
@@ -208,14 +234,32 @@ public final class Mobius {
           eventSource,
           logger,
           eventRunner,
-          effectRunner);
+          effectRunner,
+          eventBatchSize,
+          eventQueueBounds,
+          metrics,
+          distinctModels,
+          eventPriority,
+          eventCoalescing);
     }
 
     @Override
     @Nonnull
     public MobiusLoop.Builder<M, E, F> eventSource(Connectable<M, E> eventSource) {
       return new Builder<>(
-          update, effectHandler, init, eventSource, logger, eventRunner, effectRunner);
+          update,
+          effectHandler,
+          init,
+          eventSource,
+          logger,
+          eventRunner,
+          effectRunner,
+          eventBatchSize,
+          eventQueueBounds,
+          metrics,
+          distinctModels,
+          eventPriority,
+          eventCoalescing);
     }
 
     @Override
@@ -228,7 +272,13 @@ public final class Mobius {
           EventSourceConnectable.<M, E>create(eventSource),
           logger,
           eventRunner,
-          effectRunner);
+          effectRunner,
+          eventBatchSize,
+          eventQueueBounds,
+          metrics,
+          distinctModels,
+          eventPriority,
+          eventCoalescing);
     }
 
     @Nonnull
@@ -243,28 +293,210 @@ public final class Mobius {
           EventSourceConnectable.<M, E>create(mergedSource),
           logger,
           eventRunner,
-          effectRunner);
+          effectRunner,
+          eventBatchSize,
+          eventQueueBounds,
+          metrics,
+          distinctModels,
+          eventPriority,
+          eventCoalescing);
     }
 
     @Override
     @Nonnull
     public MobiusLoop.Builder<M, E, F> logger(MobiusLoop.Logger<M, E, F> logger) {
       return new Builder<>(
-          update, effectHandler, init, eventSource, logger, eventRunner, effectRunner);
+          update,
+          effectHandler,
+          init,
+          eventSource,
+          logger,
+          eventRunner,
+          effectRunner,
+          eventBatchSize,
+          eventQueueBounds,
+          metrics,
+          distinctModels,
+          eventPriority,
+          eventCoalescing);
     }
 
     @Override
     @Nonnull
     public MobiusLoop.Builder<M, E, F> eventRunner(Producer<WorkRunner> eventRunner) {
       return new Builder<>(
-          update, effectHandler, init, eventSource, logger, eventRunner, effectRunner);
+          update,
+          effectHandler,
+          init,
+          eventSource,
+          logger,
+          eventRunner,
+          effectRunner,
+          eventBatchSize,
+          eventQueueBounds,
+          metrics,
+          distinctModels,
+          eventPriority,
+          eventCoalescing);
     }
 
     @Override
     @Nonnull
     public MobiusLoop.Builder<M, E, F> effectRunner(Producer<WorkRunner> effectRunner) {
       return new Builder<>(
-          update, effectHandler, init, eventSource, logger, eventRunner, effectRunner);
+          update,
+          effectHandler,
+          init,
+          eventSource,
+          logger,
+          eventRunner,
+          effectRunner,
+          eventBatchSize,
+          eventQueueBounds,
+          metrics,
+          distinctModels,
+          eventPriority,
+          eventCoalescing);
+    }
+
+    @Override
+    @Nonnull
+    public MobiusLoop.Builder<M, E, F> eventBatchSize(int maxBatchSize) {
+      if (maxBatchSize < 1) {
+        throw new IllegalArgumentException("maxBatchSize must be positive, was: " + maxBatchSize);
+      }
+
+      return new Builder<>(
+          update,
+          effectHandler,
+          init,
+          eventSource,
+          logger,
+          eventRunner,
+          effectRunner,
+          maxBatchSize,
+          eventQueueBounds,
+          metrics,
+          distinctModels,
+          eventPriority,
+          eventCoalescing);
+    }
+
+    @Override
+    @Nonnull
+    public MobiusLoop.Builder<M, E, F> metrics(MobiusLoop.Metrics metrics) {
+      return new Builder<>(
+          update,
+          effectHandler,
+          init,
+          eventSource,
+          logger,
+          eventRunner,
+          effectRunner,
+          eventBatchSize,
+          eventQueueBounds,
+          checkNotNull(metrics),
+          distinctModels,
+          eventPriority,
+          eventCoalescing);
+    }
+
+    @Override
+    @Nonnull
+    public MobiusLoop.Builder<M, E, F> boundedEventQueue(int capacity, OverflowPolicy policy) {
+      EventQueueBounds bounds = new EventQueueBounds(capacity, policy);
+      MessageDispatcher.checkCombination(bounds, eventPriority, eventCoalescing);
+
+      return new Builder<>(
+          update,
+          effectHandler,
+          init,
+          eventSource,
+          logger,
+          eventRunner,
+          effectRunner,
+          eventBatchSize,
+          bounds,
+          metrics,
+          distinctModels,
+          eventPriority,
+          eventCoalescing);
+    }
+
+    @Override
+    @Nonnull
+    public MobiusLoop.Builder<M, E, F> distinctModels(ModelEquality equality) {
+      return new Builder<>(
+          update,
+          effectHandler,
+          init,
+          eventSource,
+          logger,
+          eventRunner,
+          effectRunner,
+          eventBatchSize,
+          eventQueueBounds,
+          metrics,
+          checkNotNull(equality),
+          eventPriority,
+          eventCoalescing);
+    }
+
+    @Override
+    @Nonnull
+    public MobiusLoop.Builder<M, E, F> eventPriority(Function<E, EventPriority> classifier) {
+      MessageDispatcher.checkCombination(
+          eventQueueBounds, checkNotNull(classifier), eventCoalescing);
+
+      return new Builder<>(
+          update,
+          effectHandler,
+          init,
+          eventSource,
+          logger,
+          eventRunner,
+          effectRunner,
+          eventBatchSize,
+          eventQueueBounds,
+          metrics,
+          distinctModels,
+          classifier,
+          eventCoalescing);
+    }
+
+    @Override
+    @Nonnull
+    public <T extends E> MobiusLoop.Builder<M, E, F> coalesceEvents(
+        Class<T> eventType, Function<T, ?> key) {
+      return coalesceEvents(EventCoalescing.<E, T>rule(eventType, key, null));
+    }
+
+    @Override
+    @Nonnull
+    public <T extends E> MobiusLoop.Builder<M, E, F> coalesceEvents(
+        Class<T> eventType, Function<T, ?> key, BiFunction<T, T, T> merge) {
+      return coalesceEvents(EventCoalescing.<E, T>rule(eventType, key, checkNotNull(merge)));
+    }
+
+    private MobiusLoop.Builder<M, E, F> coalesceEvents(EventCoalescing.Rule<E> rule) {
+      EventCoalescing<E> coalescing =
+          eventCoalescing == null ? EventCoalescing.of(rule) : eventCoalescing.with(rule);
+      MessageDispatcher.checkCombination(eventQueueBounds, eventPriority, coalescing);
+
+      return new Builder<>(
+          update,
+          effectHandler,
+          init,
+          eventSource,
+          logger,
+          eventRunner,
+          effectRunner,
+          eventBatchSize,
+          eventQueueBounds,
+          metrics,
+          distinctModels,
+          eventPriority,
+          coalescing);
     }
 
     @Override
@@ -302,16 +534,25 @@ public final class Mobius {
     }
 
     private MobiusLoop<M, E, F> startFromInternal(M startModel, Set<F> startEffects) {
-      LoggingUpdate<M, E, F> loggingUpdate = new LoggingUpdate<>(update, logger);
+      Update<M, E, F> loopUpdate = new LoggingUpdate<>(update, logger);
+      if (metrics != MobiusLoop.NO_METRICS) {
+        loopUpdate = new MetricsUpdate<>(loopUpdate, metrics);
+      }
 
       return MobiusLoop.create(
-          loggingUpdate,
+          loopUpdate,
           startModel,
           startEffects,
           effectHandler,
           eventSource,
           checkNotNull(eventRunner.get()),
-          checkNotNull(effectRunner.get()));
+          checkNotNull(effectRunner.get()),
+          eventBatchSize,
+          eventQueueBounds,
+          eventPriority,
+          eventCoalescing,
+          metrics,
+          distinctModels);
     }
   }
 }
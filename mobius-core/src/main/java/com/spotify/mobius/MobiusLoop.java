@@ -22,12 +22,18 @@ package com.spotify.mobius;
 import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
 
 import com.spotify.mobius.disposables.Disposable;
+import com.spotify.mobius.functions.BiFunction;
 import com.spotify.mobius.functions.Consumer;
+import com.spotify.mobius.functions.Function;
 import com.spotify.mobius.functions.Producer;
+import com.spotify.mobius.internal_util.FireAtLeastOnceObserver;
 import com.spotify.mobius.runners.WorkRunner;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -51,6 +57,14 @@ public class MobiusLoop<M, E, F> implements Loop<M, E, F> {
 
   @Nonnull private final List<Consumer<M>> modelObservers = new CopyOnWriteArrayList<>();
 
+  // guarded by itself
+  @Nonnull private final Map<Function<M, ?>, ModelSelection<M, ?>> selections = new HashMap<>();
+
+  @Nonnull private final Metrics metrics;
+  @Nonnull private final AtomicLong droppedEvents = new AtomicLong();
+  @Nullable private final Metrics.Gauge pendingEvents;
+  @Nullable private final Metrics.Gauge pendingEffects;
+
   @Nullable private volatile M mostRecentModel;
 
   private enum RunState {
@@ -65,6 +79,57 @@ public class MobiusLoop<M, E, F> implements Loop<M, E, F> {
 
   private volatile RunState runState = RunState.RUNNING;
 
+  // batch size meaning that each event is posted to the event runner separately
+  static final int NO_EVENT_BATCHING = 0;
+
+  static final Metrics NO_METRICS =
+      new Metrics() {
+        @Override
+        public void loopStarted(Gauge pendingEvents, Gauge pendingEffects) {
+          /* noop */
+        }
+
+        @Override
+        public void loopDisposed(Gauge pendingEvents, Gauge pendingEffects) {
+          /* noop */
+        }
+
+        @Override
+        public void eventDispatched() {
+          /* noop */
+        }
+
+        @Override
+        public void eventDropped() {
+          /* noop */
+        }
+
+        @Override
+        public void eventDequeued(long queueTimeNanos) {
+          /* noop */
+        }
+
+        @Override
+        public void updateCompleted(long durationNanos) {
+          /* noop */
+        }
+
+        @Override
+        public void modelChanged() {
+          /* noop */
+        }
+
+        @Override
+        public void effectDispatched() {
+          /* noop */
+        }
+
+        @Override
+        public void effectDequeued(long queueTimeNanos) {
+          /* noop */
+        }
+      };
+
   static <M, E, F> MobiusLoop<M, E, F> create(
       Update<M, E, F> update,
       M startModel,
@@ -74,15 +139,51 @@ public class MobiusLoop<M, E, F> implements Loop<M, E, F> {
       WorkRunner eventRunner,
       WorkRunner effectRunner) {
 
+    return create(
+        update,
+        startModel,
+        startEffects,
+        effectHandler,
+        eventSource,
+        eventRunner,
+        effectRunner,
+        NO_EVENT_BATCHING,
+        null,
+        null,
+        null,
+        NO_METRICS,
+        null);
+  }
+
+  static <M, E, F> MobiusLoop<M, E, F> create(
+      Update<M, E, F> update,
+      M startModel,
+      Iterable<F> startEffects,
+      Connectable<F, E> effectHandler,
+      Connectable<M, E> eventSource,
+      WorkRunner eventRunner,
+      WorkRunner effectRunner,
+      int eventBatchSize,
+      @Nullable EventQueueBounds eventQueueBounds,
+      @Nullable Function<E, EventPriority> eventPriority,
+      @Nullable EventCoalescing<E> eventCoalescing,
+      Metrics metrics,
+      @Nullable ModelEquality distinctModels) {
+
     return new MobiusLoop<>(
         new EventProcessor.Factory<>(
-            MobiusStore.create(checkNotNull(update), checkNotNull(startModel))),
+            MobiusStore.create(checkNotNull(update), checkNotNull(startModel)), distinctModels),
         checkNotNull(startModel),
         checkNotNull(startEffects),
         checkNotNull(effectHandler),
         checkNotNull(eventSource),
         checkNotNull(eventRunner),
-        checkNotNull(effectRunner));
+        checkNotNull(effectRunner),
+        eventBatchSize,
+        eventQueueBounds,
+        eventPriority,
+        eventCoalescing,
+        checkNotNull(metrics));
   }
 
   private MobiusLoop(
@@ -92,7 +193,12 @@ public class MobiusLoop<M, E, F> implements Loop<M, E, F> {
       Connectable<F, E> effectHandler,
       Connectable<M, E> eventSource,
       WorkRunner eventRunner,
-      WorkRunner effectRunner) {
+      WorkRunner effectRunner,
+      int eventBatchSize,
+      @Nullable EventQueueBounds eventQueueBounds,
+      @Nullable Function<E, EventPriority> eventPriority,
+      @Nullable EventCoalescing<E> eventCoalescing,
+      final Metrics metrics) {
 
     onEventReceived =
         DiscardAfterDisposeWrapper.wrapConsumer(
@@ -105,7 +211,7 @@ public class MobiusLoop<M, E, F> implements Loop<M, E, F> {
 
     onEffectReceived =
         DiscardAfterDisposeWrapper.wrapConsumer(
-            new Consumer<F>() {
+            new BatchConnection<F>() {
               @Override
               public void accept(F effect) {
                 try {
@@ -114,6 +220,50 @@ public class MobiusLoop<M, E, F> implements Loop<M, E, F> {
                   throw new ConnectionException(effect, t);
                 }
               }
+
+              @Override
+              public void acceptAll(Iterable<? extends F> effects) {
+                if (!(effectConsumer instanceof BatchConnection)) {
+                  acceptEach(effects);
+                  return;
+                }
+
+                try {
+                  ((BatchConnection<F>) effectConsumer).acceptAll(effects);
+                } catch (Throwable t) {
+                  throw new ConnectionException(effects, t);
+                }
+              }
+
+              /**
+               * Passes effects to the connection one by one. An effect that causes an exception
+               * doesn't stop the remaining effects from being delivered; the exceptions are thrown
+               * once all effects have been delivered.
+               */
+              private void acceptEach(Iterable<? extends F> effects) {
+                RuntimeException failure = null;
+
+                for (F effect : effects) {
+                  try {
+                    accept(effect);
+                  } catch (RuntimeException e) {
+                    if (failure == null) {
+                      failure = e;
+                    } else {
+                      failure.addSuppressed(e);
+                    }
+                  }
+                }
+
+                if (failure != null) {
+                  throw failure;
+                }
+              }
+
+              @Override
+              public void dispose() {
+                // the effect connection is disposed separately, when the loop is disposed
+              }
             });
 
     eventSourceModelConsumer = new QueuingConnection<>();
@@ -129,10 +279,120 @@ public class MobiusLoop<M, E, F> implements Loop<M, E, F> {
           }
         };
 
-    this.eventDispatcher = new MessageDispatcher<>(eventRunner, onEventReceived);
-    this.effectDispatcher = new MessageDispatcher<>(effectRunner, onEffectReceived);
+    this.metrics = metrics;
+
+    Consumer<E> onEventDropped =
+        new Consumer<E>() {
+          @Override
+          public void accept(E event) {
+            droppedEvents.incrementAndGet();
+            metrics.eventDropped();
+          }
+        };
+
+    if (metrics == NO_METRICS) {
+      this.eventDispatcher =
+          MessageDispatcher.create(
+              eventRunner,
+              onEventReceived,
+              eventBatchSize,
+              eventQueueBounds,
+              eventPriority,
+              eventCoalescing,
+              onEventDropped);
+      this.effectDispatcher = new MessageDispatcher<>(effectRunner, onEffectReceived);
+      this.pendingEvents = null;
+      this.pendingEffects = null;
+
+    } else {
+      final TimedMessageDispatcher<E> timedEvents =
+          new TimedMessageDispatcher<>(
+              eventRunner,
+              onEventReceived,
+              eventBatchSize,
+              eventQueueBounds,
+              eventPriority,
+              eventCoalescing,
+              onEventDropped,
+              new TimedMessageDispatcher.Listener() {
+                @Override
+                public void accepted() {
+                  metrics.eventDispatched();
+                }
+
+                @Override
+                public void delivering(long queueTimeNanos) {
+                  metrics.eventDequeued(queueTimeNanos);
+                }
+              });
+      final TimedMessageDispatcher<F> timedEffects =
+          new TimedMessageDispatcher<>(
+              effectRunner,
+              onEffectReceived,
+              NO_EVENT_BATCHING,
+              new TimedMessageDispatcher.Listener() {
+                @Override
+                public void accepted() {
+                  metrics.effectDispatched();
+                }
+
+                @Override
+                public void delivering(long queueTimeNanos) {
+                  metrics.effectDequeued(queueTimeNanos);
+                }
+              });
+
+      this.eventDispatcher = timedEvents;
+      this.effectDispatcher = timedEffects;
+      this.pendingEvents = timedEvents::pendingMessages;
+      this.pendingEffects = timedEffects::pendingMessages;
+      metrics.loopStarted(pendingEvents, pendingEffects);
+    }
+
+    Consumer<M> onUpdatedModel = onModelChanged;
+    if (metrics != NO_METRICS) {
+      // only models that pass the distinct models check count as changed
+      final Consumer<M> emitModel = onModelChanged;
+      onUpdatedModel =
+          new Consumer<M>() {
+            @Override
+            public void accept(M model) {
+              metrics.modelChanged();
+              emitModel.accept(model);
+            }
+          };
+    }
+
+    // Effects from one update are only handed off as a single runner task if that doesn't cost any
+    // concurrency: the runner executes tasks one at a time anyway, or the effect handler has asked
+    // for batches. Otherwise, each effect is posted separately so that they can run in parallel.
+    final BatchConnection<F> onEffects =
+        new BatchConnection<F>() {
+          @Override
+          public void accept(F effect) {
+            effectDispatcher.accept(effect);
+          }
+
+          @Override
+          public void acceptAll(Iterable<? extends F> effects) {
+            if (effectDispatcher.isSerial() || effectConsumer instanceof BatchConnection) {
+              effectDispatcher.acceptAll(effects);
+              return;
+            }
+
+            for (F effect : effects) {
+              effectDispatcher.accept(effect);
+            }
+          }
+
+          @Override
+          public void dispose() {
+            // the effect dispatcher is disposed separately, when the loop is disposed
+          }
+        };
 
-    this.eventProcessor = eventProcessorFactory.create(effectDispatcher, onModelChanged);
+    this.eventProcessor =
+        eventProcessorFactory.create(onEffects, onUpdatedModel, eventDispatcher.isSerial());
 
     Consumer<E> eventConsumer =
         new Consumer<E>() {
@@ -171,6 +431,8 @@ public class MobiusLoop<M, E, F> implements Loop<M, E, F> {
 
     try {
       eventDispatcher.accept(checkNotNull(event));
+    } catch (EventQueueFullException e) {
+      throw e;
     } catch (RuntimeException e) {
       throw new IllegalStateException("Exception processing event: " + event, e);
     }
@@ -182,8 +444,67 @@ public class MobiusLoop<M, E, F> implements Loop<M, E, F> {
     return mostRecentModel;
   }
 
+  /**
+   * Returns the number of events that this loop has dropped because its bounded event queue was
+   * full, including events that were replaced by a newer event with the same coalescing key. This
+   * is always 0 for loops that don't have a bounded event queue.
+   *
+   * @see Builder#boundedEventQueue(int, OverflowPolicy)
+   */
+  public long getDroppedEventCount() {
+    return droppedEvents.get();
+  }
+
   @Override
   public Disposable observe(final Consumer<M> observer) {
+    return observe(observer, ObservationMode.ALL);
+  }
+
+  /**
+   * Add an observer of model changes to this loop, using the supplied {@link ObservationMode}.
+   * Apart from the mode, this behaves like {@link #observe(Consumer)}.
+   *
+   * <p>In {@link ObservationMode#CONFLATE} mode, the observer may skip intermediate models, but it
+   * will always eventually be notified of the most recent one. Note that the observer is notified
+   * on the thread that emits the models, which means that models only get dropped if they are
+   * emitted from more than one thread. Use {@link #observe(Consumer, ObservationMode, WorkRunner)}
+   * to decouple a slow observer from the loop.
+   *
+   * @param observer a non-null observer of model changes
+   * @param mode whether the observer should be notified of every model or only the most recent one
+   * @return a {@link Disposable} that can be used to stop further notifications to the observer
+   * @throws NullPointerException if the observer or mode is null
+   * @throws IllegalStateException if the loop has been disposed
+   */
+  public Disposable observe(final Consumer<M> observer, ObservationMode mode) {
+    return observeInternal(checkNotNull(observer), checkNotNull(mode), null);
+  }
+
+  /**
+   * Add an observer of model changes to this loop that gets notified on the supplied {@link
+   * WorkRunner}, using the supplied {@link ObservationMode}. Apart from that, this behaves like
+   * {@link #observe(Consumer)}.
+   *
+   * <p>This is intended for observers that are too slow to be notified on the loop's event
+   * runner, such as renderers or network publishers. Combined with {@link
+   * ObservationMode#CONFLATE}, the observer is handed the most recent model whenever it is done
+   * with the previous one, and the loop never waits for it or queues models for it. The runner
+   * is not disposed together with the loop.
+   *
+   * @param observer a non-null observer of model changes
+   * @param mode whether the observer should be notified of every model or only the most recent one
+   * @param runner the runner to notify the observer on
+   * @return a {@link Disposable} that can be used to stop further notifications to the observer
+   * @throws NullPointerException if any of the arguments is null
+   * @throws IllegalStateException if the loop has been disposed
+   */
+  public Disposable observe(
+      final Consumer<M> observer, ObservationMode mode, final WorkRunner runner) {
+    return observeInternal(checkNotNull(observer), checkNotNull(mode), checkNotNull(runner));
+  }
+
+  private Disposable observeInternal(
+      final Consumer<M> observer, ObservationMode mode, @Nullable final WorkRunner runner) {
     if (runState == RunState.DISPOSED) {
       throw new IllegalStateException(
           "This loop has already been disposed. You cannot observe a disposed loop");
@@ -194,7 +515,23 @@ public class MobiusLoop<M, E, F> implements Loop<M, E, F> {
       return () -> {};
     }
 
-    FireAtLeastOnceObserver<M> wrapped = new FireAtLeastOnceObserver<>(observer);
+    final Consumer<M> wrapped;
+    final Consumer<M> acceptIfFirst;
+    final Disposable onRemoved;
+
+    if (mode == ObservationMode.CONFLATE) {
+      final ConflatingObserver<M> conflating = new ConflatingObserver<>(observer, runner);
+      wrapped = conflating;
+      acceptIfFirst = conflating::acceptIfFirst;
+      onRemoved = conflating;
+
+    } else {
+      final FireAtLeastOnceObserver<M> fireAtLeastOnce =
+          new FireAtLeastOnceObserver<>(runner == null ? observer : postingTo(runner, observer));
+      wrapped = fireAtLeastOnce;
+      acceptIfFirst = fireAtLeastOnce::acceptIfFirst;
+      onRemoved = () -> {};
+    }
 
     modelObservers.add(wrapped);
 
@@ -202,13 +539,101 @@ public class MobiusLoop<M, E, F> implements Loop<M, E, F> {
     if (currentModel != null) {
       // Start by emitting the most recently received model, if one hasn't already been emitted
       // because of a racing model update
-      wrapped.acceptIfFirst(currentModel);
+      acceptIfFirst.accept(currentModel);
     }
 
     return new Disposable() {
       @Override
       public void dispose() {
         modelObservers.remove(wrapped);
+        onRemoved.dispose();
+      }
+    };
+  }
+
+  /**
+   * Add an observer of a part of the model to this loop. The selector is applied to every model on
+   * the thread that emits it, and the observer is only notified when the selected value isn't
+   * equal to the previously selected one. Apart from that, this behaves like {@link
+   * #observe(Consumer)}.
+   *
+   * <p>This is intended for observers that only care about a small part of a large model, and
+   * that are expensive to notify, such as renderers or network publishers. Observers that use the
+   * same selector instance share it, so that the selector is applied once per model no matter how
+   * many observers use it. Selectors should be cheap and free of side effects.
+   *
+   * @param selector a function returning the part of the model that the observer is interested
+   *     in; it must not return null
+   * @param observer a non-null observer of changes to the selected value
+   * @param <T> the type of the selected value
+   * @return a {@link Disposable} that can be used to stop further notifications to the observer
+   * @throws NullPointerException if the selector or observer is null
+   * @throws IllegalStateException if the loop has been disposed
+   */
+  public <T> Disposable observe(Function<M, T> selector, Consumer<T> observer) {
+    checkNotNull(selector);
+    checkNotNull(observer);
+
+    if (runState == RunState.DISPOSED) {
+      throw new IllegalStateException(
+          "This loop has already been disposed. You cannot observe a disposed loop");
+    }
+
+    if (runState == RunState.DISPOSING) {
+      // ignore observation requests on a disposing loop
+      return () -> {};
+    }
+
+    final ModelSelection<M, T> selection;
+    final FireAtLeastOnceObserver<T> added;
+
+    synchronized (selections) {
+      @SuppressWarnings("unchecked")
+      ModelSelection<M, T> existing = (ModelSelection<M, T>) selections.get(selector);
+
+      if (existing == null) {
+        existing = new ModelSelection<>(selector);
+        selections.put(selector, existing);
+        modelObservers.add(existing);
+      }
+
+      selection = existing;
+      added = selection.add(observer);
+    }
+
+    final M currentModel = mostRecentModel;
+    if (currentModel != null) {
+      // Start by emitting the value selected from the most recently received model, if one hasn't
+      // already been emitted because of a racing model update
+      selection.acceptIfFirst(added, currentModel);
+    }
+
+    return new Disposable() {
+      @Override
+      public void dispose() {
+        synchronized (selections) {
+          selection.remove(added);
+
+          if (!selection.hasObservers() && selections.get(selector) == selection) {
+            selections.remove(selector);
+            modelObservers.remove(selection);
+          }
+        }
+      }
+    };
+  }
+
+  private static <M> Consumer<M> postingTo(final WorkRunner runner, final Consumer<M> observer) {
+    return new Consumer<M>() {
+      @Override
+      public void accept(final M model) {
+        runner.post(
+            new Runnable() {
+              @Override
+              public void run() {
+                observer.accept(model);
+              }
+            });
       }
     };
   }
@@ -223,6 +648,9 @@ public class MobiusLoop<M, E, F> implements Loop<M, E, F> {
 
     // Remove model observers so that they receive no further model changes.
     modelObservers.clear();
+    synchronized (selections) {
+      selections.clear();
+    }
 
     // Disable the event and effect handling. This will cause any further
     // events or effects that are received by the loop to be ignored.
@@ -237,6 +665,10 @@ public class MobiusLoop<M, E, F> implements Loop<M, E, F> {
     eventDispatcher.dispose();
     effectDispatcher.dispose();
 
+    if (pendingEvents != null && pendingEffects != null) {
+      metrics.loopDisposed(pendingEvents, pendingEffects);
+    }
+
     runState = RunState.DISPOSED;
   }
 
@@ -309,6 +741,138 @@ public class MobiusLoop<M, E, F> implements Loop<M, E, F> {
      */
     @Nonnull
     Builder<M, E, F> effectRunner(Producer<WorkRunner> effectRunner);
+
+    /**
+     * Returns a new {@link Builder} that queues incoming events and processes them in batches of
+     * at most {@code maxBatchSize} events per task posted to the event runner, and the same values
+     * as the current one for the other fields.
+     *
+     * <p>By default, every event is posted to the event runner as a separate task. With batching,
+     * only one task at a time is posted, and it processes all queued events up to the batch size
+     * before yielding the runner to other work. This reduces the per-event cost of runners backed
+     * by an {@link java.util.concurrent.ExecutorService}. Events are still processed one at a time
+     * and in the order they were dispatched.
+     *
+     * @param maxBatchSize the maximum number of events to process per runner task; must be
+     *     positive
+     * @throws IllegalArgumentException if maxBatchSize is less than 1
+     */
+    @Nonnull
+    Builder<M, E, F> eventBatchSize(int maxBatchSize);
+
+    /**
+     * Returns a new {@link Builder} with the supplied {@link Metrics}, and the same values as the
+     * current one for the other fields.
+     *
+     * <p>Every loop started from the builder reports to the same {@link Metrics} instance. By
+     * default, no metrics are collected, and the loop doesn't do any of the extra work needed to
+     * measure them.
+     */
+    @Nonnull
+    Builder<M, E, F> metrics(Metrics metrics);
+
+    /**
+     * Returns a new {@link Builder} whose loops hold at most {@code capacity} events waiting to be
+     * processed, and the same values as the current one for the other fields.
+     *
+     * <p>By default, a loop accepts any number of events, so if its event sources produce events
+     * faster than its update function can process them, they pile up until the process runs out of
+     * memory. With a bounded queue, the {@link OverflowPolicy} decides what happens to events that
+     * are dispatched while the queue is full. Use {@link MobiusLoop#getDroppedEventCount()} or
+     * {@link Metrics#eventDropped()} to keep track of how many events were dropped.
+     *
+     * <p>A bounded queue can be combined with {@link #coalesceEvents(Class, Function)}, in which
+     * case an event that is coalesced with a waiting event doesn't take up any more room in the
+     * queue.
+     *
+     * @param capacity the maximum number of queued events; must be positive
+     * @param policy what to do when an event is dispatched while the queue is full
+     * @throws IllegalArgumentException if capacity is less than 1, or if the builder has {@link
+     *     #eventPriority(Function) event priorities}
+     */
+    @Nonnull
+    Builder<M, E, F> boundedEventQueue(int capacity, OverflowPolicy policy);
+
+    /**
+     * Returns a new {@link Builder} whose loops only emit models that aren't the same as the
+     * current model, according to the supplied {@link ModelEquality}, and the same values as the
+     * current one for the other fields.
+     *
+     * <p>By default, every model returned by the update function is emitted to the loop's
+     * observers and event source, even if it is the current model. With this option, update
+     * functions that return {@code next(model)} for an unchanged model don't cause observers to
+     * be notified. Effects are dispatched as usual.
+     *
+     * @param equality how to decide if a model is the same as the current one
+     */
+    @Nonnull
+    Builder<M, E, F> distinctModels(ModelEquality equality);
+
+    /**
+     * Returns a new {@link Builder} whose loops process waiting events in order of their {@link
+     * EventPriority}, and the same values as the current one for the other fields.
+     *
+     * <p>By default, events are processed in the order they were dispatched, so an urgent event
+     * has to wait for all events that were dispatched before it. With priorities, waiting events
+     * are queued in one lane per priority, and the next event to process is taken from the lane
+     * with the highest priority. Events with the same priority are still processed in the order
+     * they were dispatched. So that a steady stream of high-priority events can't starve the other
+     * lanes, a lane with waiting events is passed over at most eight times in a row.
+     *
+     * <p>Priorities can't be combined with {@link #boundedEventQueue(int, OverflowPolicy)} or
+     * {@link #coalesceEvents(Class, Function)}.
+     *
+     * @param classifier a function returning the priority of an event
+     * @throws IllegalArgumentException if the builder has a bounded event queue or coalesces events
+     */
+    @Nonnull
+    Builder<M, E, F> eventPriority(Function<E, EventPriority> classifier);
+
+    /**
+     * Returns a new {@link Builder} whose loops coalesce events of the given type that have the
+     * same key while they are waiting to be processed, keeping only the latest one, and the same
+     * values as the current one for the other fields.
+     *
+     * <p>By default, every dispatched event is passed to the update function. With coalescing, an
+     * event of the given type that is dispatched while an event with the same key is waiting
+     * replaces that event, taking its place in the queue. This is useful for events that supersede
+     * earlier ones, such as progress updates, since the update function only sees the latest one
+     * instead of producing a model for each. Events that have started processing are never
+     * affected, so an event is never delayed by coalescing.
+     *
+     * <p>This can be called several times to coalesce events of different types. An event is
+     * coalesced according to the first call whose type it is an instance of. Coalescing can be
+     * combined with {@link #boundedEventQueue(int, OverflowPolicy)}, but not with {@link
+     * #eventPriority(Function)}.
+     *
+     * @param eventType the type of events to coalesce
+     * @param key a function returning the key of an event; only events with equal keys are
+     *     coalesced
+     * @throws IllegalArgumentException if the builder has event priorities
+     * @see #coalesceEvents(Class, Function, BiFunction)
+     */
+    @Nonnull
+    <T extends E> Builder<M, E, F> coalesceEvents(Class<T> eventType, Function<T, ?> key);
+
+    /**
+     * Returns a new {@link Builder} whose loops merge events of the given type that have the same
+     * key while they are waiting to be processed, and the same values as the current one for the
+     * other fields.
+     *
+     * <p>This works like {@link #coalesceEvents(Class, Function)}, except that a new event is
+     * merged with the waiting event using the supplied function, rather than replacing it. The
+     * merge function is called on the thread that dispatches the event, and should be quick.
+     *
+     * @param eventType the type of events to coalesce
+     * @param key a function returning the key of an event; only events with equal keys are
+     *     merged
+     * @param merge a function that receives the waiting event and the new event, and returns the
+     *     event that replaces the waiting one
+     * @throws IllegalArgumentException if the builder has event priorities
+     */
+    @Nonnull
+    <T extends E> Builder<M, E, F> coalesceEvents(
+        Class<T> eventType, Function<T, ?> key, BiFunction<T, T, T> merge);
   }
 
   public interface Factory<M, E, F> {
@@ -405,6 +969,83 @@ public class MobiusLoop<M, E, F> implements Loop<M, E, F> {
     M getModel();
   }
 
+  /**
+   * Interface for collecting metrics about a loop: how many events, models and effects it
+   * processes, how long its update function takes, and how long events and effects wait to be
+   * processed.
+   *
+   * <p>All methods may be called concurrently from any of the loop's threads, and most of them are
+   * called once or more per event, so implementations must be thread-safe and must not block. A
+   * typical implementation forwards the values to the counters and histograms of a metrics
+   * library.
+   */
+  public interface Metrics {
+    /**
+     * Called when a loop has been started, with gauges that can be read at any time to see how
+     * many events and effects are waiting to be processed by it.
+     *
+     * @param pendingEvents the number of events that have been dispatched but not yet processed
+     * @param pendingEffects the number of effects that have been emitted but not yet handed to the
+     *     effect handler
+     */
+    void loopStarted(Gauge pendingEvents, Gauge pendingEffects);
+
+    /**
+     * Called when a loop has been disposed, with the same gauges that were passed to {@link
+     * #loopStarted(Gauge, Gauge)}, so that they can be unregistered.
+     */
+    void loopDisposed(Gauge pendingEvents, Gauge pendingEffects);
+
+    /** Called when an event is dispatched to the loop, on the thread that dispatched it. */
+    void eventDispatched();
+
+    /**
+     * Called when the loop drops an event because its bounded event queue is full.
+     *
+     * @see Builder#boundedEventQueue(int, OverflowPolicy)
+     */
+    void eventDropped();
+
+    /**
+     * Called right before an event is passed to the update function.
+     *
+     * @param queueTimeNanos the time the event waited between being dispatched and getting
+     *     processed
+     */
+    void eventDequeued(long queueTimeNanos);
+
+    /**
+     * Called right after the {@link Update#update(Object, Object)} function has returned. It will
+     * be called on the same thread as the update function.
+     *
+     * @param durationNanos the time the update function took
+     */
+    void updateCompleted(long durationNanos);
+
+    /**
+     * Called when the update function returned a new model, right before it is emitted to the
+     * loop's observers. Models that aren't emitted because of {@link
+     * Builder#distinctModels(ModelEquality)} aren't counted.
+     */
+    void modelChanged();
+
+    /** Called when an effect has been emitted and is about to be posted to the effect runner. */
+    void effectDispatched();
+
+    /**
+     * Called right before an effect is passed to the effect handler.
+     *
+     * @param queueTimeNanos the time the effect waited between being emitted and reaching the
+     *     effect handler
+     */
+    void effectDequeued(long queueTimeNanos);
+
+    /** A value that can be sampled at any time. */
+    interface Gauge {
+      int value();
+    }
+  }
+
   /** Interface for logging init and update calls. */
   public interface Logger<M, E, F> {
     /**
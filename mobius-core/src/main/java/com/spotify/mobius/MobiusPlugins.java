@@ -34,6 +34,11 @@ public class MobiusPlugins {
    * Sets the effect runner producer that will be used in {@link MobiusLoop} when effectRunner was
    * not provided to {@link MobiusLoop.Builder}. Affects only the loops created after this call.
    *
+   * <p>By default, each loop gets its own cached thread pool for effects. In processes that run
+   * many loops, consider {@link WorkRunners#sharedEffectRunners(int)}, which bounds the total
+   * number of effect threads, or {@link WorkRunners#workStealingEffectRunners(int, int)}, which
+   * balances CPU-bound effects of all loops on a shared pool.
+   *
    * @param defaultEffectRunnerProducer the {@link WorkRunner} producer to use as the default effect
    *     runner (a new instance needs to be provided each time the producer is called) or null to
    *     restore the default one
@@ -47,6 +52,10 @@ public class MobiusPlugins {
    * Sets the event runner producer that will be used in {@link MobiusLoop} when eventRunner was not
    * provided to {@link MobiusLoop.Builder}. Affects only the loops created after this call.
    *
+   * <p>By default, each loop gets its own event thread. In processes that run many loops, consider
+   * {@link WorkRunners#sharedEventRunners(int)}, which lets all loops share a bounded pool of
+   * threads while still processing each loop's events one at a time.
+   *
    * @param defaultEventRunnerProducer the {@link WorkRunner} producer to use as the default event
    *     runner (a new instance needs to be provided each time the producer is called) or null to
    *     restore the default one
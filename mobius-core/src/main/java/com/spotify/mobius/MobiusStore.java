@@ -23,7 +23,10 @@ import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
 
 import javax.annotation.Nonnull;
 
-/** Responsible for holding and updating the current model. */
+/**
+ * Responsible for holding and updating the current model. Not thread-safe; it is only accessed
+ * through an {@link EventProcessor}, which ensures that updates don't overlap.
+ */
 class MobiusStore<M, E, F> {
 
   @Nonnull private final Update<M, E, F> update;
@@ -41,7 +44,12 @@ class MobiusStore<M, E, F> {
   }
 
   @Nonnull
-  synchronized Next<M, F> update(E event) {
+  M currentModel() {
+    return currentModel;
+  }
+
+  @Nonnull
+  Next<M, F> update(E event) {
     Next<M, F> next = update.update(currentModel, checkNotNull(event));
     currentModel = next.modelOrElse(currentModel);
     return next;
@@ -0,0 +1,49 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+/**
+ * Defines when a model returned by an {@link Update} function is considered to be the same as the
+ * current model. Loops configured with {@link MobiusLoop.Builder#distinctModels(ModelEquality)}
+ * don't notify observers or event sources of models that are the same as the current one.
+ */
+public enum ModelEquality {
+  /** A model is the same as the current model if it is the same instance. */
+  IDENTITY {
+    @Override
+    boolean isSame(Object current, Object next) {
+      return current == next;
+    }
+  },
+
+  /**
+   * A model is the same as the current model if it is {@link Object#equals(Object) equal} to it.
+   * This requires the model type to implement {@code equals}, and comparing models should be
+   * cheaper than notifying observers of them.
+   */
+  EQUALS {
+    @Override
+    boolean isSame(Object current, Object next) {
+      return current == next || current.equals(next);
+    }
+  };
+
+  abstract boolean isSame(Object current, Object next);
+}
@@ -0,0 +1,101 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.functions.Consumer;
+import com.spotify.mobius.functions.Function;
+import com.spotify.mobius.internal_util.FireAtLeastOnceObserver;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.annotation.Nullable;
+
+/**
+ * A model observer that applies a selector to every model, and only forwards the selected value to
+ * its observers when it isn't equal to the previously selected one. The selector is applied once
+ * per model, regardless of the number of observers.
+ *
+ * <p>Models must be accepted on one thread at a time, which is the case for models emitted by a
+ * {@link MobiusLoop}.
+ */
+class ModelSelection<M, T> implements Consumer<M> {
+
+  private final Function<M, T> selector;
+  private final List<FireAtLeastOnceObserver<T>> observers = new CopyOnWriteArrayList<>();
+
+  @Nullable private T selected; // guarded by this
+
+  ModelSelection(Function<M, T> selector) {
+    this.selector = checkNotNull(selector);
+  }
+
+  @Override
+  public void accept(M model) {
+    T value = checkNotNull(selector.apply(model));
+
+    synchronized (this) {
+      if (value.equals(selected)) {
+        return;
+      }
+
+      selected = value;
+    }
+
+    for (FireAtLeastOnceObserver<T> observer : observers) {
+      observer.accept(value);
+    }
+  }
+
+  /** Adds an observer. It won't be notified until a new value is selected. */
+  FireAtLeastOnceObserver<T> add(Consumer<T> observer) {
+    FireAtLeastOnceObserver<T> wrapped = new FireAtLeastOnceObserver<>(observer);
+    observers.add(wrapped);
+    return wrapped;
+  }
+
+  /**
+   * Notifies an added observer of the currently selected value, unless a racing model change
+   * already notified it of a newer one.
+   *
+   * @param observer an observer returned by {@link #add(Consumer)}
+   * @param currentModel the model to select a value from if no model has been accepted yet; must
+   *     be read after this selection started receiving models, so that no model change is missed
+   */
+  void acceptIfFirst(FireAtLeastOnceObserver<T> observer, M currentModel) {
+    T current;
+    synchronized (this) {
+      if (selected == null) {
+        selected = checkNotNull(selector.apply(currentModel));
+      }
+      current = selected;
+    }
+
+    observer.acceptIfFirst(current);
+  }
+
+  void remove(FireAtLeastOnceObserver<T> observer) {
+    observers.remove(observer);
+  }
+
+  boolean hasObservers() {
+    return !observers.isEmpty();
+  }
+}
@@ -39,6 +39,9 @@ import javax.annotation.Nullable;
 @AutoValue
 public abstract class Next<M, F> {
 
+  private static final Next<?, ?> NO_CHANGE =
+      new AutoValue_Next<>(null, ImmutableUtil.<Object>emptySet());
+
   protected Next() {}
 
   /** Get the model of this Next, if it has one. Might return null. */
@@ -122,12 +125,21 @@ public abstract class Next<M, F> {
   /** Create a Next that doesn't update the model but dispatches the supplied effects. */
   @Nonnull
   public static <M, F> Next<M, F> dispatch(Set<? extends F> effects) {
+    if (effects.isEmpty()) {
+      return noChange();
+    }
+
     return new AutoValue_Next<>(null, ImmutableUtil.immutableSet(effects));
   }
 
-  /** Create an empty Next that doesn't update the model or dispatch effects. */
+  /**
+   * Create an empty Next that doesn't update the model or dispatch effects. The returned instance
+   * is shared, so calling this method doesn't allocate.
+   */
   @Nonnull
+  @SuppressWarnings("unchecked")
   public static <M, F> Next<M, F> noChange() {
-    return new AutoValue_Next<>(null, ImmutableUtil.<F>emptySet());
+    // safe, since the shared instance has neither a model nor effects
+    return (Next<M, F>) NO_CHANGE;
   }
 }
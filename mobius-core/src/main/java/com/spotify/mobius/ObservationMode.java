@@ -0,0 +1,45 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import com.spotify.mobius.functions.Consumer;
+
+/**
+ * Defines how a model observer added through {@link MobiusLoop#observe(Consumer,
+ * ObservationMode)} gets notified of model changes.
+ */
+public enum ObservationMode {
+  /**
+   * The observer is notified of every model emitted by the loop, in order. A slow observer either
+   * slows down the loop, or, if it is notified on a separate {@link
+   * com.spotify.mobius.runners.WorkRunner}, builds up a queue of models it hasn't seen yet.
+   */
+  ALL,
+
+  /**
+   * The observer is only notified of the most recent model. Models emitted while the observer is
+   * busy replace each other in a single slot, so a slow observer skips intermediate models instead
+   * of falling behind, and no memory is allocated for the skipped ones.
+   *
+   * <p>Models are still delivered in order, and the latest model is always delivered eventually.
+   * Use this for observers that only care about the current state, such as renderers.
+   */
+  CONFLATE
+}
@@ -0,0 +1,45 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+/**
+ * Defines what a {@link MobiusLoop} with a bounded event queue does when an event is dispatched
+ * while the queue is full.
+ *
+ * @see MobiusLoop.Builder#boundedEventQueue(int, OverflowPolicy)
+ */
+public enum OverflowPolicy {
+  /**
+   * Block the thread that dispatches the event until there is room in the queue. Events dispatched
+   * from the thread that is processing the loop's events, for instance by an effect handler that
+   * runs on an immediate work runner, are never blocked, since that would deadlock the loop.
+   * Those events are added to the queue even if it is full.
+   */
+  BLOCK,
+
+  /** Drop the event that has been waiting the longest, and add the new event to the queue. */
+  DROP_OLDEST,
+
+  /** Drop the new event, leaving the queue unchanged. */
+  DROP_NEWEST,
+
+  /** Throw an {@link EventQueueFullException} to the thread that dispatches the event. */
+  FAIL
+}
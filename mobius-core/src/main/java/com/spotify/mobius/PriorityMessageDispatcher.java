@@ -0,0 +1,157 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.functions.Consumer;
+import com.spotify.mobius.functions.Function;
+import com.spotify.mobius.runners.WorkRunner;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link MessageDispatcher} that queues messages in one lane per {@link EventPriority}, and
+ * drains them in batches like {@link BatchingMessageDispatcher}, always taking the next message
+ * from the lane with the highest priority. Messages in the same lane are delivered in the order
+ * they were accepted.
+ *
+ * <p>To prevent starvation, a lane that has waiting messages is passed over at most {@code
+ * maxBypasses} times in a row; after that, its oldest message is delivered next even if lanes with
+ * a higher priority have waiting messages.
+ *
+ * @param <M> message type (typically an event type)
+ */
+class PriorityMessageDispatcher<M> extends QueueingMessageDispatcher<M> {
+
+  static final int DEFAULT_MAX_BYPASSES = 8;
+
+  private final Function<M, EventPriority> classifier;
+  private final int maxBypasses;
+
+  // guarded by the lock; the lanes are indexed by the ordinal of their priority
+  private final List<ArrayDeque<M>> lanes;
+  private final int[] bypasses;
+  private int size = 0;
+
+  PriorityMessageDispatcher(
+      WorkRunner runner,
+      Consumer<M> consumer,
+      int maxBatchSize,
+      Function<M, EventPriority> classifier) {
+    this(runner, consumer, maxBatchSize, classifier, DEFAULT_MAX_BYPASSES);
+  }
+
+  PriorityMessageDispatcher(
+      WorkRunner runner,
+      Consumer<M> consumer,
+      int maxBatchSize,
+      Function<M, EventPriority> classifier,
+      int maxBypasses) {
+    super(runner, consumer, maxBatchSize);
+
+    if (maxBypasses < 1) {
+      throw new IllegalArgumentException("maxBypasses must be positive, was: " + maxBypasses);
+    }
+
+    this.classifier = checkNotNull(classifier);
+    this.maxBypasses = maxBypasses;
+
+    int priorities = EventPriority.values().length;
+    this.lanes = new ArrayList<>(priorities);
+    for (int i = 0; i < priorities; i++) {
+      lanes.add(new ArrayDeque<M>());
+    }
+    this.bypasses = new int[priorities];
+  }
+
+  @Override
+  public void accept(M message) {
+    if (isDisposed()) {
+      return;
+    }
+
+    EventPriority priority = checkNotNull(classifier.apply(message));
+
+    synchronized (lock()) {
+      lanes.get(priority.ordinal()).addLast(message);
+      size++;
+    }
+
+    signal();
+  }
+
+  /** Returns the number of messages waiting in the lanes. */
+  int size() {
+    synchronized (lock()) {
+      return size;
+    }
+  }
+
+  @Nullable
+  @Override
+  M poll() {
+    return size == 0 ? null : removeNext();
+  }
+
+  @Override
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  void clear() {
+    for (ArrayDeque<M> lane : lanes) {
+      lane.clear();
+    }
+    size = 0;
+  }
+
+  private M removeNext() {
+    int next = -1;
+
+    // a lane that has been passed over too many times goes first
+    for (int i = 1; i < lanes.size(); i++) {
+      if (bypasses[i] >= maxBypasses && !lanes.get(i).isEmpty()) {
+        next = i;
+        break;
+      }
+    }
+
+    if (next < 0) {
+      next = 0;
+      while (lanes.get(next).isEmpty()) {
+        next++;
+      }
+    }
+
+    for (int i = next + 1; i < lanes.size(); i++) {
+      if (!lanes.get(i).isEmpty()) {
+        bypasses[i]++;
+      }
+    }
+
+    bypasses[next] = 0;
+    size--;
+    return lanes.get(next).removeFirst();
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import com.spotify.mobius.functions.Consumer;
+import com.spotify.mobius.internal_util.SerialDrainer;
+import com.spotify.mobius.runners.WorkRunner;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link MessageDispatcher} that puts messages on a queue and drains them in batches, instead of
+ * posting a separate {@link Runnable} to the runner for each message.
+ *
+ * <p>At most one drain task is posted to the runner at any time, so messages are delivered one at
+ * a time, regardless of whether the runner itself is single-threaded. After delivering {@code
+ * maxBatchSize} messages, the drain task re-posts itself so that other work on the same runner gets
+ * a chance to execute.
+ *
+ * <p>Subclasses supply the queue policy: they queue messages in {@link #accept(Object)} while
+ * holding {@link #lock()} and call {@link #signal()} after releasing it, and hand them out in
+ * {@link #poll()}.
+ *
+ * @param <M> message type (typically a model, event, or effect descriptor type)
+ */
+abstract class QueueingMessageDispatcher<M> extends MessageDispatcher<M> {
+
+  private final SerialDrainer<M> drainer;
+
+  QueueingMessageDispatcher(WorkRunner runner, Consumer<M> consumer, int maxBatchSize) {
+    super(runner, consumer);
+
+    this.drainer =
+        new SerialDrainer<M>(maxBatchSize) {
+          @Nullable
+          @Override
+          protected M poll() {
+            return QueueingMessageDispatcher.this.poll();
+          }
+
+          @Override
+          protected boolean isEmpty() {
+            return QueueingMessageDispatcher.this.isEmpty();
+          }
+
+          @Override
+          protected boolean isStopped() {
+            return isDisposed();
+          }
+
+          @Override
+          protected void execute(Runnable drainTask) {
+            runner().post(drainTask);
+          }
+
+          @Override
+          protected void process(M message) {
+            deliver(message);
+          }
+        };
+  }
+
+  /** Removes and returns the next message to deliver, or null if there is none. */
+  @Nullable
+  abstract M poll();
+
+  abstract boolean isEmpty();
+
+  /** Discards all waiting messages. */
+  abstract void clear();
+
+  @Override
+  public void acceptAll(Iterable<? extends M> messages) {
+    // messages are queued and drained individually, so there is nothing to gain from batching.
+    for (M message : messages) {
+      accept(message);
+    }
+  }
+
+  @Override
+  boolean isSerial() {
+    // only one drain task is ever posted at a time, regardless of the runner.
+    return true;
+  }
+
+  @Override
+  public void dispose() {
+    super.dispose();
+
+    synchronized (lock()) {
+      clear();
+    }
+  }
+
+  /** Returns the lock that guards the queue; {@link #poll()} and friends are called holding it. */
+  final Object lock() {
+    return drainer.lock();
+  }
+
+  /** Posts the drain task if there are waiting messages and it isn't posted already. */
+  final void signal() {
+    drainer.signal();
+  }
+
+  /** Returns true if the current thread is delivering messages for this dispatcher. */
+  final boolean isDrainingThread() {
+    return drainer.isDrainingThread();
+  }
+}
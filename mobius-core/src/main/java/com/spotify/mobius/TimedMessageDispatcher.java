@@ -0,0 +1,238 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.functions.Consumer;
+import com.spotify.mobius.functions.Function;
+import com.spotify.mobius.runners.WorkRunner;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link MessageDispatcher} that keeps track of how many messages are waiting to be delivered,
+ * and of how long each message waited, and reports it to a {@link Listener}.
+ *
+ * <p>Messages are timestamped and handed on to a delegate dispatcher that does the actual
+ * dispatching, so this works the same regardless of whether that dispatcher batches messages.
+ *
+ * @param <M> message type (typically a model, event, or effect descriptor type)
+ */
+class TimedMessageDispatcher<M> extends MessageDispatcher<M> {
+
+  /** Gets notified when messages enter and leave a {@link TimedMessageDispatcher}. */
+  interface Listener {
+    void accepted();
+
+    void delivering(long queueTimeNanos);
+  }
+
+  private final MessageDispatcher<Timed<M>> delegate;
+  private final Listener listener;
+
+  private final AtomicInteger pending = new AtomicInteger();
+
+  TimedMessageDispatcher(
+      WorkRunner runner, final Consumer<M> consumer, int maxBatchSize, final Listener listener) {
+    this(runner, consumer, maxBatchSize, null, message -> {}, listener);
+  }
+
+  TimedMessageDispatcher(
+      WorkRunner runner,
+      final Consumer<M> consumer,
+      int maxBatchSize,
+      @Nullable EventQueueBounds bounds,
+      final Consumer<M> onDropped,
+      final Listener listener) {
+    this(runner, consumer, maxBatchSize, bounds, null, null, onDropped, listener);
+  }
+
+  TimedMessageDispatcher(
+      WorkRunner runner,
+      final Consumer<M> consumer,
+      int maxBatchSize,
+      @Nullable EventQueueBounds bounds,
+      @Nullable final Function<M, EventPriority> priority,
+      @Nullable EventCoalescing<M> coalescing,
+      final Consumer<M> onDropped,
+      final Listener listener) {
+    super(runner, consumer);
+    this.listener = checkNotNull(listener);
+
+    Consumer<Timed<M>> unwrapping =
+        new Consumer<Timed<M>>() {
+          @Override
+          public void accept(Timed<M> timed) {
+            consumer.accept(unwrap(timed));
+          }
+        };
+
+    if (consumer instanceof BatchConnection) {
+      unwrapping = new UnwrappingBatchConnection((BatchConnection<M>) consumer);
+    }
+
+    Consumer<Timed<M>> onDroppedUnwrapping =
+        new Consumer<Timed<M>>() {
+          @Override
+          public void accept(Timed<M> timed) {
+            pending.decrementAndGet();
+            onDropped.accept(timed.message);
+          }
+        };
+
+    this.delegate =
+        MessageDispatcher.create(
+            runner,
+            unwrapping,
+            maxBatchSize,
+            bounds,
+            priority != null ? timed -> priority.apply(timed.message) : null,
+            coalescing != null ? coalescing.forWrapped(Timed::message, this::merged) : null,
+            onDroppedUnwrapping);
+  }
+
+  /**
+   * Wraps a message that two waiting messages were merged into. The merged message counts as one
+   * pending message, and keeps the time the earlier message was accepted.
+   */
+  private Timed<M> merged(Timed<M> queued, M message) {
+    pending.decrementAndGet();
+    return new Timed<>(message, queued.acceptedAt);
+  }
+
+  @Override
+  public void accept(M message) {
+    if (delegate.isDisposed()) {
+      return;
+    }
+
+    pending.incrementAndGet();
+    try {
+      delegate.accept(new Timed<>(message, System.nanoTime()));
+    } catch (RuntimeException e) {
+      pending.decrementAndGet();
+      throw e;
+    }
+    listener.accepted();
+  }
+
+  @Override
+  public void acceptAll(Iterable<? extends M> messages) {
+    if (delegate.isDisposed()) {
+      return;
+    }
+
+    long now = System.nanoTime();
+    List<Timed<M>> timed = new ArrayList<>();
+    for (M message : messages) {
+      timed.add(new Timed<M>(message, now));
+    }
+
+    pending.addAndGet(timed.size());
+    try {
+      delegate.acceptAll(timed);
+    } catch (RuntimeException e) {
+      pending.addAndGet(-timed.size());
+      throw e;
+    }
+
+    for (int i = 0; i < timed.size(); i++) {
+      listener.accepted();
+    }
+  }
+
+  /** Returns the number of messages that have been accepted but not yet delivered. */
+  int pendingMessages() {
+    return pending.get();
+  }
+
+  @Override
+  boolean isSerial() {
+    return delegate.isSerial();
+  }
+
+  @Override
+  boolean isDisposed() {
+    return delegate.isDisposed();
+  }
+
+  @Override
+  public void dispose() {
+    delegate.dispose();
+  }
+
+  private M unwrap(Timed<M> timed) {
+    pending.decrementAndGet();
+    listener.delivering(System.nanoTime() - timed.acceptedAt);
+    return timed.message;
+  }
+
+  /** Passes batches of messages on to a {@link BatchConnection} without the timestamps. */
+  private class UnwrappingBatchConnection implements BatchConnection<Timed<M>> {
+    private final BatchConnection<M> consumer;
+
+    UnwrappingBatchConnection(BatchConnection<M> consumer) {
+      this.consumer = consumer;
+    }
+
+    @Override
+    public void accept(Timed<M> timed) {
+      consumer.accept(unwrap(timed));
+    }
+
+    @Override
+    public void acceptAll(Iterable<? extends Timed<M>> timed) {
+      List<M> messages = new ArrayList<>();
+      for (Timed<M> message : timed) {
+        messages.add(unwrap(message));
+      }
+      consumer.acceptAll(messages);
+    }
+
+    @Override
+    public void dispose() {
+      // the consumer is owned by whoever created the dispatcher
+    }
+  }
+
+  private static final class Timed<M> {
+    private final M message;
+    private final long acceptedAt;
+
+    private Timed(M message, long acceptedAt) {
+      this.message = message;
+      this.acceptedAt = acceptedAt;
+    }
+
+    @Nonnull
+    private M message() {
+      return message;
+    }
+
+    @Override
+    public String toString() {
+      return String.valueOf(message);
+    }
+  }
+}
@@ -17,7 +17,7 @@
  * limitations under the License.
  * -/-/-
  */
-package com.spotify.mobius;
+package com.spotify.mobius.internal_util;
 
 import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
 
@@ -26,7 +26,12 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
-class FireAtLeastOnceObserver<V> implements Consumer<V> {
+/**
+ * A model observer that can be given an initial value, which it only emits if it hasn't emitted any
+ * other value yet. NOT FOR EXTERNAL USE; this class is not a part of the Mobius API and
+ * backwards-incompatible changes may happen between releases.
+ */
+public final class FireAtLeastOnceObserver<V> implements Consumer<V> {
 
   private final Consumer<V> delegate;
   private volatile boolean hasStartedEmitting = false;
@@ -0,0 +1,68 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.internal_util;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * A read-only view of a set that is known to never be modified after construction. Sets of this
+ * type can be shared freely without making defensive copies.
+ */
+final class FrozenSet<T> extends AbstractSet<T> {
+
+  private final Set<T> elements;
+
+  /**
+   * Creates a new frozen set. The caller must guarantee that {@code elements} contains no nulls and
+   * is never modified after this call.
+   */
+  FrozenSet(Set<T> elements) {
+    this.elements = elements;
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    final Iterator<T> iterator = elements.iterator();
+
+    return new Iterator<T>() {
+      @Override
+      public boolean hasNext() {
+        return iterator.hasNext();
+      }
+
+      @Override
+      public T next() {
+        return iterator.next();
+      }
+    };
+  }
+
+  @Override
+  public int size() {
+    return elements.size();
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return elements.contains(o);
+  }
+}
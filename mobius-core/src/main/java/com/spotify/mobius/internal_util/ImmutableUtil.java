@@ -30,6 +30,9 @@ import java.util.Set;
  */
 public final class ImmutableUtil {
 
+  private static final Class<?> EMPTY_SET_CLASS = Collections.emptySet().getClass();
+  private static final Class<?> SINGLETON_SET_CLASS = Collections.singleton(true).getClass();
+
   private ImmutableUtil() {}
 
   public static <T> Set<T> emptySet() {
@@ -40,16 +43,45 @@ public final class ImmutableUtil {
   public static <T> Set<T> setOf(T... items) {
     Preconditions.checkArrayNoNulls(items);
 
-    Set<T> result = new HashSet<>(items.length);
-    Collections.addAll(result, items);
+    switch (items.length) {
+      case 0:
+        return emptySet();
+      case 1:
+        return Collections.singleton(items[0]);
+      default:
+        Set<T> result = new HashSet<>(items.length);
+        Collections.addAll(result, items);
 
-    return Collections.unmodifiableSet(result);
+        return new FrozenSet<>(result);
+    }
   }
 
+  /**
+   * Returns an immutable set with the same elements as the supplied set. Sets that are already
+   * known to be immutable are returned as-is, and {@link SnapshotSet}s are snapshotted rather than
+   * copied.
+   */
+  @SuppressWarnings("unchecked")
   public static <T> Set<T> immutableSet(Set<? extends T> set) {
+    // an immutable Set<? extends T> can safely be treated as a Set<T>, since nothing can be added
+    if (isKnownImmutable(set)) {
+      return (Set<T>) set;
+    }
+
+    if (set instanceof SnapshotSet) {
+      return ((SnapshotSet<T>) set).snapshot();
+    }
+
     Preconditions.checkIterableNoNulls(set);
-    Set<T> result = new HashSet<>(set);
-    return Collections.unmodifiableSet(result);
+
+    switch (set.size()) {
+      case 0:
+        return emptySet();
+      case 1:
+        return Collections.<T>singleton(set.iterator().next());
+      default:
+        return new FrozenSet<>(new HashSet<T>(set));
+    }
   }
 
   @SafeVarargs
@@ -61,6 +93,14 @@ public final class ImmutableUtil {
       result.addAll(Preconditions.checkIterableNoNulls(set));
     }
 
-    return Collections.unmodifiableSet(result);
+    return new FrozenSet<>(result);
+  }
+
+  private static boolean isKnownImmutable(Set<?> set) {
+    Class<?> setClass = Preconditions.checkNotNull(set).getClass();
+
+    return setClass == FrozenSet.class
+        || setClass == EMPTY_SET_CLASS
+        || (setClass == SINGLETON_SET_CLASS && !set.contains(null));
   }
 }
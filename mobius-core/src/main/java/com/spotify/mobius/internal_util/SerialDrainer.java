@@ -0,0 +1,134 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.internal_util;
+
+import javax.annotation.Nullable;
+
+/**
+ * Drains a queue in batches, with at most one drain task submitted at any time, so that items are
+ * processed one at a time and in the order the queue hands them out, even if the drain task is
+ * executed on many threads. After processing {@code maxBatchSize} items, the drain task resubmits
+ * itself so that other work gets a chance to execute. NOT FOR EXTERNAL USE; this class is not a
+ * part of the Mobius API and backwards-incompatible changes may happen between releases.
+ *
+ * <p>Subclasses supply the queue through {@link #poll()} and {@link #isEmpty()}, which are only
+ * called while holding {@link #lock()}. To add items, a subclass queues them while holding the
+ * lock, and then calls {@link #signal()} after releasing it.
+ *
+ * @param <T> type of the queued items
+ */
+public abstract class SerialDrainer<T> {
+
+  private final Object lock = new Object();
+
+  private final int maxBatchSize;
+
+  // guarded by the lock
+  private boolean scheduled = false;
+
+  @Nullable private volatile Thread drainingThread;
+
+  private final Runnable drainTask =
+      new Runnable() {
+        @Override
+        public void run() {
+          drain();
+        }
+      };
+
+  protected SerialDrainer(int maxBatchSize) {
+    if (maxBatchSize < 1) {
+      throw new IllegalArgumentException("maxBatchSize must be positive, was: " + maxBatchSize);
+    }
+
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  /** Removes and returns the next item to process, or null if there is none. */
+  @Nullable
+  protected abstract T poll();
+
+  protected abstract boolean isEmpty();
+
+  /** Returns true if draining should stop, for instance because the owner was disposed. */
+  protected abstract boolean isStopped();
+
+  /** Submits the drain task for execution. */
+  protected abstract void execute(Runnable drainTask);
+
+  /** Processes an item; called from the drain task, without holding the lock. */
+  protected abstract void process(T item);
+
+  /** Returns the lock that guards the queue. */
+  public final Object lock() {
+    return lock;
+  }
+
+  /** Submits the drain task if there are items to process and it isn't already submitted. */
+  public final void signal() {
+    synchronized (lock) {
+      if (scheduled || isEmpty()) {
+        return;
+      }
+
+      scheduled = true;
+    }
+
+    execute(drainTask);
+  }
+
+  /** Returns true if the current thread is running the drain task. */
+  public final boolean isDrainingThread() {
+    return Thread.currentThread() == drainingThread;
+  }
+
+  private void drain() {
+    drainingThread = Thread.currentThread();
+
+    try {
+      for (int processed = 0; processed < maxBatchSize; processed++) {
+        T item;
+
+        synchronized (lock) {
+          item = isStopped() ? null : poll();
+          if (item == null) {
+            scheduled = false;
+            return;
+          }
+        }
+
+        process(item);
+      }
+    } finally {
+      drainingThread = null;
+    }
+
+    synchronized (lock) {
+      if (isStopped() || isEmpty()) {
+        scheduled = false;
+        return;
+      }
+    }
+
+    // there are more items, but the batch is full; yield to other work. The drain stays
+    // scheduled, so there is still only one drain task at a time.
+    execute(drainTask);
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.internal_util;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * A mutable set that can hand out immutable snapshots of its contents without copying them. The
+ * elements are shared with the most recent snapshot until the set is modified, at which point the
+ * set makes a private copy before applying the modification. Null elements are not permitted. NOT
+ * FOR EXTERNAL USE; this class is not a part of the Mobius API and backwards-incompatible changes
+ * may happen between releases.
+ *
+ * <p>Like {@link HashSet}, this class is not thread-safe.
+ */
+public final class SnapshotSet<T> extends AbstractSet<T> {
+
+  private Set<T> elements;
+
+  // non-null while the elements are shared with a snapshot
+  @Nullable private Set<T> snapshot;
+
+  public SnapshotSet(int expectedSize) {
+    elements = new HashSet<>(expectedSize);
+  }
+
+  /**
+   * Returns an immutable set with the current contents of this set. Later modifications to this
+   * set are not reflected in the returned set.
+   */
+  public Set<T> snapshot() {
+    switch (elements.size()) {
+      case 0:
+        return Collections.emptySet();
+      case 1:
+        return Collections.singleton(elements.iterator().next());
+      default:
+        if (snapshot == null) {
+          snapshot = new FrozenSet<>(elements);
+        }
+        return snapshot;
+    }
+  }
+
+  @Override
+  public boolean add(T t) {
+    checkNotNull(t);
+
+    if (elements.contains(t)) {
+      return false;
+    }
+
+    copyIfShared();
+    return elements.add(t);
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    if (!elements.contains(o)) {
+      return false;
+    }
+
+    copyIfShared();
+    return elements.remove(o);
+  }
+
+  @Override
+  public void clear() {
+    if (snapshot != null) {
+      elements = new HashSet<>();
+      snapshot = null;
+    } else {
+      elements.clear();
+    }
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return elements.contains(o);
+  }
+
+  @Override
+  public int size() {
+    return elements.size();
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    final Set<T> source = elements;
+    final Iterator<T> iterator = source.iterator();
+
+    return new Iterator<T>() {
+      @Nullable private T current;
+
+      @Override
+      public boolean hasNext() {
+        return iterator.hasNext();
+      }
+
+      @Override
+      public T next() {
+        current = iterator.next();
+        return current;
+      }
+
+      @Override
+      public void remove() {
+        if (current == null) {
+          throw new IllegalStateException();
+        }
+
+        if (elements == source && snapshot == null) {
+          iterator.remove();
+        } else {
+          // the elements being iterated over are (or were) shared with a snapshot; leave them
+          // untouched and remove from this set's private copy instead.
+          copyIfShared();
+          elements.remove(current);
+        }
+
+        current = null;
+      }
+    };
+  }
+
+  private void copyIfShared() {
+    if (snapshot != null) {
+      elements = new HashSet<>(elements);
+      snapshot = null;
+    }
+  }
+}
@@ -21,20 +21,26 @@ package com.spotify.mobius.runners;
 
 import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import javax.annotation.Nonnull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** A {@link WorkRunner} implementation that is backed by an {@link ExecutorService}. */
+/**
+ * A {@link WorkRunner} implementation that is backed by an {@link ExecutorService}.
+ *
+ * <p>Posting doesn't take any locks, so many threads can post to the same runner without
+ * contending with each other. Runnables posted after {@link #dispose()} has been called, or after
+ * the executor service has been shut down by someone else, are silently discarded.
+ */
 public class ExecutorServiceWorkRunner implements WorkRunner {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ExecutorServiceWorkRunner.class);
 
   @Nonnull private final ExecutorService service;
-  @Nonnull private final Lock lock = new ReentrantLock();
+
+  private volatile boolean disposed;
 
   public ExecutorServiceWorkRunner(ExecutorService service) {
     this.service = service;
@@ -44,28 +50,33 @@ public class ExecutorServiceWorkRunner implements WorkRunner {
   @SuppressWarnings("FutureReturnValueIgnored")
   @Override
   public void post(Runnable runnable) {
-    lock.lock();
+    if (disposed) {
+      return;
+    }
+
     try {
-      if (!service.isTerminated() && !service.isShutdown()) {
-        service.submit(runnable);
+      service.submit(runnable);
+    } catch (RejectedExecutionException e) {
+      // A racing dispose (or the service's owner) shut the service down after the check above;
+      // discard the runnable, just like if it had been posted after the shutdown. Any other reason
+      // for rejecting it, like a full work queue, is reported to the caller.
+      if (!service.isShutdown()) {
+        throw e;
       }
-    } finally {
-      lock.unlock();
     }
   }
 
   @Override
   public void dispose() {
+    // set the flag before shutting down, so that posts that see the service running are also
+    // guaranteed to be either accepted before the shutdown or rejected and discarded.
+    disposed = true;
+
     try {
-      lock.lock();
-      try {
-        List<Runnable> runnables = service.shutdownNow();
-        if (!runnables.isEmpty()) {
-          LOGGER.warn(
-              "Disposing ExecutorServiceWorkRunner with {} outstanding tasks.", runnables.size());
-        }
-      } finally {
-        lock.unlock();
+      List<Runnable> runnables = service.shutdownNow();
+      if (!runnables.isEmpty()) {
+        LOGGER.warn(
+            "Disposing ExecutorServiceWorkRunner with {} outstanding tasks.", runnables.size());
       }
 
       if (!service.awaitTermination(100, TimeUnit.MILLISECONDS)) {
@@ -23,7 +23,7 @@ package com.spotify.mobius.runners;
  * A {@link WorkRunner} that immediately invokes the {@link Runnable} you post on the thread you
  * posted from.
  */
-public class ImmediateWorkRunner implements WorkRunner {
+public class ImmediateWorkRunner implements SerialWorkRunner {
 
   private boolean disposed;
 
@@ -0,0 +1,151 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.runners;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nonnull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link WorkRunner} that runs its work on an {@link Executor} that may be shared with many
+ * other runners, but never has more than {@code maxRunning} runnables submitted to it at a time.
+ *
+ * <p>Runnables that are posted while the quota is used up wait in a queue that belongs to this
+ * runner, rather than in the shared executor, and are submitted one by one as earlier runnables
+ * complete. This means that a runner that posts a large number of runnables at once only takes up
+ * a bounded share of the executor, and runnables from other runners can still get through.
+ * Runnables may execute concurrently, up to the quota.
+ *
+ * <p>Disposing this runner discards any runnables that haven't started yet, but doesn't shut down
+ * the executor, whose lifecycle is owned by whoever created it.
+ */
+public class QuotaExecutorWorkRunner implements WorkRunner {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(QuotaExecutorWorkRunner.class);
+
+  @Nonnull private final Executor executor;
+  private final int maxRunning;
+
+  private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+
+  // number of runnables that are waiting in the queue
+  private final AtomicInteger queued = new AtomicInteger();
+
+  // number of runnables that have been submitted to the executor but haven't completed
+  private final AtomicInteger running = new AtomicInteger();
+
+  private volatile boolean disposed;
+
+  public QuotaExecutorWorkRunner(Executor executor, int maxRunning) {
+    if (maxRunning < 1) {
+      throw new IllegalArgumentException("maxRunning must be positive, was: " + maxRunning);
+    }
+
+    this.executor = checkNotNull(executor);
+    this.maxRunning = maxRunning;
+  }
+
+  @Override
+  public void post(Runnable runnable) {
+    if (disposed) {
+      return;
+    }
+
+    queue.offer(checkNotNull(runnable));
+    queued.incrementAndGet();
+
+    submitWithinQuota();
+  }
+
+  @Override
+  public void dispose() {
+    disposed = true;
+    queue.clear();
+    queued.set(0);
+  }
+
+  /** Returns the number of runnables that are waiting for the quota to allow them to run. */
+  public int queuedCount() {
+    return queued.get();
+  }
+
+  /** Returns the number of runnables that have been submitted to the executor and not completed. */
+  public int runningCount() {
+    return running.get();
+  }
+
+  private void submitWithinQuota() {
+    while (!disposed && !queue.isEmpty()) {
+      int current = running.get();
+      if (current >= maxRunning) {
+        // a completing runnable will submit the next one
+        return;
+      }
+
+      if (!running.compareAndSet(current, current + 1)) {
+        continue;
+      }
+
+      Runnable next = queue.poll();
+      if (next == null) {
+        // another thread took the last runnable; release the slot and check again
+        running.decrementAndGet();
+        continue;
+      }
+
+      queued.decrementAndGet();
+
+      try {
+        executor.execute(new QuotaRunnable(next));
+      } catch (RuntimeException e) {
+        running.decrementAndGet();
+        throw e;
+      }
+    }
+  }
+
+  private class QuotaRunnable implements Runnable {
+    private final Runnable delegate;
+
+    private QuotaRunnable(Runnable delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void run() {
+      try {
+        if (!disposed) {
+          delegate.run();
+        }
+      } catch (Throwable t) {
+        LOGGER.error("Runnable threw an exception", t);
+      } finally {
+        running.decrementAndGet();
+        submitWithinQuota();
+      }
+    }
+  }
+}
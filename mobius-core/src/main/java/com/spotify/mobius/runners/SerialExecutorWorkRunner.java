@@ -0,0 +1,112 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.runners;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.internal_util.SerialDrainer;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link SerialWorkRunner} that runs its work on an {@link Executor} that may be shared with many
+ * other runners, like an actor on a dispatcher.
+ *
+ * <p>Posted runnables are queued, and at most one task that drains the queue is submitted to the
+ * executor at a time, so runnables execute one at a time and in the order they were posted, even
+ * if the executor has many threads. To be fair to other runners sharing the executor, a drain task
+ * runs at most {@code maxBatchSize} runnables before resubmitting itself.
+ *
+ * <p>Disposing this runner discards any runnables that haven't started yet, but doesn't shut down
+ * the executor, whose lifecycle is owned by whoever created it.
+ */
+public class SerialExecutorWorkRunner implements SerialWorkRunner {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SerialExecutorWorkRunner.class);
+
+  private final SerialDrainer<Runnable> drainer;
+
+  // guarded by the drainer's lock
+  private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+
+  private volatile boolean disposed;
+
+  public SerialExecutorWorkRunner(final Executor executor, int maxBatchSize) {
+    checkNotNull(executor);
+
+    this.drainer =
+        new SerialDrainer<Runnable>(maxBatchSize) {
+          @Nullable
+          @Override
+          protected Runnable poll() {
+            return queue.pollFirst();
+          }
+
+          @Override
+          protected boolean isEmpty() {
+            return queue.isEmpty();
+          }
+
+          @Override
+          protected boolean isStopped() {
+            return disposed;
+          }
+
+          @Override
+          protected void execute(Runnable drainTask) {
+            executor.execute(drainTask);
+          }
+
+          @Override
+          protected void process(Runnable runnable) {
+            try {
+              runnable.run();
+            } catch (Throwable t) {
+              LOGGER.error("Runnable threw an exception", t);
+            }
+          }
+        };
+  }
+
+  @Override
+  public void post(Runnable runnable) {
+    if (disposed) {
+      return;
+    }
+
+    synchronized (drainer.lock()) {
+      queue.addLast(checkNotNull(runnable));
+    }
+
+    drainer.signal();
+  }
+
+  @Override
+  public void dispose() {
+    disposed = true;
+
+    synchronized (drainer.lock()) {
+      queue.clear();
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.runners;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import java.util.concurrent.Executor;
+import javax.annotation.Nonnull;
+
+/**
+ * A {@link WorkRunner} that runs its work on an {@link Executor} that may be shared with other
+ * runners. Runnables may execute concurrently if the executor has several threads.
+ *
+ * <p>Disposing this runner discards any runnables that haven't started yet, but doesn't shut down
+ * the executor, whose lifecycle is owned by whoever created it.
+ */
+public class SharedExecutorWorkRunner implements WorkRunner {
+
+  @Nonnull private final Executor executor;
+
+  private volatile boolean disposed;
+
+  public SharedExecutorWorkRunner(Executor executor) {
+    this.executor = checkNotNull(executor);
+  }
+
+  @Override
+  public void post(final Runnable runnable) {
+    checkNotNull(runnable);
+
+    if (disposed) {
+      return;
+    }
+
+    executor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            if (!disposed) {
+              runnable.run();
+            }
+          }
+        });
+  }
+
+  @Override
+  public void dispose() {
+    disposed = true;
+  }
+}
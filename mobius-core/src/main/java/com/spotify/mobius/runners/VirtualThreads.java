@@ -0,0 +1,51 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.runners;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads, which are only available on Java 21 and later. This is the fallback
+ * for older runtimes; mobius-core is a multi-release jar, and on Java 21+ the version of this class
+ * in META-INF/versions/21 is used instead.
+ */
+final class VirtualThreads {
+
+  private VirtualThreads() {}
+
+  static boolean isSupported() {
+    return false;
+  }
+
+  static ThreadFactory threadFactory() {
+    throw unsupported();
+  }
+
+  static ExecutorService newThreadPerTaskExecutor() {
+    throw unsupported();
+  }
+
+  private static UnsupportedOperationException unsupported() {
+    return new UnsupportedOperationException(
+        "Virtual threads require Java 21 or later, running on: "
+            + System.getProperty("java.version"));
+  }
+}
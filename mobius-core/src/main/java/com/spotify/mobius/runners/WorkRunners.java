@@ -21,9 +21,13 @@ package com.spotify.mobius.runners;
 
 import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
 
+import com.spotify.mobius.functions.Producer;
 import java.util.Locale;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nonnull;
@@ -42,7 +46,7 @@ public class WorkRunners {
 
   @Nonnull
   public static WorkRunner singleThread() {
-    return from(Executors.newSingleThreadExecutor(THREAD_FACTORY));
+    return new SingleThreadWorkRunner(Executors.newSingleThreadExecutor(THREAD_FACTORY));
   }
 
   @Nonnull
@@ -55,23 +59,211 @@ public class WorkRunners {
     return from(Executors.newCachedThreadPool(THREAD_FACTORY));
   }
 
+  /**
+   * Create a {@link SerialWorkRunner} backed by a single virtual thread. Requires Java 21 or later.
+   *
+   * @throws UnsupportedOperationException if the runtime doesn't support virtual threads
+   */
+  @Nonnull
+  public static WorkRunner virtualThread() {
+    return new SingleThreadWorkRunner(
+        Executors.newSingleThreadExecutor(VirtualThreads.threadFactory()));
+  }
+
+  /**
+   * Create a {@link WorkRunner} that runs each runnable on a new virtual thread. This is a good
+   * choice of effect runner for effect handlers that do blocking I/O, since blocking doesn't tie up
+   * a platform thread. Requires Java 21 or later.
+   *
+   * @throws UnsupportedOperationException if the runtime doesn't support virtual threads
+   */
+  @Nonnull
+  public static WorkRunner virtualThreadPerTask() {
+    return from(VirtualThreads.newThreadPerTaskExecutor());
+  }
+
+  /** Returns true if the current runtime supports the virtual-thread-based work runners. */
+  public static boolean isVirtualThreadSupported() {
+    return VirtualThreads.isSupported();
+  }
+
   @Nonnull
   public static WorkRunner from(ExecutorService service) {
     return new ExecutorServiceWorkRunner(checkNotNull(service));
   }
 
-  private static final MyThreadFactory THREAD_FACTORY = new MyThreadFactory();
+  /**
+   * Create a {@link SerialWorkRunner} that multiplexes its work onto an executor that can be
+   * shared by many runners. Disposing the runner doesn't shut down the executor.
+   *
+   * @see SerialExecutorWorkRunner
+   */
+  @Nonnull
+  public static WorkRunner serial(Executor executor) {
+    return new SerialExecutorWorkRunner(checkNotNull(executor), SERIAL_RUNNER_BATCH_SIZE);
+  }
+
+  /**
+   * Create a {@link WorkRunner} that runs its work on an executor that can be shared by many
+   * runners. Disposing the runner doesn't shut down the executor.
+   *
+   * @see SharedExecutorWorkRunner
+   */
+  @Nonnull
+  public static WorkRunner shared(Executor executor) {
+    return new SharedExecutorWorkRunner(checkNotNull(executor));
+  }
+
+  /**
+   * Create a {@link WorkRunner} that runs its work on an executor that can be shared by many
+   * runners, with at most {@code maxRunning} of its runnables submitted to the executor at a time.
+   * Disposing the runner doesn't shut down the executor.
+   *
+   * @throws IllegalArgumentException if maxRunning is less than 1
+   * @see QuotaExecutorWorkRunner
+   */
+  @Nonnull
+  public static WorkRunner quota(Executor executor, int maxRunning) {
+    return new QuotaExecutorWorkRunner(checkNotNull(executor), maxRunning);
+  }
+
+  /**
+   * Create a producer of event runners that all share a single pool of {@code nThreads} threads.
+   * Each produced runner is a {@link SerialWorkRunner} with its own queue, so events for a loop are
+   * still processed one at a time and in order, but any number of loops can run on the same
+   * bounded set of threads.
+   *
+   * <p>This is intended to be installed using {@link
+   * com.spotify.mobius.MobiusPlugins#setDefaultEventRunner(Producer)} in processes that run many
+   * loops. The pool's threads are daemon threads and live for as long as the process does.
+   */
+  @Nonnull
+  public static Producer<WorkRunner> sharedEventRunners(int nThreads) {
+    final ExecutorService pool =
+        Executors.newFixedThreadPool(
+            nThreads, new MyThreadFactory("mobius-shared-event-thread-%d", true));
+
+    return new Producer<WorkRunner>() {
+      @Nonnull
+      @Override
+      public WorkRunner get() {
+        return serial(pool);
+      }
+    };
+  }
+
+  /**
+   * Create a producer of effect runners that all share a single pool of {@code nThreads} threads.
+   * Effects may run concurrently, just like with the default effect runner, but the total number
+   * of threads used for effects is bounded regardless of the number of loops. Effect handlers that
+   * block will hold on to one of the shared threads while doing so.
+   *
+   * <p>This is intended to be installed using {@link
+   * com.spotify.mobius.MobiusPlugins#setDefaultEffectRunner(Producer)} in processes that run many
+   * loops. The pool's threads are daemon threads and live for as long as the process does.
+   */
+  @Nonnull
+  public static Producer<WorkRunner> sharedEffectRunners(int nThreads) {
+    final ExecutorService pool =
+        Executors.newFixedThreadPool(
+            nThreads, new MyThreadFactory("mobius-shared-effect-thread-%d", true));
+
+    return new Producer<WorkRunner>() {
+      @Nonnull
+      @Override
+      public WorkRunner get() {
+        return shared(pool);
+      }
+    };
+  }
+
+  /**
+   * Create a producer of effect runners that all share a single work-stealing {@link ForkJoinPool}
+   * with the given parallelism. Each produced runner submits at most {@code maxRunningPerLoop}
+   * effects to the pool at a time and queues the rest itself, so a loop that emits a large number
+   * of effects at once can't starve the effects of other loops.
+   *
+   * <p>This is a good fit for effect handlers that do CPU-bound work, since the pool balances the
+   * work of all loops across its threads. Effect handlers that block should use {@link
+   * #sharedEffectRunners(int)} or {@link #virtualThreadPerTask()} instead. The number of effects
+   * waiting for a loop's quota is included in the pending effects reported to {@link
+   * com.spotify.mobius.MobiusLoop.Metrics}.
+   *
+   * <p>This is intended to be installed using {@link
+   * com.spotify.mobius.MobiusPlugins#setDefaultEffectRunner(Producer)} in processes that run many
+   * loops. The pool's threads are daemon threads and live for as long as the process does.
+   *
+   * @throws IllegalArgumentException if parallelism or maxRunningPerLoop is less than 1
+   */
+  @Nonnull
+  public static Producer<WorkRunner> workStealingEffectRunners(
+      int parallelism, final int maxRunningPerLoop) {
+    if (maxRunningPerLoop < 1) {
+      throw new IllegalArgumentException(
+          "maxRunningPerLoop must be positive, was: " + maxRunningPerLoop);
+    }
+
+    final ForkJoinPool pool =
+        new ForkJoinPool(
+            parallelism,
+            new MyForkJoinWorkerThreadFactory("mobius-work-stealing-effect-thread-%d"),
+            null,
+            true);
+
+    return new Producer<WorkRunner>() {
+      @Nonnull
+      @Override
+      public WorkRunner get() {
+        return quota(pool, maxRunningPerLoop);
+      }
+    };
+  }
+
+  // the number of runnables a shared serial runner executes before yielding its thread
+  private static final int SERIAL_RUNNER_BATCH_SIZE = 32;
+
+  private static final MyThreadFactory THREAD_FACTORY =
+      new MyThreadFactory("mobius-thread-%d", false);
 
   private static class MyThreadFactory implements ThreadFactory {
 
-    private static final AtomicLong threadCount = new AtomicLong(0);
+    private final AtomicLong threadCount = new AtomicLong(0);
+    private final String nameFormat;
+    private final boolean daemon;
+
+    private MyThreadFactory(String nameFormat, boolean daemon) {
+      this.nameFormat = nameFormat;
+      this.daemon = daemon;
+    }
 
     @Override
     public Thread newThread(Runnable runnable) {
       Thread thread = Executors.defaultThreadFactory().newThread(checkNotNull(runnable));
 
-      thread.setName(
-          String.format(Locale.ENGLISH, "mobius-thread-%d", threadCount.incrementAndGet()));
+      thread.setName(String.format(Locale.ENGLISH, nameFormat, threadCount.incrementAndGet()));
+      thread.setDaemon(daemon);
+
+      return thread;
+    }
+  }
+
+  private static class MyForkJoinWorkerThreadFactory
+      implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+
+    private final AtomicLong threadCount = new AtomicLong(0);
+    private final String nameFormat;
+
+    private MyForkJoinWorkerThreadFactory(String nameFormat) {
+      this.nameFormat = nameFormat;
+    }
+
+    @Override
+    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+      ForkJoinWorkerThread thread =
+          ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(checkNotNull(pool));
+
+      thread.setName(String.format(Locale.ENGLISH, nameFormat, threadCount.incrementAndGet()));
+      thread.setDaemon(true);
 
       return thread;
     }
@@ -0,0 +1,45 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.runners;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/** Access to virtual threads; this is the version used on Java 21 and later. */
+final class VirtualThreads {
+
+  private static final ThreadFactory THREAD_FACTORY =
+      Thread.ofVirtual().name("mobius-virtual-thread-", 1).factory();
+
+  private VirtualThreads() {}
+
+  static boolean isSupported() {
+    return true;
+  }
+
+  static ThreadFactory threadFactory() {
+    return THREAD_FACTORY;
+  }
+
+  static ExecutorService newThreadPerTaskExecutor() {
+    return Executors.newThreadPerTaskExecutor(THREAD_FACTORY);
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.spotify.mobius.runners.WorkRunners;
+import com.spotify.mobius.test.TestWorkRunner;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchingMessageDispatcherTest {
+
+  private List<String> messages;
+  private CountingWorkRunner runner;
+
+  @Before
+  public void setUp() throws Exception {
+    messages = new ArrayList<>();
+    runner = new CountingWorkRunner();
+  }
+
+  @Test
+  public void shouldForwardMessagesToConsumerInOrder() throws Exception {
+    BatchingMessageDispatcher<String> dispatcher =
+        new BatchingMessageDispatcher<>(runner, messages::add, 10);
+
+    dispatcher.accept("one");
+    dispatcher.accept("two");
+    dispatcher.accept("three");
+    runner.runAll();
+
+    assertThat(messages).containsExactly("one", "two", "three");
+  }
+
+  @Test
+  public void shouldPostOneTaskForAllQueuedMessages() throws Exception {
+    BatchingMessageDispatcher<String> dispatcher =
+        new BatchingMessageDispatcher<>(runner, messages::add, 10);
+
+    dispatcher.accept("one");
+    dispatcher.accept("two");
+    dispatcher.accept("three");
+
+    assertThat(runner.posted).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldYieldRunnerWhenBatchIsFull() throws Exception {
+    BatchingMessageDispatcher<String> dispatcher =
+        new BatchingMessageDispatcher<>(runner, messages::add, 2);
+
+    for (int i = 0; i < 5; i++) {
+      dispatcher.accept("message " + i);
+    }
+    runner.runAll();
+
+    assertThat(messages).hasSize(5);
+    assertThat(runner.posted).isEqualTo(3);
+  }
+
+  @Test
+  public void shouldPostNewTaskForMessagesArrivingAfterDrain() throws Exception {
+    BatchingMessageDispatcher<String> dispatcher =
+        new BatchingMessageDispatcher<>(runner, messages::add, 10);
+
+    dispatcher.accept("one");
+    runner.runAll();
+    dispatcher.accept("two");
+    runner.runAll();
+
+    assertThat(messages).containsExactly("one", "two");
+    assertThat(runner.posted).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldContinueDrainingAfterConsumerError() throws Exception {
+    TestErrorHandler errorHandler = new TestErrorHandler();
+    MobiusHooks.setErrorHandler(errorHandler);
+
+    BatchingMessageDispatcher<String> dispatcher =
+        new BatchingMessageDispatcher<>(
+            runner,
+            s -> {
+              if (s.equals("boom")) {
+                throw new RuntimeException("boo");
+              }
+              messages.add(s);
+            },
+            10);
+
+    dispatcher.accept("boom");
+    dispatcher.accept("after");
+    runner.runAll();
+
+    assertThat(errorHandler.handledErrors).hasSize(1);
+    assertThat(messages).containsExactly("after");
+  }
+
+  @Test
+  public void shouldIgnoreMessagesAfterDispose() throws Exception {
+    BatchingMessageDispatcher<String> dispatcher =
+        new BatchingMessageDispatcher<>(runner, messages::add, 10);
+
+    dispatcher.dispose();
+    dispatcher.accept("foo");
+
+    assertThat(messages).isEmpty();
+  }
+
+  @Test
+  public void shouldBeSerialEvenIfRunnerIsNot() throws Exception {
+    BatchingMessageDispatcher<String> dispatcher =
+        new BatchingMessageDispatcher<>(WorkRunners.fixedThreadPool(2), messages::add, 10);
+
+    assertThat(dispatcher.isSerial()).isTrue();
+
+    dispatcher.dispose();
+  }
+
+  @Test
+  public void shouldRejectNonPositiveBatchSize() throws Exception {
+    assertThatThrownBy(() -> new BatchingMessageDispatcher<String>(runner, messages::add, 0))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static class CountingWorkRunner extends TestWorkRunner {
+    int posted;
+
+    @Override
+    public void post(Runnable runnable) {
+      posted++;
+      super.post(runnable);
+    }
+  }
+}
@@ -0,0 +1,296 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+import com.spotify.mobius.functions.Function;
+import com.spotify.mobius.runners.ExecutorServiceWorkRunner;
+import com.spotify.mobius.runners.ImmediateWorkRunner;
+import com.spotify.mobius.test.TestWorkRunner;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BoundedMessageDispatcherTest {
+
+  private List<Integer> messages;
+  private List<Integer> dropped;
+  private CountingWorkRunner runner;
+
+  @Before
+  public void setUp() throws Exception {
+    messages = new ArrayList<>();
+    dropped = new ArrayList<>();
+    runner = new CountingWorkRunner();
+  }
+
+  @Test
+  public void shouldForwardMessagesToConsumerInOrder() throws Exception {
+    BoundedMessageDispatcher<Integer> dispatcher = create(10, OverflowPolicy.FAIL, null);
+
+    dispatcher.accept(1);
+    dispatcher.accept(2);
+    dispatcher.accept(3);
+    runner.runAll();
+
+    assertThat(messages).containsExactly(1, 2, 3);
+    assertThat(dropped).isEmpty();
+  }
+
+  @Test
+  public void shouldDropOldestMessagesWhenFull() throws Exception {
+    BoundedMessageDispatcher<Integer> dispatcher = create(3, OverflowPolicy.DROP_OLDEST, null);
+
+    for (int i = 1; i <= 5; i++) {
+      dispatcher.accept(i);
+    }
+    runner.runAll();
+
+    assertThat(messages).containsExactly(3, 4, 5);
+    assertThat(dropped).containsExactly(1, 2);
+  }
+
+  @Test
+  public void shouldDropNewestMessagesWhenFull() throws Exception {
+    BoundedMessageDispatcher<Integer> dispatcher = create(3, OverflowPolicy.DROP_NEWEST, null);
+
+    for (int i = 1; i <= 5; i++) {
+      dispatcher.accept(i);
+    }
+    runner.runAll();
+
+    assertThat(messages).containsExactly(1, 2, 3);
+    assertThat(dropped).containsExactly(4, 5);
+  }
+
+  @Test
+  public void shouldThrowWhenFull() throws Exception {
+    BoundedMessageDispatcher<Integer> dispatcher = create(2, OverflowPolicy.FAIL, null);
+
+    dispatcher.accept(1);
+    dispatcher.accept(2);
+
+    assertThatThrownBy(() -> dispatcher.accept(3)).isInstanceOf(EventQueueFullException.class);
+
+    runner.runAll();
+
+    assertThat(messages).containsExactly(1, 2);
+    assertThat(dropped).isEmpty();
+  }
+
+  @Test
+  public void shouldCoalesceMessagesWithSameKey() throws Exception {
+    BoundedMessageDispatcher<Integer> dispatcher =
+        create(3, OverflowPolicy.DROP_NEWEST, coalescingBy(value -> value % 2));
+
+    for (int i = 1; i <= 7; i++) {
+      dispatcher.accept(i);
+    }
+
+    assertThat(dispatcher.size()).isEqualTo(2);
+
+    runner.runAll();
+
+    assertThat(messages).containsExactly(7, 6);
+    assertThat(dropped).isEmpty();
+  }
+
+  @Test
+  public void shouldApplyPolicyToMessagesWithoutWaitingSameKey() throws Exception {
+    BoundedMessageDispatcher<Integer> dispatcher =
+        create(2, OverflowPolicy.DROP_NEWEST, coalescingBy(value -> value % 3));
+
+    dispatcher.accept(1);
+    dispatcher.accept(2);
+    dispatcher.accept(3);
+    dispatcher.accept(4);
+    runner.runAll();
+
+    assertThat(messages).containsExactly(4, 2);
+    assertThat(dropped).containsExactly(3);
+  }
+
+  @Test
+  public void shouldNotCoalesceWithMessagesThatHaveLeftTheQueue() throws Exception {
+    BoundedMessageDispatcher<Integer> dispatcher =
+        create(2, OverflowPolicy.DROP_OLDEST, coalescingBy(value -> value % 10));
+
+    dispatcher.accept(1);
+    dispatcher.accept(2);
+    dispatcher.accept(3);
+    dispatcher.accept(11);
+    dispatcher.accept(13);
+    runner.runAll();
+    dispatcher.accept(23);
+    runner.runAll();
+
+    assertThat(messages).containsExactly(13, 11, 23);
+    assertThat(dropped).containsExactly(1, 2);
+  }
+
+  @Test
+  public void shouldOnlyPostOneDrainTaskAtATime() throws Exception {
+    BoundedMessageDispatcher<Integer> dispatcher = create(10, OverflowPolicy.FAIL, null);
+
+    dispatcher.accept(1);
+    dispatcher.accept(2);
+    dispatcher.accept(3);
+
+    assertThat(dispatcher.size()).isEqualTo(3);
+
+    // one message per drain task without batching, but the next task is only posted once the
+    // previous one has run
+    runner.runAll();
+
+    assertThat(messages).containsExactly(1, 2, 3);
+    assertThat(dispatcher.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldNotPostAgainWhenBatchEmptiesQueue() throws Exception {
+    BoundedMessageDispatcher<Integer> dispatcher =
+        new BoundedMessageDispatcher<>(
+            runner,
+            messages::add,
+            2,
+            new EventQueueBounds(10, OverflowPolicy.FAIL),
+            null,
+            dropped::add);
+
+    for (int i = 1; i <= 4; i++) {
+      dispatcher.accept(i);
+    }
+    runner.runAll();
+
+    assertThat(messages).containsExactly(1, 2, 3, 4);
+    assertThat(runner.posted).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldBlockUntilThereIsCapacity() throws Exception {
+    final CountDownLatch blockConsumer = new CountDownLatch(1);
+    final List<Integer> delivered = new CopyOnWriteArrayList<>();
+    final BoundedMessageDispatcher<Integer> dispatcher =
+        new BoundedMessageDispatcher<>(
+            new ExecutorServiceWorkRunner(Executors.newSingleThreadExecutor()),
+            value -> {
+              try {
+                blockConsumer.await();
+              } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+              }
+              delivered.add(value);
+            },
+            1,
+            new EventQueueBounds(1, OverflowPolicy.BLOCK),
+            null,
+            dropped::add);
+
+    // the first message is being delivered, the second one fills the queue
+    dispatcher.accept(1);
+    await().atMost(Duration.ofSeconds(1)).until(() -> dispatcher.size() == 0);
+    dispatcher.accept(2);
+
+    Future<?> blocked = Executors.newSingleThreadExecutor().submit(() -> dispatcher.accept(3));
+    Thread.sleep(50);
+    assertThat(blocked.isDone()).isFalse();
+
+    blockConsumer.countDown();
+    blocked.get(1, TimeUnit.SECONDS);
+
+    await().atMost(Duration.ofSeconds(1)).until(() -> delivered.size() == 3);
+    assertThat(delivered).containsExactly(1, 2, 3);
+
+    dispatcher.dispose();
+  }
+
+  @Test
+  public void shouldNotBlockDrainingThread() throws Exception {
+    final List<Integer> delivered = new ArrayList<>();
+    final AtomicReference<BoundedMessageDispatcher<Integer>> dispatcher = new AtomicReference<>();
+    dispatcher.set(
+        new BoundedMessageDispatcher<>(
+            new ImmediateWorkRunner(),
+            value -> {
+              delivered.add(value);
+              if (value < 10) {
+                dispatcher.get().accept(value * 10 + 1);
+                dispatcher.get().accept(value * 10 + 2);
+              }
+            },
+            1,
+            new EventQueueBounds(1, OverflowPolicy.BLOCK),
+            null,
+            dropped::add));
+
+    dispatcher.get().accept(1);
+
+    assertThat(delivered).containsExactly(1, 11, 12);
+  }
+
+  @Test
+  public void shouldDiscardMessagesAfterDispose() throws Exception {
+    BoundedMessageDispatcher<Integer> dispatcher = create(10, OverflowPolicy.FAIL, null);
+
+    dispatcher.accept(1);
+    dispatcher.dispose();
+    dispatcher.accept(2);
+    runner.runAll();
+
+    assertThat(messages).isEmpty();
+  }
+
+  private BoundedMessageDispatcher<Integer> create(
+      int capacity, OverflowPolicy policy, @Nullable EventCoalescing<Integer> coalescing) {
+    return new BoundedMessageDispatcher<>(
+        runner,
+        messages::add,
+        1,
+        new EventQueueBounds(capacity, policy),
+        coalescing,
+        dropped::add);
+  }
+
+  private static EventCoalescing<Integer> coalescingBy(Function<Integer, ?> key) {
+    return EventCoalescing.of(EventCoalescing.<Integer, Integer>rule(Integer.class, key, null));
+  }
+
+  private static class CountingWorkRunner extends TestWorkRunner {
+    int posted;
+
+    @Override
+    public void post(Runnable runnable) {
+      posted++;
+      super.post(runnable);
+    }
+  }
+}
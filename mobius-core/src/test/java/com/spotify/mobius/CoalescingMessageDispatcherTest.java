@@ -0,0 +1,160 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.spotify.mobius.test.TestWorkRunner;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CoalescingMessageDispatcherTest {
+
+  // integers are coalesced by whether they are odd or even; other messages are never coalesced
+  private static final EventCoalescing<Object> KEEP_LATEST =
+      EventCoalescing.of(EventCoalescing.<Object, Integer>rule(Integer.class, i -> i % 2, null));
+
+  private static final EventCoalescing<Object> SUM =
+      EventCoalescing.of(
+          EventCoalescing.<Object, Integer>rule(Integer.class, i -> i % 2, (a, b) -> a + b));
+
+  private List<Object> messages;
+  private CountingWorkRunner runner;
+
+  @Before
+  public void setUp() throws Exception {
+    messages = new ArrayList<>();
+    runner = new CountingWorkRunner();
+  }
+
+  @Test
+  public void shouldKeepLatestMessageWithSameKey() throws Exception {
+    CoalescingMessageDispatcher<Object> dispatcher =
+        new CoalescingMessageDispatcher<>(runner, messages::add, 10, KEEP_LATEST);
+
+    dispatcher.accept(1);
+    dispatcher.accept(3);
+    dispatcher.accept(5);
+    runner.runAll();
+
+    assertThat(messages).containsExactly(5);
+  }
+
+  @Test
+  public void shouldMergeMessagesWithSameKey() throws Exception {
+    CoalescingMessageDispatcher<Object> dispatcher =
+        new CoalescingMessageDispatcher<>(runner, messages::add, 10, SUM);
+
+    dispatcher.accept(1);
+    dispatcher.accept(2);
+    dispatcher.accept(3);
+    dispatcher.accept(4);
+    runner.runAll();
+
+    assertThat(messages).containsExactly(4, 6);
+  }
+
+  @Test
+  public void shouldKeepPlaceOfWaitingMessage() throws Exception {
+    CoalescingMessageDispatcher<Object> dispatcher =
+        new CoalescingMessageDispatcher<>(runner, messages::add, 10, KEEP_LATEST);
+
+    dispatcher.accept("a");
+    dispatcher.accept(1);
+    dispatcher.accept("b");
+    dispatcher.accept(3);
+
+    assertThat(dispatcher.size()).isEqualTo(3);
+
+    runner.runAll();
+
+    assertThat(messages).containsExactly("a", 3, "b");
+  }
+
+  @Test
+  public void shouldNotCoalesceWithMessageThatWasDelivered() throws Exception {
+    CoalescingMessageDispatcher<Object> dispatcher =
+        new CoalescingMessageDispatcher<>(runner, messages::add, 10, SUM);
+
+    dispatcher.accept(1);
+    runner.runAll();
+    dispatcher.accept(3);
+    runner.runAll();
+
+    assertThat(messages).containsExactly(1, 3);
+  }
+
+  @Test
+  public void shouldYieldRunnerWhenBatchIsFull() throws Exception {
+    CoalescingMessageDispatcher<Object> dispatcher =
+        new CoalescingMessageDispatcher<>(runner, messages::add, 2, KEEP_LATEST);
+
+    for (int i = 0; i < 5; i++) {
+      dispatcher.accept("message " + i);
+    }
+
+    assertThat(dispatcher.size()).isEqualTo(5);
+
+    runner.runAll();
+
+    assertThat(messages).hasSize(5);
+    assertThat(runner.posted).isEqualTo(3);
+  }
+
+  @Test
+  public void shouldNotPostAgainWhenBatchEmptiesQueue() throws Exception {
+    CoalescingMessageDispatcher<Object> dispatcher =
+        new CoalescingMessageDispatcher<>(runner, messages::add, 2, KEEP_LATEST);
+
+    for (int i = 0; i < 4; i++) {
+      dispatcher.accept("message " + i);
+    }
+    runner.runAll();
+
+    assertThat(messages).hasSize(4);
+    assertThat(runner.posted).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldDiscardQueuedMessagesOnDispose() throws Exception {
+    CoalescingMessageDispatcher<Object> dispatcher =
+        new CoalescingMessageDispatcher<>(runner, messages::add, 10, KEEP_LATEST);
+
+    dispatcher.accept(1);
+    dispatcher.accept("a");
+    dispatcher.dispose();
+    runner.runAll();
+
+    assertThat(messages).isEmpty();
+    assertThat(dispatcher.size()).isEqualTo(0);
+  }
+
+  private static class CountingWorkRunner extends TestWorkRunner {
+    int posted;
+
+    @Override
+    public void post(Runnable runnable) {
+      posted++;
+      super.post(runnable);
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class CoalescingQueueTest {
+
+  // integers are summed by whether they are odd or even; other messages are never coalesced
+  private static final EventCoalescing<Object> SUM =
+      EventCoalescing.of(
+          EventCoalescing.<Object, Integer>rule(Integer.class, i -> i % 2, (a, b) -> a + b));
+
+  @Test
+  public void shouldMergeIntoWaitingMessageWithSameKey() {
+    CoalescingQueue<Object> queue = new CoalescingQueue<>(SUM);
+
+    offer(queue, 1);
+    offer(queue, "a");
+    offer(queue, 3);
+    offer(queue, 2);
+
+    assertThat(queue.size()).isEqualTo(3);
+    assertThat(drain(queue)).containsExactly(4, "a", 2);
+  }
+
+  @Test
+  public void shouldNotMergeWithoutCoalescing() {
+    CoalescingQueue<Object> queue = new CoalescingQueue<>(null);
+
+    offer(queue, 1);
+    offer(queue, 3);
+
+    assertThat(drain(queue)).containsExactly(1, 3);
+  }
+
+  @Test
+  public void shouldStartNewSlotAfterWaitingMessageWasRemoved() {
+    CoalescingQueue<Object> queue = new CoalescingQueue<>(SUM);
+
+    offer(queue, 1);
+    assertThat(queue.poll()).isEqualTo(1);
+    offer(queue, 3);
+    offer(queue, 5);
+
+    assertThat(drain(queue)).containsExactly(8);
+  }
+
+  @Test
+  public void shouldMergeWithLatestSlotWhenTwoWithSameKeyAreWaiting() {
+    CoalescingQueue<Object> queue = new CoalescingQueue<>(SUM);
+
+    // both slots are created before either is added, like when a dispatcher waits for capacity
+    CoalescingQueue.Slot<Object> first = queue.mergeOrWrap(1);
+    CoalescingQueue.Slot<Object> second = queue.mergeOrWrap(3);
+    queue.addLast(first);
+    queue.addLast(second);
+
+    assertThat(queue.poll()).isEqualTo(1);
+    offer(queue, 5);
+
+    assertThat(drain(queue)).containsExactly(8);
+  }
+
+  @Test
+  public void shouldForgetKeysWhenCleared() {
+    CoalescingQueue<Object> queue = new CoalescingQueue<>(SUM);
+
+    offer(queue, 1);
+    queue.clear();
+    offer(queue, 3);
+
+    assertThat(queue.isEmpty()).isFalse();
+    assertThat(drain(queue)).containsExactly(3);
+    assertThat(queue.isEmpty()).isTrue();
+  }
+
+  private static void offer(CoalescingQueue<Object> queue, Object message) {
+    CoalescingQueue.Slot<Object> slot = queue.mergeOrWrap(message);
+    if (slot != null) {
+      queue.addLast(slot);
+    }
+  }
+
+  private static List<Object> drain(CoalescingQueue<Object> queue) {
+    List<Object> messages = new ArrayList<>();
+    for (Object message = queue.poll(); message != null; message = queue.poll()) {
+      messages.add(message);
+    }
+    return messages;
+  }
+}
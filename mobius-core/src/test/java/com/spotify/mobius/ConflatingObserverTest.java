@@ -0,0 +1,185 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.spotify.mobius.runners.WorkRunner;
+import com.spotify.mobius.test.TestWorkRunner;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConflatingObserverTest {
+  List<Integer> observed;
+
+  ConflatingObserver<Integer> observer;
+
+  @Before
+  public void setUp() throws Exception {
+    observed = new ArrayList<>();
+
+    observer = new ConflatingObserver<>(observed::add, null);
+  }
+
+  @Test
+  public void shouldForwardAcceptValuesNormally() {
+    observer.accept(1);
+    observer.accept(875);
+
+    assertThat(observed).containsExactly(1, 875);
+  }
+
+  @Test
+  public void shouldForwardAcceptFirstOnce() {
+    observer.acceptIfFirst(98);
+
+    assertThat(observed).containsExactly(98);
+  }
+
+  @Test
+  public void shouldForwardAcceptNormallyAfterAcceptFirst() {
+    observer.acceptIfFirst(87);
+    observer.accept(87678);
+
+    assertThat(observed).containsExactly(87, 87678);
+  }
+
+  @Test
+  public void shouldNotForwardAcceptFirstTwice() {
+    observer.acceptIfFirst(87);
+    observer.acceptIfFirst(7767);
+
+    assertThat(observed).containsExactly(87);
+  }
+
+  @Test
+  public void shouldNotForwardAcceptFirstAfterNormalAccept() {
+    observer.accept(987987);
+    observer.acceptIfFirst(7767);
+
+    assertThat(observed).containsExactly(987987);
+  }
+
+  @Test
+  public void shouldOnlyForwardMostRecentValueWhenDelegateIsBusy() {
+    CountingWorkRunner runner = new CountingWorkRunner();
+    observer = new ConflatingObserver<>(observed::add, runner);
+
+    observer.accept(1);
+    observer.accept(2);
+    observer.accept(3);
+    runner.runAll();
+
+    observer.accept(4);
+    runner.runAll();
+
+    assertThat(observed).containsExactly(3, 4);
+  }
+
+  @Test
+  public void shouldOnlyPostOneDrainAtATime() {
+    CountingWorkRunner runner = new CountingWorkRunner();
+    observer = new ConflatingObserver<>(observed::add, runner);
+
+    for (int i = 0; i < 100; i++) {
+      observer.accept(i);
+    }
+
+    assertThat(runner.posted).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldPreferAcceptedValueOverFirstValue() {
+    CountingWorkRunner runner = new CountingWorkRunner();
+    observer = new ConflatingObserver<>(observed::add, runner);
+
+    observer.acceptIfFirst(1);
+    observer.accept(2);
+    runner.runAll();
+
+    assertThat(observed).containsExactly(2);
+  }
+
+  @Test
+  public void shouldNotForwardValuesAfterDispose() {
+    CountingWorkRunner runner = new CountingWorkRunner();
+    observer = new ConflatingObserver<>(observed::add, runner);
+
+    observer.accept(1);
+    observer.dispose();
+    runner.runAll();
+
+    assertThat(observed).isEmpty();
+  }
+
+  @Test
+  public void shouldKeepTryingToPostAfterRunnerIsDisposed() {
+    TestWorkRunner runner = new TestWorkRunner();
+    observer = new ConflatingObserver<>(observed::add, runner);
+    runner.dispose();
+
+    assertThatThrownBy(() -> observer.accept(1)).isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> observer.accept(2)).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void shouldForwardValuesAfterPostFails() {
+    final TestWorkRunner runner = new TestWorkRunner();
+    final AtomicBoolean reject = new AtomicBoolean(true);
+    observer =
+        new ConflatingObserver<>(
+            observed::add,
+            new WorkRunner() {
+              @Override
+              public void post(Runnable runnable) {
+                if (reject.getAndSet(false)) {
+                  throw new RejectedExecutionException();
+                }
+                runner.post(runnable);
+              }
+
+              @Override
+              public void dispose() {
+                runner.dispose();
+              }
+            });
+
+    assertThatThrownBy(() -> observer.accept(1)).isInstanceOf(RejectedExecutionException.class);
+    observer.accept(2);
+    runner.runAll();
+
+    assertThat(observed).containsExactly(2);
+  }
+
+  private static class CountingWorkRunner extends TestWorkRunner {
+    int posted;
+
+    @Override
+    public void post(Runnable runnable) {
+      posted++;
+      super.post(runnable);
+    }
+  }
+}
@@ -23,6 +23,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import com.spotify.mobius.functions.Consumer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
@@ -68,4 +69,27 @@ public class DiscardAfterDisposeWrapperTest {
     future.get();
     assertThat(accepted).containsExactly("foo");
   }
+
+  @Test
+  public void shouldPassBatchesToConsumerOneAtATime() throws Exception {
+    List<String> accepted = new ArrayList<>();
+    DiscardAfterDisposeWrapper<String> wrapper =
+        DiscardAfterDisposeWrapper.wrapConsumer(accepted::add);
+
+    wrapper.acceptAll(Arrays.asList("foo", "bar"));
+
+    assertThat(accepted).containsExactly("foo", "bar");
+  }
+
+  @Test
+  public void shouldDiscardBatchesAfterDispose() throws Exception {
+    List<String> accepted = new ArrayList<>();
+    DiscardAfterDisposeWrapper<String> wrapper =
+        DiscardAfterDisposeWrapper.wrapConsumer(accepted::add);
+
+    wrapper.dispose();
+    wrapper.acceptAll(Arrays.asList("foo", "bar"));
+
+    assertThat(accepted).isEmpty();
+  }
 }
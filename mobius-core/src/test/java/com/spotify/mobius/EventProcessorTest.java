@@ -19,8 +19,13 @@
  */
 package com.spotify.mobius;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import com.google.common.collect.Sets;
 import com.spotify.mobius.test.RecordingConsumer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import javax.annotation.Nonnull;
 import org.junit.Before;
@@ -28,6 +33,9 @@ import org.junit.Test;
 
 public class EventProcessorTest {
 
+  private static final int SAME_MODEL = -1;
+  private static final int EQUAL_MODEL = -2;
+
   private EventProcessor<String, Integer, Long> underTest;
   private RecordingConsumer<Long> effectConsumer;
   private RecordingConsumer<String> stateConsumer;
@@ -70,6 +78,70 @@ public class EventProcessorTest {
     effectConsumer.assertValuesInAnyOrder(10L, 20L, 30L);
   }
 
+  @Test
+  public void shouldHandOffAllEffectsToBatchConnectionAtOnce() throws Exception {
+    List<Set<Long>> batches = new ArrayList<>();
+    BatchConnection<Long> batchConsumer =
+        new BatchConnection<Long>() {
+          @Override
+          public void accept(Long value) {
+            batches.add(Collections.singleton(value));
+          }
+
+          @Override
+          public void acceptAll(Iterable<? extends Long> values) {
+            batches.add(Sets.newHashSet(values));
+          }
+
+          @Override
+          public void dispose() {}
+        };
+    underTest =
+        new EventProcessor<>(
+            MobiusStore.create(createUpdate(), "init!"), batchConsumer, stateConsumer);
+
+    underTest.update(1);
+    underTest.update(3);
+
+    assertThat(batches).containsExactly(Sets.newHashSet(10L), Sets.newHashSet(10L, 20L, 30L));
+  }
+
+  @Test
+  public void shouldEmitSameModelByDefault() throws Exception {
+    underTest.update(SAME_MODEL);
+    underTest.update(EQUAL_MODEL);
+    stateConsumer.assertValues("init!", "init!");
+  }
+
+  @Test
+  public void shouldNotEmitSameModelInstanceWhenDistinctByIdentity() throws Exception {
+    underTest =
+        new EventProcessor<>(
+            MobiusStore.create(createUpdate(), "init!"),
+            effectConsumer,
+            stateConsumer,
+            ModelEquality.IDENTITY);
+
+    underTest.update(SAME_MODEL);
+    underTest.update(EQUAL_MODEL);
+    stateConsumer.assertValues("init!");
+  }
+
+  @Test
+  public void shouldNotEmitEqualModelWhenDistinctByEquals() throws Exception {
+    underTest =
+        new EventProcessor<>(
+            MobiusStore.create(createUpdate(), "init!"),
+            effectConsumer,
+            stateConsumer,
+            ModelEquality.EQUALS);
+
+    underTest.update(SAME_MODEL);
+    underTest.update(EQUAL_MODEL);
+    underTest.update(1);
+    stateConsumer.assertValues("init!->1");
+  }
+
   private Update<String, Integer, Long> createUpdate() {
     return new Update<String, Integer, Long>() {
       @Nonnull
@@ -79,6 +151,14 @@ public class EventProcessorTest {
           return Next.noChange();
         }
 
+        if (event == SAME_MODEL) {
+          return Next.next(model);
+        }
+
+        if (event == EQUAL_MODEL) {
+          return Next.next(new String(model));
+        }
+
         Set<Long> effects = Sets.newHashSet();
         for (int i = 0; i < event; i++) {
           effects.add(10L * (i + 1));
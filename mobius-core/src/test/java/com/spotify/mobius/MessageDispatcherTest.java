@@ -25,7 +25,10 @@ import static org.assertj.core.data.Index.atIndex;
 import static org.hamcrest.Matchers.containsString;
 
 import com.spotify.mobius.runners.WorkRunners;
+import com.spotify.mobius.test.TestWorkRunner;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
@@ -89,4 +92,103 @@ public class MessageDispatcherTest {
     // it is ignored
     assertThat(messages).isEmpty();
   }
+
+  @Test
+  public void shouldPostAllMessagesAsOneTask() throws Exception {
+    CountingWorkRunner runner = new CountingWorkRunner();
+    MessageDispatcher<String> messageDispatcher = new MessageDispatcher<>(runner, messages::add);
+
+    messageDispatcher.acceptAll(Arrays.asList("one", "two", "three"));
+    runner.runAll();
+
+    assertThat(runner.posted).isEqualTo(1);
+    assertThat(messages).containsExactly("one", "two", "three");
+  }
+
+  @Test
+  public void shouldPassAllMessagesToBatchConnectionInOneCall() throws Exception {
+    RecordingBatchConnection connection = new RecordingBatchConnection();
+
+    new MessageDispatcher<>(WorkRunners.immediate(), connection)
+        .acceptAll(Arrays.asList("one", "two"));
+
+    assertThat(connection.batches).containsExactly(Arrays.asList("one", "two"));
+  }
+
+  @Test
+  public void shouldDeliverRemainingMessagesWhenConsumerThrows() throws Exception {
+    TestErrorHandler errorHandler = new TestErrorHandler();
+    MobiusHooks.setErrorHandler(errorHandler);
+
+    new MessageDispatcher<String>(
+            WorkRunners.immediate(),
+            s -> {
+              if (s.equals("bad")) {
+                throw new RuntimeException("boo");
+              }
+              messages.add(s);
+            })
+        .acceptAll(Arrays.asList("one", "bad", "two"));
+
+    assertThat(messages).containsExactly("one", "two");
+    assertThat(errorHandler.handledErrors).hasSize(1);
+  }
+
+  @Test
+  public void shouldIgnoreBatchesAfterDispose() throws Exception {
+    MessageDispatcher<String> messageDispatcher =
+        new MessageDispatcher<>(WorkRunners.singleThread(), messages::add);
+
+    messageDispatcher.dispose();
+    messageDispatcher.acceptAll(Arrays.asList("foo", "bar"));
+
+    assertThat(messages).isEmpty();
+  }
+
+  @Test
+  public void shouldBeSerialForSerialRunners() throws Exception {
+    assertThat(new MessageDispatcher<String>(WorkRunners.immediate(), messages::add).isSerial())
+        .isTrue();
+    assertThat(new MessageDispatcher<String>(WorkRunners.singleThread(), messages::add).isSerial())
+        .isTrue();
+  }
+
+  @Test
+  public void shouldNotBeSerialForMultiThreadedRunners() throws Exception {
+    assertThat(
+            new MessageDispatcher<String>(WorkRunners.fixedThreadPool(2), messages::add)
+                .isSerial())
+        .isFalse();
+  }
+
+  private static class CountingWorkRunner extends TestWorkRunner {
+    int posted;
+
+    @Override
+    public void post(Runnable runnable) {
+      posted++;
+      super.post(runnable);
+    }
+  }
+
+  private static class RecordingBatchConnection implements BatchConnection<String> {
+    final List<List<String>> batches = new ArrayList<>();
+
+    @Override
+    public void accept(String value) {
+      batches.add(Collections.singletonList(value));
+    }
+
+    @Override
+    public void acceptAll(Iterable<? extends String> values) {
+      List<String> batch = new ArrayList<>();
+      for (String value : values) {
+        batch.add(value);
+      }
+      batches.add(batch);
+    }
+
+    @Override
+    public void dispose() {}
+  }
 }
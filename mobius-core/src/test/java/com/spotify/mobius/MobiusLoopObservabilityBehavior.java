@@ -24,8 +24,10 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import com.spotify.mobius.disposables.Disposable;
 import com.spotify.mobius.functions.Consumer;
+import com.spotify.mobius.functions.Function;
 import com.spotify.mobius.runners.ImmediateWorkRunner;
 import com.spotify.mobius.test.RecordingModelObserver;
+import com.spotify.mobius.test.TestWorkRunner;
 import com.spotify.mobius.testdomain.TestEvent;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -33,6 +35,7 @@ import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nonnull;
 import org.junit.Test;
 
@@ -117,6 +120,144 @@ public class MobiusLoopObservabilityBehavior extends MobiusLoopTest {
     assertThat(bad).isEmpty();
   }
 
+  @Test
+  public void shouldOnlyReportMostRecentModelToConflatingObserver() throws Exception {
+    TestWorkRunner observerRunner = new TestWorkRunner();
+    List<String> observed = new ArrayList<>();
+
+    mobiusLoop =
+        MobiusLoop.create(
+            update,
+            startModel,
+            startEffects,
+            effectHandler,
+            eventSource,
+            immediateRunner,
+            immediateRunner);
+
+    mobiusLoop.observe(observed::add, ObservationMode.CONFLATE, observerRunner);
+    observerRunner.runAll();
+
+    mobiusLoop.dispatchEvent(new TestEvent("first"));
+    mobiusLoop.dispatchEvent(new TestEvent("second"));
+    mobiusLoop.dispatchEvent(new TestEvent("third"));
+    observerRunner.runAll();
+
+    assertThat(observed).containsExactly("init", "init->first->second->third");
+  }
+
+  @Test
+  public void shouldReportAllModelsToObserverOnRunner() throws Exception {
+    TestWorkRunner observerRunner = new TestWorkRunner();
+    List<String> observed = new ArrayList<>();
+
+    mobiusLoop =
+        MobiusLoop.create(
+            update,
+            startModel,
+            startEffects,
+            effectHandler,
+            eventSource,
+            immediateRunner,
+            immediateRunner);
+
+    mobiusLoop.observe(observed::add, ObservationMode.ALL, observerRunner);
+
+    mobiusLoop.dispatchEvent(new TestEvent("first"));
+    mobiusLoop.dispatchEvent(new TestEvent("second"));
+    observerRunner.runAll();
+
+    assertThat(observed).containsExactly("init", "init->first", "init->first->second");
+  }
+
+  @Test
+  public void shouldNotReportModelsToConflatingObserverAfterUnregistering() throws Exception {
+    TestWorkRunner observerRunner = new TestWorkRunner();
+    List<String> observed = new ArrayList<>();
+
+    mobiusLoop =
+        MobiusLoop.create(
+            update,
+            startModel,
+            startEffects,
+            effectHandler,
+            eventSource,
+            immediateRunner,
+            immediateRunner);
+
+    Disposable unregister =
+        mobiusLoop.observe(observed::add, ObservationMode.CONFLATE, observerRunner);
+    mobiusLoop.dispatchEvent(new TestEvent("first"));
+    unregister.dispose();
+    observerRunner.runAll();
+
+    assertThat(observed).isEmpty();
+  }
+
+  @Test
+  public void shouldOnlyReportChangedSelectedValues() throws Exception {
+    List<Integer> observed = new ArrayList<>();
+
+    mobiusLoop.observe(String::length, observed::add);
+
+    mobiusLoop.dispatchEvent(new TestEvent("a"));
+    mobiusLoop.dispatchEvent(new TestEvent(""));
+    mobiusLoop.dispatchEvent(new TestEvent("b"));
+
+    // "init", "init->a", "init->a->", "init->a->->b"
+    assertThat(observed).containsExactly(4, 7, 9, 12);
+  }
+
+  @Test
+  public void shouldNotReportSelectedValueWhenSelectionIsUnchanged() throws Exception {
+    List<Boolean> observed = new ArrayList<>();
+
+    mobiusLoop.observe(model -> model.contains("second"), observed::add);
+
+    mobiusLoop.dispatchEvent(new TestEvent("first"));
+    mobiusLoop.dispatchEvent(new TestEvent("second"));
+    mobiusLoop.dispatchEvent(new TestEvent("third"));
+
+    assertThat(observed).containsExactly(false, true);
+  }
+
+  @Test
+  public void shouldApplySharedSelectorOncePerModel() throws Exception {
+    AtomicInteger selections = new AtomicInteger();
+    Function<String, Integer> selector =
+        model -> {
+          selections.incrementAndGet();
+          return model.length();
+        };
+    List<Integer> observed1 = new ArrayList<>();
+    List<Integer> observed2 = new ArrayList<>();
+
+    mobiusLoop.observe(selector, observed1::add);
+    mobiusLoop.observe(selector, observed2::add);
+    mobiusLoop.dispatchEvent(new TestEvent("first"));
+
+    assertThat(observed1).containsExactly(4, 11);
+    assertThat(observed2).containsExactly(4, 11);
+    assertThat(selections.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldNotReportSelectedValuesAfterUnregistering() throws Exception {
+    Function<String, Integer> selector = String::length;
+    List<Integer> observed1 = new ArrayList<>();
+    List<Integer> observed2 = new ArrayList<>();
+
+    Disposable unregister1 = mobiusLoop.observe(selector, observed1::add);
+    Disposable unregister2 = mobiusLoop.observe(selector, observed2::add);
+    unregister1.dispose();
+    mobiusLoop.dispatchEvent(new TestEvent("first"));
+    unregister2.dispose();
+    mobiusLoop.dispatchEvent(new TestEvent("second"));
+
+    assertThat(observed1).containsExactly(4);
+    assertThat(observed2).containsExactly(4, 11);
+  }
+
   private static class NoopConnectable implements Connectable<Integer, Integer> {
 
     @Nonnull
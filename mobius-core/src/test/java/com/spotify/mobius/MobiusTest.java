@@ -32,13 +32,17 @@ import com.spotify.mobius.runners.ImmediateWorkRunner;
 import com.spotify.mobius.runners.WorkRunner;
 import com.spotify.mobius.runners.WorkRunners;
 import com.spotify.mobius.test.SimpleConnection;
+import com.spotify.mobius.test.TestWorkRunner;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nonnull;
 import org.junit.Test;
@@ -110,6 +114,326 @@ public class MobiusTest {
     await().atMost(Duration.ofSeconds(1)).until(() -> runner.runCounter.get() == 1);
   }
 
+  @Test
+  public void shouldPermitBatchingEvents() throws Exception {
+    loop = Mobius.loop(UPDATE, HANDLER).eventBatchSize(16).startFrom(MY_MODEL);
+
+    loop.dispatchEvent(1);
+    loop.dispatchEvent(3);
+    loop.dispatchEvent(5);
+
+    await().atMost(Duration.ofSeconds(1)).until(() -> loop.getMostRecentModel(), is("start135"));
+  }
+
+  @Test
+  public void shouldRejectNonPositiveEventBatchSize() throws Exception {
+    assertThatThrownBy(() -> Mobius.loop(UPDATE, HANDLER).eventBatchSize(0))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void shouldPermitSkippingEqualModels() throws Exception {
+    List<String> models = new ArrayList<>();
+
+    loop =
+        Mobius.loop((String model, Integer event) -> Next.<String, Boolean>next(model), HANDLER)
+            .eventRunner(WorkRunners::immediate)
+            .effectRunner(WorkRunners::immediate)
+            .distinctModels(ModelEquality.EQUALS)
+            .startFrom(MY_MODEL);
+    loop.observe(models::add);
+
+    loop.dispatchEvent(1);
+    loop.dispatchEvent(2);
+
+    assertThat(models, contains(MY_MODEL));
+  }
+
+  @Test
+  public void shouldNotReportSkippedModelsAsChanged() throws Exception {
+    CountingMetrics metrics = new CountingMetrics();
+
+    loop =
+        Mobius.loop(
+                (String model, Integer event) ->
+                    Next.<String, Boolean>next(event % 2 == 0 ? model : model + event),
+                HANDLER)
+            .eventRunner(WorkRunners::immediate)
+            .effectRunner(WorkRunners::immediate)
+            .distinctModels(ModelEquality.EQUALS)
+            .metrics(metrics)
+            .startFrom(MY_MODEL);
+
+    loop.dispatchEvent(1);
+    loop.dispatchEvent(2);
+    loop.dispatchEvent(3);
+
+    assertThat(metrics.updates.get(), is(3));
+    assertThat(metrics.models.get(), is(2));
+  }
+
+  @Test
+  public void shouldPassAllEffectsFromOneUpdateToBatchConnection() throws Exception {
+    List<Integer> batchSizes = new ArrayList<>();
+    Connectable<Boolean, Integer> batchHandler =
+        output ->
+            new BatchConnection<Boolean>() {
+              @Override
+              public void accept(Boolean value) {
+                batchSizes.add(1);
+              }
+
+              @Override
+              public void acceptAll(Iterable<? extends Boolean> values) {
+                int size = 0;
+                for (Boolean value : values) {
+                  size++;
+                }
+                batchSizes.add(size);
+              }
+
+              @Override
+              public void dispose() {}
+            };
+
+    loop =
+        Mobius.loop(
+                (String model, Integer event) -> Next.next(model + event, effects(true, false)),
+                batchHandler)
+            .eventRunner(WorkRunners::immediate)
+            .effectRunner(WorkRunners::immediate)
+            .startFrom(MY_MODEL);
+
+    loop.dispatchEvent(1);
+    loop.dispatchEvent(2);
+
+    assertThat(batchSizes, contains(2, 2));
+  }
+
+  @Test
+  public void shouldRunEffectsFromOneUpdateConcurrentlyOnMultiThreadedRunner() throws Exception {
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    List<Boolean> overlapped = new CopyOnWriteArrayList<>();
+    Connectable<Boolean, Integer> blockingHandler =
+        output ->
+            new SimpleConnection<Boolean>() {
+              @Override
+              public void accept(Boolean value) {
+                bothStarted.countDown();
+                try {
+                  // only returns true if the other effect is running at the same time
+                  overlapped.add(bothStarted.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                  throw new RuntimeException(e);
+                }
+              }
+            };
+
+    loop =
+        Mobius.loop(
+                (String model, Integer event) -> Next.next(model + event, effects(true, false)),
+                blockingHandler)
+            .eventRunner(WorkRunners::immediate)
+            .effectRunner(WorkRunners::cachedThreadPool)
+            .startFrom(MY_MODEL);
+
+    loop.dispatchEvent(1);
+
+    await().atMost(Duration.ofSeconds(10)).until(() -> overlapped.size() == 2);
+    assertThat(overlapped, contains(true, true));
+  }
+
+  @Test
+  public void shouldPermitReportingMetrics() throws Exception {
+    CountingMetrics metrics = new CountingMetrics();
+
+    loop =
+        Mobius.loop(UPDATE, HANDLER)
+            .eventRunner(WorkRunners::immediate)
+            .effectRunner(WorkRunners::immediate)
+            .metrics(metrics)
+            .startFrom(MY_MODEL);
+
+    loop.dispatchEvent(1);
+    loop.dispatchEvent(2);
+
+    // event 2 leads to an effect that dispatches event 3
+    assertThat(loop.getMostRecentModel(), is("start123"));
+    assertThat(metrics.eventsDispatched.get(), is(3));
+    assertThat(metrics.eventsDequeued.get(), is(3));
+    assertThat(metrics.updates.get(), is(3));
+    assertThat(metrics.models.get(), is(3));
+    assertThat(metrics.effectsDispatched.get(), is(3));
+    assertThat(metrics.effectsDequeued.get(), is(3));
+    assertThat(metrics.pendingEvents.value(), is(0));
+    assertThat(metrics.pendingEffects.value(), is(0));
+
+    loop.dispose();
+
+    assertThat(metrics.disposed.get(), is(1));
+  }
+
+  @Test
+  public void shouldPermitBoundingEventQueue() throws Exception {
+    TestWorkRunner eventRunner = new TestWorkRunner();
+    CountingMetrics metrics = new CountingMetrics();
+
+    loop =
+        Mobius.loop(UPDATE, HANDLER)
+            .eventRunner(() -> eventRunner)
+            .effectRunner(WorkRunners::immediate)
+            .boundedEventQueue(2, OverflowPolicy.DROP_NEWEST)
+            .metrics(metrics)
+            .startFrom(MY_MODEL);
+
+    loop.dispatchEvent(1);
+    loop.dispatchEvent(3);
+    loop.dispatchEvent(5);
+    loop.dispatchEvent(7);
+    eventRunner.runAll();
+
+    assertThat(loop.getMostRecentModel(), is("start13"));
+    assertThat(loop.getDroppedEventCount(), is(2L));
+    assertThat(metrics.eventsDropped.get(), is(2));
+    assertThat(metrics.pendingEvents.value(), is(0));
+  }
+
+  @Test
+  public void shouldPermitPrioritisingEvents() throws Exception {
+    TestWorkRunner eventRunner = new TestWorkRunner();
+
+    loop =
+        Mobius.loop(UPDATE, HANDLER)
+            .eventRunner(() -> eventRunner)
+            .effectRunner(WorkRunners::immediate)
+            .eventPriority(event -> event % 2 == 0 ? EventPriority.HIGH : EventPriority.NORMAL)
+            .startFrom(MY_MODEL);
+
+    loop.dispatchEvent(1);
+    loop.dispatchEvent(2);
+    loop.dispatchEvent(3);
+    loop.dispatchEvent(4);
+    eventRunner.runAll();
+
+    assertThat(loop.getMostRecentModel(), is("start2413"));
+  }
+
+  @Test
+  public void shouldNotAllowCombiningEventPriorityWithBoundedQueue() throws Exception {
+    MobiusLoop.Builder<String, Integer, Boolean> prioritised =
+        Mobius.loop(UPDATE, HANDLER).eventPriority(event -> EventPriority.NORMAL);
+    MobiusLoop.Builder<String, Integer, Boolean> bounded =
+        Mobius.loop(UPDATE, HANDLER).boundedEventQueue(2, OverflowPolicy.DROP_NEWEST);
+
+    assertThatThrownBy(() -> prioritised.boundedEventQueue(2, OverflowPolicy.DROP_NEWEST))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> bounded.eventPriority(event -> EventPriority.NORMAL))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void shouldNotAllowCombiningEventPriorityWithCoalescing() throws Exception {
+    MobiusLoop.Builder<String, Integer, Boolean> prioritised =
+        Mobius.loop(UPDATE, HANDLER).eventPriority(event -> EventPriority.NORMAL);
+    MobiusLoop.Builder<String, Integer, Boolean> coalescing =
+        Mobius.loop(UPDATE, HANDLER).coalesceEvents(Integer.class, event -> event % 2);
+
+    assertThatThrownBy(() -> prioritised.coalesceEvents(Integer.class, event -> event % 2))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> coalescing.eventPriority(event -> EventPriority.NORMAL))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void shouldPermitCoalescingWaitingEvents() throws Exception {
+    TestWorkRunner eventRunner = new TestWorkRunner();
+    CountingMetrics metrics = new CountingMetrics();
+
+    loop =
+        Mobius.loop(UPDATE, HANDLER)
+            .eventRunner(() -> eventRunner)
+            .effectRunner(WorkRunners::immediate)
+            .coalesceEvents(Integer.class, event -> event % 2)
+            .metrics(metrics)
+            .startFrom(MY_MODEL);
+
+    loop.dispatchEvent(1);
+    loop.dispatchEvent(2);
+    loop.dispatchEvent(3);
+    loop.dispatchEvent(4);
+
+    assertThat(metrics.pendingEvents.value(), is(2));
+
+    eventRunner.runAll();
+
+    assertThat(loop.getMostRecentModel(), is("start34"));
+    assertThat(metrics.pendingEvents.value(), is(0));
+  }
+
+  @Test
+  public void shouldPermitMergingWaitingEvents() throws Exception {
+    TestWorkRunner eventRunner = new TestWorkRunner();
+
+    loop =
+        Mobius.loop(UPDATE, HANDLER)
+            .eventRunner(() -> eventRunner)
+            .effectRunner(WorkRunners::immediate)
+            .coalesceEvents(Integer.class, event -> "all", (waiting, event) -> waiting + event)
+            .startFrom(MY_MODEL);
+
+    loop.dispatchEvent(1);
+    loop.dispatchEvent(2);
+    loop.dispatchEvent(3);
+    eventRunner.runAll();
+
+    assertThat(loop.getMostRecentModel(), is("start6"));
+  }
+
+  @Test
+  public void shouldPermitCoalescingEventsInBoundedQueue() throws Exception {
+    TestWorkRunner eventRunner = new TestWorkRunner();
+
+    loop =
+        Mobius.loop(UPDATE, HANDLER)
+            .eventRunner(() -> eventRunner)
+            .effectRunner(WorkRunners::immediate)
+            .boundedEventQueue(2, OverflowPolicy.FAIL)
+            .coalesceEvents(Integer.class, event -> event % 10)
+            .startFrom(MY_MODEL);
+
+    loop.dispatchEvent(1);
+    loop.dispatchEvent(3);
+    loop.dispatchEvent(11);
+
+    assertThatThrownBy(() -> loop.dispatchEvent(5)).isInstanceOf(EventQueueFullException.class);
+
+    eventRunner.runAll();
+
+    assertThat(loop.getMostRecentModel(), is("start113"));
+    assertThat(loop.getDroppedEventCount(), is(0L));
+  }
+
+  @Test
+  public void shouldThrowWhenBoundedEventQueueIsFull() throws Exception {
+    TestWorkRunner eventRunner = new TestWorkRunner();
+
+    loop =
+        Mobius.loop(UPDATE, HANDLER)
+            .eventRunner(() -> eventRunner)
+            .boundedEventQueue(1, OverflowPolicy.FAIL)
+            .startFrom(MY_MODEL);
+
+    loop.dispatchEvent(1);
+
+    assertThatThrownBy(() -> loop.dispatchEvent(3)).isInstanceOf(EventQueueFullException.class);
+  }
+
+  @Test
+  public void shouldRejectNonPositiveEventQueueCapacity() throws Exception {
+    assertThatThrownBy(() -> Mobius.loop(UPDATE, HANDLER).boundedEventQueue(0, OverflowPolicy.FAIL))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
   @Test
   public void shouldPermitUsingEventSource() throws Exception {
     TestEventSource eventSource = new TestEventSource();
@@ -304,4 +628,63 @@ public class MobiusTest {
       history.add(String.format("update error: %s, %s, %s", model, event, exception));
     }
   }
+
+  private static class CountingMetrics implements MobiusLoop.Metrics {
+    final AtomicInteger disposed = new AtomicInteger();
+    final AtomicInteger eventsDispatched = new AtomicInteger();
+    final AtomicInteger eventsDropped = new AtomicInteger();
+    final AtomicInteger eventsDequeued = new AtomicInteger();
+    final AtomicInteger updates = new AtomicInteger();
+    final AtomicInteger models = new AtomicInteger();
+    final AtomicInteger effectsDispatched = new AtomicInteger();
+    final AtomicInteger effectsDequeued = new AtomicInteger();
+    volatile Gauge pendingEvents;
+    volatile Gauge pendingEffects;
+
+    @Override
+    public void loopStarted(Gauge pendingEvents, Gauge pendingEffects) {
+      this.pendingEvents = pendingEvents;
+      this.pendingEffects = pendingEffects;
+    }
+
+    @Override
+    public void loopDisposed(Gauge pendingEvents, Gauge pendingEffects) {
+      disposed.incrementAndGet();
+    }
+
+    @Override
+    public void eventDispatched() {
+      eventsDispatched.incrementAndGet();
+    }
+
+    @Override
+    public void eventDropped() {
+      eventsDropped.incrementAndGet();
+    }
+
+    @Override
+    public void eventDequeued(long queueTimeNanos) {
+      eventsDequeued.incrementAndGet();
+    }
+
+    @Override
+    public void updateCompleted(long durationNanos) {
+      updates.incrementAndGet();
+    }
+
+    @Override
+    public void modelChanged() {
+      models.incrementAndGet();
+    }
+
+    @Override
+    public void effectDispatched() {
+      effectsDispatched.incrementAndGet();
+    }
+
+    @Override
+    public void effectDequeued(long queueTimeNanos) {
+      effectsDequeued.incrementAndGet();
+    }
+  }
 }
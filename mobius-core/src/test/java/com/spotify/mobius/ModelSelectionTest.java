@@ -0,0 +1,135 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.spotify.mobius.functions.Function;
+import com.spotify.mobius.internal_util.FireAtLeastOnceObserver;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ModelSelectionTest {
+  List<Integer> observed;
+  int selectorInvocations;
+
+  ModelSelection<String, Integer> selection;
+
+  @Before
+  public void setUp() throws Exception {
+    observed = new ArrayList<>();
+    selectorInvocations = 0;
+
+    selection =
+        new ModelSelection<>(
+            new Function<String, Integer>() {
+              @Override
+              public Integer apply(String model) {
+                selectorInvocations++;
+                return model.length();
+              }
+            });
+  }
+
+  @Test
+  public void shouldForwardSelectedValues() {
+    selection.add(observed::add);
+
+    selection.accept("a");
+    selection.accept("bb");
+
+    assertThat(observed).containsExactly(1, 2);
+  }
+
+  @Test
+  public void shouldNotForwardUnchangedSelectedValues() {
+    selection.add(observed::add);
+
+    selection.accept("a");
+    selection.accept("b");
+    selection.accept("cc");
+    selection.accept("dd");
+
+    assertThat(observed).containsExactly(1, 2);
+  }
+
+  @Test
+  public void shouldApplySelectorOncePerModelForAllObservers() {
+    List<Integer> observed2 = new ArrayList<>();
+    selection.add(observed::add);
+    selection.add(observed2::add);
+
+    selection.accept("a");
+    selection.accept("bb");
+
+    assertThat(observed).containsExactly(1, 2);
+    assertThat(observed2).containsExactly(1, 2);
+    assertThat(selectorInvocations).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldForwardCurrentValueToNewObserver() {
+    selection.add(value -> {});
+    selection.accept("abc");
+
+    selection.acceptIfFirst(selection.add(observed::add), "ignored");
+
+    assertThat(observed).containsExactly(3);
+  }
+
+  @Test
+  public void shouldSelectFromCurrentModelIfNoModelHasBeenAccepted() {
+    selection.acceptIfFirst(selection.add(observed::add), "abcd");
+
+    assertThat(observed).containsExactly(4);
+  }
+
+  @Test
+  public void shouldNotForwardCurrentValueAfterNewerValue() {
+    FireAtLeastOnceObserver<Integer> added = selection.add(observed::add);
+    selection.accept("a");
+
+    selection.acceptIfFirst(added, "bb");
+
+    assertThat(observed).containsExactly(1);
+  }
+
+  @Test
+  public void shouldNotForwardValuesToRemovedObserver() {
+    FireAtLeastOnceObserver<Integer> added = selection.add(observed::add);
+    selection.accept("a");
+
+    selection.remove(added);
+    selection.accept("bb");
+
+    assertThat(observed).containsExactly(1);
+    assertThat(selection.hasObservers()).isFalse();
+  }
+
+  @Test
+  public void shouldRejectNullSelectedValues() {
+    ModelSelection<String, Integer> nullSelection = new ModelSelection<>(model -> null);
+
+    assertThatThrownBy(() -> nullSelection.accept("a")).isInstanceOf(NullPointerException.class);
+  }
+}
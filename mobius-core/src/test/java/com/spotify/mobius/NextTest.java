@@ -24,9 +24,12 @@ import static com.spotify.mobius.Next.dispatch;
 import static com.spotify.mobius.Next.noChange;
 import static com.spotify.mobius.internal_util.ImmutableUtil.setOf;
 import static com.spotify.mobius.internal_util.ImmutableUtil.unionSets;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -52,6 +55,45 @@ public class NextTest {
     assertThat(next.effects(), equalTo((Set) Sets.newHashSet("in")));
   }
 
+  @Test
+  public void shouldNotBeSensitiveToMutationOfEffectsSet() throws Exception {
+    Set<String> inputs = effects("in");
+
+    Next<String, String> next = Next.next("#", inputs);
+
+    inputs.add("don't want to see this one");
+    inputs.remove("in");
+
+    assertThat(next.effects(), equalTo((Set) Sets.newHashSet("in")));
+  }
+
+  @Test
+  public void shouldNotAllowModifyingEffects() throws Exception {
+    Next<String, String> next = Next.next("#", effects("a", "b"));
+
+    assertThatThrownBy(() -> next.effects().add("c"))
+        .isInstanceOf(UnsupportedOperationException.class);
+    assertThatThrownBy(() -> next.effects().clear())
+        .isInstanceOf(UnsupportedOperationException.class);
+  }
+
+  @Test
+  public void shouldReuseImmutableEffectSets() throws Exception {
+    Next<String, String> next = Next.next("#", effects("a", "b"));
+
+    assertThat(Next.next("m", next.effects()).effects(), sameInstance(next.effects()));
+  }
+
+  @Test
+  public void noChangeShouldBeSharedInstance() throws Exception {
+    assertSame(Next.<String, String>noChange(), Next.<Integer, Long>noChange());
+  }
+
+  @Test
+  public void dispatchWithoutEffectsShouldBeNoChange() throws Exception {
+    assertSame(noChange(), dispatch(Collections.<String>emptySet()));
+  }
+
   @Test
   public void shouldNotCareAboutEffectOrder() throws Exception {
     Next<String, String> original = Next.next("model", effects("e1", "e2"));
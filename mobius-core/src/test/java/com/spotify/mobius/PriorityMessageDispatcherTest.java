@@ -0,0 +1,163 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.spotify.mobius.functions.Function;
+import com.spotify.mobius.test.TestWorkRunner;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PriorityMessageDispatcherTest {
+
+  // messages starting with "h" are high priority, "l" low priority, and anything else normal
+  private static final Function<String, EventPriority> CLASSIFIER =
+      message ->
+          message.startsWith("h")
+              ? EventPriority.HIGH
+              : message.startsWith("l") ? EventPriority.LOW : EventPriority.NORMAL;
+
+  private List<String> messages;
+  private CountingWorkRunner runner;
+
+  @Before
+  public void setUp() throws Exception {
+    messages = new ArrayList<>();
+    runner = new CountingWorkRunner();
+  }
+
+  @Test
+  public void shouldDeliverHigherPriorityMessagesFirst() throws Exception {
+    PriorityMessageDispatcher<String> dispatcher =
+        new PriorityMessageDispatcher<>(runner, messages::add, 10, CLASSIFIER);
+
+    dispatcher.accept("l1");
+    dispatcher.accept("n1");
+    dispatcher.accept("h1");
+    runner.runAll();
+
+    assertThat(messages).containsExactly("h1", "n1", "l1");
+  }
+
+  @Test
+  public void shouldPreserveOrderWithinPriority() throws Exception {
+    PriorityMessageDispatcher<String> dispatcher =
+        new PriorityMessageDispatcher<>(runner, messages::add, 10, CLASSIFIER);
+
+    dispatcher.accept("n1");
+    dispatcher.accept("h1");
+    dispatcher.accept("n2");
+    dispatcher.accept("h2");
+    runner.runAll();
+
+    assertThat(messages).containsExactly("h1", "h2", "n1", "n2");
+  }
+
+  @Test
+  public void shouldNotStarveLowerPriorities() throws Exception {
+    PriorityMessageDispatcher<String> dispatcher =
+        new PriorityMessageDispatcher<>(runner, messages::add, 100, CLASSIFIER, 2);
+
+    dispatcher.accept("l1");
+    dispatcher.accept("l2");
+    for (int i = 1; i <= 5; i++) {
+      dispatcher.accept("h" + i);
+    }
+    runner.runAll();
+
+    assertThat(messages).containsExactly("h1", "h2", "l1", "h3", "h4", "l2", "h5");
+  }
+
+  @Test
+  public void shouldPostOneTaskForAllQueuedMessages() throws Exception {
+    PriorityMessageDispatcher<String> dispatcher =
+        new PriorityMessageDispatcher<>(runner, messages::add, 10, CLASSIFIER);
+
+    dispatcher.accept("l1");
+    dispatcher.accept("n1");
+    dispatcher.accept("h1");
+
+    assertThat(runner.posted).isEqualTo(1);
+    assertThat(dispatcher.size()).isEqualTo(3);
+  }
+
+  @Test
+  public void shouldYieldRunnerWhenBatchIsFull() throws Exception {
+    PriorityMessageDispatcher<String> dispatcher =
+        new PriorityMessageDispatcher<>(runner, messages::add, 2, CLASSIFIER);
+
+    for (int i = 0; i < 5; i++) {
+      dispatcher.accept("n" + i);
+    }
+    runner.runAll();
+
+    assertThat(messages).hasSize(5);
+    assertThat(runner.posted).isEqualTo(3);
+  }
+
+  @Test
+  public void shouldDiscardQueuedMessagesOnDispose() throws Exception {
+    PriorityMessageDispatcher<String> dispatcher =
+        new PriorityMessageDispatcher<>(runner, messages::add, 10, CLASSIFIER);
+
+    dispatcher.accept("h1");
+    dispatcher.accept("n1");
+    dispatcher.dispose();
+    runner.runAll();
+
+    assertThat(messages).isEmpty();
+    assertThat(dispatcher.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldNotPostAgainWhenBatchEmptiesQueue() throws Exception {
+    PriorityMessageDispatcher<String> dispatcher =
+        new PriorityMessageDispatcher<>(runner, messages::add, 2, CLASSIFIER);
+
+    for (int i = 0; i < 4; i++) {
+      dispatcher.accept("n" + i);
+    }
+    runner.runAll();
+
+    assertThat(messages).hasSize(4);
+    assertThat(runner.posted).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldRejectNonPositiveMaxBypasses() throws Exception {
+    assertThatThrownBy(
+            () -> new PriorityMessageDispatcher<>(runner, messages::add, 10, CLASSIFIER, 0))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static class CountingWorkRunner extends TestWorkRunner {
+    int posted;
+
+    @Override
+    public void post(Runnable runnable) {
+      posted++;
+      super.post(runnable);
+    }
+  }
+}
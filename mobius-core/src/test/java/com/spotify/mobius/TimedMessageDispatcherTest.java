@@ -0,0 +1,113 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.spotify.mobius.test.TestWorkRunner;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimedMessageDispatcherTest {
+
+  private List<String> messages;
+  private TestWorkRunner runner;
+  private RecordingListener listener;
+
+  @Before
+  public void setUp() throws Exception {
+    messages = new ArrayList<>();
+    runner = new TestWorkRunner();
+    listener = new RecordingListener();
+  }
+
+  @Test
+  public void shouldForwardMessagesToConsumerInOrder() throws Exception {
+    TimedMessageDispatcher<String> dispatcher =
+        new TimedMessageDispatcher<>(runner, messages::add, MobiusLoop.NO_EVENT_BATCHING, listener);
+
+    dispatcher.accept("one");
+    dispatcher.accept("two");
+    runner.runAll();
+
+    assertThat(messages).containsExactly("one", "two");
+  }
+
+  @Test
+  public void shouldCountPendingMessages() throws Exception {
+    TimedMessageDispatcher<String> dispatcher =
+        new TimedMessageDispatcher<>(runner, messages::add, 16, listener);
+
+    dispatcher.accept("one");
+    dispatcher.accept("two");
+
+    assertThat(dispatcher.pendingMessages()).isEqualTo(2);
+
+    runner.runAll();
+
+    assertThat(dispatcher.pendingMessages()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldReportMessagesToListener() throws Exception {
+    TimedMessageDispatcher<String> dispatcher =
+        new TimedMessageDispatcher<>(runner, messages::add, MobiusLoop.NO_EVENT_BATCHING, listener);
+
+    dispatcher.accept("one");
+    dispatcher.accept("two");
+
+    assertThat(listener.accepted).isEqualTo(2);
+    assertThat(listener.queueTimes).isEmpty();
+
+    runner.runAll();
+
+    assertThat(listener.queueTimes).hasSize(2).allMatch(time -> time >= 0);
+  }
+
+  @Test
+  public void shouldDiscardMessagesAfterDispose() throws Exception {
+    TimedMessageDispatcher<String> dispatcher =
+        new TimedMessageDispatcher<>(runner, messages::add, MobiusLoop.NO_EVENT_BATCHING, listener);
+
+    dispatcher.dispose();
+    dispatcher.accept("one");
+
+    assertThat(dispatcher.pendingMessages()).isEqualTo(0);
+    assertThat(listener.accepted).isEqualTo(0);
+    assertThat(runner.isDisposed()).isTrue();
+  }
+
+  private static class RecordingListener implements TimedMessageDispatcher.Listener {
+    int accepted;
+    final List<Long> queueTimes = new ArrayList<>();
+
+    @Override
+    public void accepted() {
+      accepted++;
+    }
+
+    @Override
+    public void delivering(long queueTimeNanos) {
+      queueTimes.add(queueTimeNanos);
+    }
+  }
+}
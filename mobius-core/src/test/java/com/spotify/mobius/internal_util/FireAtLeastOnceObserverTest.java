@@ -17,7 +17,7 @@
  * limitations under the License.
  * -/-/-
  */
-package com.spotify.mobius;
+package com.spotify.mobius.internal_util;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
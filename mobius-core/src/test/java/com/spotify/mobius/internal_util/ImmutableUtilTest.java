@@ -19,12 +19,19 @@
  */
 package com.spotify.mobius.internal_util;
 
+import static com.spotify.mobius.internal_util.ImmutableUtil.immutableSet;
 import static com.spotify.mobius.internal_util.ImmutableUtil.setOf;
 import static com.spotify.mobius.internal_util.ImmutableUtil.unionSets;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 import com.google.common.collect.Sets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 import org.junit.Test;
 
 public class ImmutableUtilTest {
@@ -34,4 +41,39 @@ public class ImmutableUtilTest {
         unionSets(Sets.newHashSet("e1", "e2"), setOf("e3", "e4")),
         equalTo(setOf("e1", "e2", "e3", "e4")));
   }
+
+  @Test
+  public void shouldReturnKnownImmutableSetsAsIs() throws Exception {
+    Set<String> set = setOf("e1", "e2");
+    Set<String> singleton = Collections.singleton("e1");
+    Set<String> empty = Collections.emptySet();
+
+    assertThat(immutableSet(set), sameInstance(set));
+    assertThat(immutableSet(singleton), sameInstance(singleton));
+    assertThat(immutableSet(empty), sameInstance(empty));
+  }
+
+  @Test
+  public void shouldCopyMutableSets() throws Exception {
+    Set<String> set = new HashSet<>(Sets.newHashSet("e1", "e2"));
+
+    Set<String> copy = immutableSet(set);
+    set.add("e3");
+
+    assertThat(copy, not(sameInstance(set)));
+    assertThat(copy, equalTo(Sets.newHashSet("e1", "e2")));
+  }
+
+  @Test
+  public void shouldRejectNullsInMutableSets() throws Exception {
+    Set<String> set = new HashSet<>(Sets.newHashSet("e1", null));
+
+    assertThatThrownBy(() -> immutableSet(set)).isInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  public void shouldRejectSingletonNull() throws Exception {
+    assertThatThrownBy(() -> immutableSet(Collections.singleton(null)))
+        .isInstanceOf(NullPointerException.class);
+  }
 }
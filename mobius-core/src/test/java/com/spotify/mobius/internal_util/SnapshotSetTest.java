@@ -0,0 +1,115 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.internal_util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Iterator;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SnapshotSetTest {
+
+  private SnapshotSet<String> set;
+
+  @Before
+  public void setUp() throws Exception {
+    set = new SnapshotSet<>(4);
+    set.add("a");
+    set.add("b");
+    set.add("c");
+  }
+
+  @Test
+  public void snapshotShouldContainCurrentElements() throws Exception {
+    assertThat(set.snapshot()).containsExactlyInAnyOrder("a", "b", "c");
+  }
+
+  @Test
+  public void snapshotShouldBeReusedUntilModified() throws Exception {
+    Set<String> first = set.snapshot();
+
+    assertThat(set.snapshot()).isSameAs(first);
+
+    set.add("d");
+
+    assertThat(set.snapshot()).isNotSameAs(first);
+  }
+
+  @Test
+  public void snapshotShouldNotSeeLaterAdditions() throws Exception {
+    Set<String> snapshot = set.snapshot();
+
+    set.add("d");
+
+    assertThat(snapshot).containsExactlyInAnyOrder("a", "b", "c");
+    assertThat(set).containsExactlyInAnyOrder("a", "b", "c", "d");
+  }
+
+  @Test
+  public void snapshotShouldNotSeeLaterRemovals() throws Exception {
+    Set<String> snapshot = set.snapshot();
+
+    set.remove("a");
+    set.clear();
+
+    assertThat(snapshot).containsExactlyInAnyOrder("a", "b", "c");
+    assertThat(set).isEmpty();
+  }
+
+  @Test
+  public void snapshotShouldNotSeeRemovalsThroughIterator() throws Exception {
+    Iterator<String> iterator = set.iterator();
+    Set<String> snapshot = set.snapshot();
+
+    while (iterator.hasNext()) {
+      iterator.next();
+      iterator.remove();
+    }
+
+    assertThat(snapshot).containsExactlyInAnyOrder("a", "b", "c");
+    assertThat(set).isEmpty();
+  }
+
+  @Test
+  public void shouldSupportIteratorRemovalWithoutSnapshot() throws Exception {
+    Iterator<String> iterator = set.iterator();
+    String removed = iterator.next();
+    iterator.remove();
+
+    assertThat(set).hasSize(2).doesNotContain(removed);
+  }
+
+  @Test
+  public void snapshotShouldBeImmutable() throws Exception {
+    Set<String> snapshot = set.snapshot();
+
+    assertThatThrownBy(() -> snapshot.add("d")).isInstanceOf(UnsupportedOperationException.class);
+    assertThatThrownBy(() -> snapshot.iterator().remove())
+        .isInstanceOf(UnsupportedOperationException.class);
+  }
+
+  @Test
+  public void shouldRejectNulls() throws Exception {
+    assertThatThrownBy(() -> set.add(null)).isInstanceOf(NullPointerException.class);
+  }
+}
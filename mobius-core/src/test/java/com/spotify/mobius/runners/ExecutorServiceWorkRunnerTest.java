@@ -20,18 +20,25 @@
 package com.spotify.mobius.runners;
 
 import static java.util.Arrays.asList;
+import static org.awaitility.Awaitility.await;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 
 import com.google.common.util.concurrent.Uninterruptibles;
+import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -170,4 +177,71 @@ public class ExecutorServiceWorkRunnerTest {
     // unterminated task
     underTest.dispose();
   }
+
+  @Test
+  public void shouldDiscardTasksPostedAfterServiceIsShutDownExternally() throws Exception {
+    ExecutorService service = Executors.newSingleThreadExecutor();
+    final List<Integer> output = new CopyOnWriteArrayList<>();
+
+    underTest = new ExecutorServiceWorkRunner(service);
+    service.shutdown();
+
+    // should not throw
+    underTest.post(
+        new Runnable() {
+          @Override
+          public void run() {
+            output.add(1);
+          }
+        });
+
+    assertThat(output, equalTo(Collections.<Integer>emptyList()));
+  }
+
+  @Test
+  public void shouldReportRejectionsFromRunningService() throws Exception {
+    final Semaphore block = new Semaphore(0);
+    ExecutorService service =
+        new ThreadPoolExecutor(
+            1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(1));
+
+    underTest = new ExecutorServiceWorkRunner(service);
+
+    // one running task and one queued task saturate the service
+    underTest.post(block::acquireUninterruptibly);
+    underTest.post(block::acquireUninterruptibly);
+
+    thrown.expect(RejectedExecutionException.class);
+    try {
+      underTest.post(block::acquireUninterruptibly);
+    } finally {
+      block.release(2);
+      underTest.dispose();
+    }
+  }
+
+  @Test
+  public void shouldAcceptPostsFromManyThreadsConcurrently() throws Exception {
+    final int threads = 8;
+    final int postsPerThread = 1000;
+    final AtomicInteger executed = new AtomicInteger();
+    ExecutorService posters = Executors.newFixedThreadPool(threads);
+
+    for (int i = 0; i < threads; i++) {
+      posters.execute(
+          new Runnable() {
+            @Override
+            public void run() {
+              for (int j = 0; j < postsPerThread; j++) {
+                underTest.post(executed::incrementAndGet);
+              }
+            }
+          });
+    }
+
+    posters.shutdown();
+    posters.awaitTermination(5, TimeUnit.SECONDS);
+
+    await().atMost(Duration.ofSeconds(5)).until(() -> executed.get() == threads * postsPerThread);
+  }
 }
@@ -0,0 +1,131 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.runners;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QuotaExecutorWorkRunnerTest {
+
+  private List<Runnable> submitted;
+  private List<Integer> output;
+  private QuotaExecutorWorkRunner underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    submitted = new ArrayList<>();
+    output = new ArrayList<>();
+    Executor executor = submitted::add;
+    underTest = new QuotaExecutorWorkRunner(executor, 2);
+  }
+
+  @Test
+  public void shouldRunOnExecutor() throws Exception {
+    underTest.post(() -> output.add(1));
+
+    assertThat(output).isEmpty();
+
+    runSubmitted();
+
+    assertThat(output).containsExactly(1);
+  }
+
+  @Test
+  public void shouldNotSubmitMoreThanQuota() throws Exception {
+    underTest.post(() -> output.add(1));
+    underTest.post(() -> output.add(2));
+    underTest.post(() -> output.add(3));
+
+    assertThat(submitted).hasSize(2);
+    assertThat(underTest.runningCount()).isEqualTo(2);
+    assertThat(underTest.queuedCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldSubmitQueuedRunnablesAsEarlierOnesComplete() throws Exception {
+    underTest.post(() -> output.add(1));
+    underTest.post(() -> output.add(2));
+    underTest.post(() -> output.add(3));
+
+    runSubmitted();
+
+    assertThat(output).containsExactly(1, 2, 3);
+    assertThat(underTest.runningCount()).isEqualTo(0);
+    assertThat(underTest.queuedCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldReleaseQuotaWhenRunnableThrows() throws Exception {
+    underTest.post(
+        () -> {
+          throw new RuntimeException("expected");
+        });
+    underTest.post(
+        () -> {
+          throw new RuntimeException("expected");
+        });
+    underTest.post(() -> output.add(3));
+
+    runSubmitted();
+
+    assertThat(output).containsExactly(3);
+    assertThat(underTest.runningCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldSkipRunnablesPostedBeforeDispose() throws Exception {
+    underTest.post(() -> output.add(1));
+    underTest.post(() -> output.add(2));
+    underTest.post(() -> output.add(3));
+
+    underTest.dispose();
+    runSubmitted();
+
+    assertThat(output).isEmpty();
+    assertThat(underTest.queuedCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldNotSubmitAfterDispose() throws Exception {
+    underTest.dispose();
+    underTest.post(() -> output.add(1));
+
+    assertThat(submitted).isEmpty();
+  }
+
+  @Test
+  public void shouldRejectNonPositiveQuota() throws Exception {
+    assertThatThrownBy(() -> new QuotaExecutorWorkRunner(submitted::add, 0))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private void runSubmitted() {
+    // running a runnable may submit more, so don't iterate over the list directly
+    while (!submitted.isEmpty()) {
+      submitted.remove(0).run();
+    }
+  }
+}
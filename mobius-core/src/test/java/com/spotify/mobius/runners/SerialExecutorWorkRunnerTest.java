@@ -0,0 +1,161 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.runners;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SerialExecutorWorkRunnerTest {
+
+  private ExecutorService sharedPool;
+  private List<Integer> output;
+
+  @Before
+  public void setUp() throws Exception {
+    sharedPool = Executors.newFixedThreadPool(4);
+    output = new CopyOnWriteArrayList<>();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    sharedPool.shutdownNow();
+  }
+
+  @Test
+  public void shouldRunInPostedOrder() throws Exception {
+    SerialExecutorWorkRunner underTest = new SerialExecutorWorkRunner(sharedPool, 3);
+
+    for (int i = 0; i < 100; i++) {
+      final int value = i;
+      underTest.post(() -> output.add(value));
+    }
+
+    await().atMost(Duration.ofSeconds(1)).until(() -> output.size() == 100);
+
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      expected.add(i);
+    }
+    assertThat(output).isEqualTo(expected);
+  }
+
+  @Test
+  public void shouldNeverRunConcurrently() throws Exception {
+    SerialExecutorWorkRunner underTest = new SerialExecutorWorkRunner(sharedPool, 3);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    AtomicInteger completed = new AtomicInteger();
+
+    for (int i = 0; i < 200; i++) {
+      underTest.post(
+          () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.yield();
+            running.decrementAndGet();
+            completed.incrementAndGet();
+          });
+    }
+
+    await().atMost(Duration.ofSeconds(1)).until(() -> completed.get() == 200);
+    assertThat(maxRunning.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void runnersShouldShareExecutor() throws Exception {
+    ExecutorService singleThread = Executors.newSingleThreadExecutor();
+    SerialExecutorWorkRunner first = new SerialExecutorWorkRunner(singleThread, 1);
+    SerialExecutorWorkRunner second = new SerialExecutorWorkRunner(singleThread, 1);
+    CountDownLatch allPosted = new CountDownLatch(1);
+
+    // keep the thread busy until everything has been posted
+    singleThread.execute(
+        () -> {
+          try {
+            allPosted.await();
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+        });
+
+    first.post(() -> output.add(1));
+    first.post(() -> output.add(1));
+    second.post(() -> output.add(2));
+    second.post(() -> output.add(2));
+    allPosted.countDown();
+
+    await().atMost(Duration.ofSeconds(1)).until(() -> output.size() == 4);
+
+    // with a batch size of 1, the two runners take turns on the single thread
+    assertThat(output).containsExactly(1, 2, 1, 2);
+    singleThread.shutdownNow();
+  }
+
+  @Test
+  public void shouldContinueAfterRunnableThrows() throws Exception {
+    SerialExecutorWorkRunner underTest = new SerialExecutorWorkRunner(sharedPool, 10);
+
+    underTest.post(
+        () -> {
+          throw new RuntimeException("expected");
+        });
+    underTest.post(() -> output.add(1));
+
+    await().atMost(Duration.ofSeconds(1)).until(() -> output.size() == 1);
+  }
+
+  @Test
+  public void shouldSkipRunnablesAfterDispose() throws Exception {
+    SerialExecutorWorkRunner underTest = new SerialExecutorWorkRunner(sharedPool, 10);
+
+    underTest.dispose();
+    underTest.post(() -> output.add(1));
+
+    Thread.sleep(40);
+    assertThat(output).isEmpty();
+  }
+
+  @Test
+  public void disposeShouldNotShutDownExecutor() throws Exception {
+    SerialExecutorWorkRunner underTest = new SerialExecutorWorkRunner(sharedPool, 10);
+
+    underTest.dispose();
+
+    assertThat(sharedPool.isShutdown()).isFalse();
+  }
+
+  @Test
+  public void shouldRejectNonPositiveBatchSize() throws Exception {
+    assertThatThrownBy(() -> new SerialExecutorWorkRunner(sharedPool, 0))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.runners;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SharedExecutorWorkRunnerTest {
+
+  private List<Runnable> submitted;
+  private List<Integer> output;
+  private SharedExecutorWorkRunner underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    submitted = new ArrayList<>();
+    output = new ArrayList<>();
+    Executor executor = submitted::add;
+    underTest = new SharedExecutorWorkRunner(executor);
+  }
+
+  @Test
+  public void shouldRunOnExecutor() throws Exception {
+    underTest.post(() -> output.add(1));
+
+    assertThat(output).isEmpty();
+
+    submitted.forEach(Runnable::run);
+
+    assertThat(output).containsExactly(1);
+  }
+
+  @Test
+  public void shouldSkipRunnablesPostedBeforeDispose() throws Exception {
+    underTest.post(() -> output.add(1));
+
+    underTest.dispose();
+    submitted.forEach(Runnable::run);
+
+    assertThat(output).isEmpty();
+  }
+
+  @Test
+  public void shouldNotSubmitAfterDispose() throws Exception {
+    underTest.dispose();
+    underTest.post(() -> output.add(1));
+
+    assertThat(submitted).isEmpty();
+  }
+}
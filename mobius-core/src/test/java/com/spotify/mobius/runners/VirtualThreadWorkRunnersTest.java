@@ -0,0 +1,83 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.runners;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class VirtualThreadWorkRunnersTest {
+
+  // set by the testJava21 task, which runs these tests with the Java 21 classes on the classpath
+  private static final boolean VIRTUAL_THREADS = Boolean.getBoolean("mobius.test.virtualThreads");
+
+  @Test
+  public void shouldReportWhetherVirtualThreadsAreSupported() throws Exception {
+    assertThat(WorkRunners.isVirtualThreadSupported()).isEqualTo(VIRTUAL_THREADS);
+  }
+
+  @Test
+  public void shouldThrowForVirtualThreadWhenUnsupported() throws Exception {
+    assumeFalse(VIRTUAL_THREADS);
+
+    assertThatThrownBy(WorkRunners::virtualThread)
+        .isInstanceOf(UnsupportedOperationException.class)
+        .hasMessageContaining("Java 21");
+  }
+
+  @Test
+  public void shouldThrowForVirtualThreadPerTaskWhenUnsupported() throws Exception {
+    assumeFalse(VIRTUAL_THREADS);
+
+    assertThatThrownBy(WorkRunners::virtualThreadPerTask)
+        .isInstanceOf(UnsupportedOperationException.class)
+        .hasMessageContaining("Java 21");
+  }
+
+  @Test
+  public void shouldRunOnVirtualThread() throws Exception {
+    assumeTrue(VIRTUAL_THREADS);
+
+    assertThat(threadNameOf(WorkRunners.virtualThread())).startsWith("mobius-virtual-thread-");
+  }
+
+  @Test
+  public void shouldRunEachTaskOnVirtualThread() throws Exception {
+    assumeTrue(VIRTUAL_THREADS);
+
+    assertThat(threadNameOf(WorkRunners.virtualThreadPerTask()))
+        .startsWith("mobius-virtual-thread-");
+  }
+
+  private static String threadNameOf(WorkRunner runner) throws Exception {
+    CompletableFuture<String> name = new CompletableFuture<>();
+    try {
+      runner.post(() -> name.complete(Thread.currentThread().getName()));
+      return name.get(5, TimeUnit.SECONDS);
+    } finally {
+      runner.dispose();
+    }
+  }
+}
@@ -24,14 +24,15 @@ import com.spotify.mobius.Connection
 import com.spotify.mobius.coroutines.CoroutinesSubtypeEffectHandlerBuilder.EffectsHandler
 import com.spotify.mobius.coroutines.CoroutinesSubtypeEffectHandlerBuilder.ExecutionPolicy.RunSequentially
 import kotlinx.coroutines.*
+import kotlinx.coroutines.channels.BufferOverflow
 import kotlinx.coroutines.channels.Channel
 import kotlinx.coroutines.channels.ReceiveChannel
 import kotlinx.coroutines.channels.SendChannel
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.FlowCollector
 import kotlinx.coroutines.flow.flow
-import kotlinx.coroutines.sync.Mutex
-import kotlinx.coroutines.sync.withLock
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicReferenceArray
 import kotlin.coroutines.CoroutineContext
 import kotlin.coroutines.EmptyCoroutineContext
 import kotlin.coroutines.suspendCoroutine
@@ -52,7 +53,7 @@ import kotlin.reflect.KClass
  * instances of the builder are mutable and not thread-safe.
  */
 class CoroutinesSubtypeEffectHandlerBuilder<F : Any, E : Any> {
-    private val effectsHandlersMap = mutableMapOf<KClass<out F>, EffectsHandler<F, E>>()
+    private val effectsHandlersMap = mutableMapOf<KClass<out F>, Registration<F, E>>()
 
     /**
      * Adds an "action lambda" for handling effects of a given type. The action will be invoked once
@@ -207,7 +208,12 @@ class CoroutinesSubtypeEffectHandlerBuilder<F : Any, E : Any> {
         executionPolicy: ExecutionPolicy<G, F, E> = RunSequentially(),
         effectHandler: EffectHandler<G, E>,
     ): CoroutinesSubtypeEffectHandlerBuilder<F, E> {
-        addEffectHandler(G::class, executionPolicy.createEffectsHandler(effectHandler))
+        addEffectHandler(
+            G::class,
+            executionPolicy.createEffectsHandler(effectHandler),
+            executionPolicy.effectsChannelCapacity,
+            executionPolicy.onEffectsBufferOverflow,
+        )
         return this
     }
 
@@ -226,8 +232,34 @@ class CoroutinesSubtypeEffectHandlerBuilder<F : Any, E : Any> {
      * @return this builder
      * @throws IllegalStateException if there is a handler collision
      */
-    fun addEffectHandler(kClass: KClass<out F>, effectsHandler: EffectsHandler<F, E>) {
-        val previousValue = effectsHandlersMap.put(kClass, effectsHandler)
+    fun addEffectHandler(kClass: KClass<out F>, effectsHandler: EffectsHandler<F, E>) =
+        addEffectHandler(kClass, effectsHandler, Channel.UNLIMITED, BufferOverflow.SUSPEND)
+
+    /**
+     * Adds an [EffectsHandler] for handling effects of a given type, receiving the effects through a channel
+     * with the given capacity and overflow behaviour. See [addEffectHandler] and [Channel] for details.
+     *
+     * <p>If the channel is full and [onBufferOverflow] is [BufferOverflow.SUSPEND], effects wait in an unlimited
+     * intake channel until the [EffectsHandler] has taken an effect from the channel, so the thread delivering
+     * effects to the [Connection] never blocks and effects stay in order.
+     *
+     * @param kClass the class to handle
+     * @param effectsHandler the [EffectsHandler] that should be invoked for all the effects
+     * @param channelCapacity the capacity of the effects channel, or one of [Channel.UNLIMITED],
+     * [Channel.CONFLATED], [Channel.BUFFERED] and [Channel.RENDEZVOUS]
+     * @param onBufferOverflow what to do when an effect is received while the effects channel is full
+     * @throws IllegalStateException if there is a handler collision
+     * @throws IllegalArgumentException if the channel capacity or overflow behaviour is invalid
+     */
+    fun addEffectHandler(
+        kClass: KClass<out F>,
+        effectsHandler: EffectsHandler<F, E>,
+        channelCapacity: Int,
+        onBufferOverflow: BufferOverflow,
+    ) {
+        checkChannelConfiguration(channelCapacity, onBufferOverflow)
+        val registration = Registration(effectsHandler, channelCapacity, onBufferOverflow)
+        val previousValue = effectsHandlersMap.put(kClass, registration)
         if (previousValue != null) error("Trying to add more than one handler for the effect ${kClass.simpleName}")
     }
 
@@ -236,65 +268,154 @@ class CoroutinesSubtypeEffectHandlerBuilder<F : Any, E : Any> {
      * with the given [CoroutineContext]. All coroutines will be canceled when the [Connection.dispose] method
      * is called in a [Connection] created by this [Connectable].
      *
+     * <p>Effects are routed to the handler registered for their class, or otherwise to the first handler
+     * registered for one of their superclasses or interfaces. The handlers registered at the time of calling
+     * this method are used; handlers added to the builder afterwards are ignored by the returned [Connectable].
+     *
+     * <p>Events sent by the effect handlers go through a shared channel, which by default is a rendezvous channel.
+     * A larger capacity lets effect handlers carry on while the event consumer catches up.
+     *
      * @param coroutineContext the context where the effects will run.
+     * @param eventsChannelCapacity the capacity of the events channel, or one of [Channel.UNLIMITED],
+     * [Channel.CONFLATED], [Channel.BUFFERED] and [Channel.RENDEZVOUS]
+     * @param onEventsBufferOverflow what to do when an event is sent while the events channel is full
      * @return a [Connectable] to be used as an effect handler.
+     * @throws IllegalArgumentException if the channel capacity or overflow behaviour is invalid
      * */
-    fun build(coroutineContext: CoroutineContext = EmptyCoroutineContext) = Connectable { eventConsumer ->
-        val scope = CoroutineScope(coroutineContext)
-        val eventsChannel = Channel<E>()
-        val subEffectChannelsMap = mutableMapOf<KClass<out F>, Channel<F>>()
-        val mutex = Mutex()
-
-        // Connects the eventConsumer
-        scope.launch {
-            for (event in eventsChannel) {
-                if (isActive) eventConsumer.accept(event)
+    fun build(
+        coroutineContext: CoroutineContext = EmptyCoroutineContext,
+        eventsChannelCapacity: Int = Channel.RENDEZVOUS,
+        onEventsBufferOverflow: BufferOverflow = BufferOverflow.SUSPEND,
+    ): Connectable<F, E> {
+        checkChannelConfiguration(eventsChannelCapacity, onEventsBufferOverflow)
+        val dispatchTable = DispatchTable(effectsHandlersMap)
+
+        return Connectable { eventConsumer ->
+            val scope = CoroutineScope(coroutineContext)
+            val eventsChannel = Channel<E>(eventsChannelCapacity, onEventsBufferOverflow)
+            val subEffectChannels = AtomicReferenceArray<Channel<F>>(dispatchTable.size)
+
+            // Connects the eventConsumer
+            scope.launch {
+                for (event in eventsChannel) {
+                    if (isActive) eventConsumer.accept(event)
+                }
             }
-        }
 
-        object : Connection<F> {
-            override fun accept(effect: F) {
-                scope.launch {
-                    val subEffectChannel = mutex.withLock {
-                        // Prevents the creation of an effectChannel if the scope is not active
-                        if(!isActive) return@launch
-
-                        subEffectChannelsMap.getOrPut(effect::class) {
-                            // Creates an effectChannel the first time the effect is processed
-                            val subEffectChannel = Channel<F>()
-                            val effectHandler = effectsHandlersMap[effect::class]
-                                ?: error("No effectHandler for $effect")
-                            // Connects the effectHandler the first time the effect is processed
-                            scope.launch {
-                                if (isActive) effectHandler.handleEffects(
-                                    subEffectChannel, eventsChannel
-                                )
-                            }
-                            subEffectChannel
-                        }
+            fun subEffectChannel(index: Int): Channel<F> {
+                subEffectChannels.get(index)?.let { return it }
+
+                // Creates an effectChannel the first time an effect of this type is processed. A channel that
+                // suspends when full is fed through an unlimited intake channel, so that accept() never blocks
+                val subEffectChannel = dispatchTable.createChannel(index)
+                val intakeChannel =
+                    if (dispatchTable.suspendsWhenFull(index)) Channel<F>(Channel.UNLIMITED) else subEffectChannel
+                if (!subEffectChannels.compareAndSet(index, null, intakeChannel)) {
+                    return subEffectChannels.get(index)
+                }
+
+                if (intakeChannel !== subEffectChannel) {
+                    scope.launch {
+                        for (effect in intakeChannel) subEffectChannel.send(effect)
                     }
+                }
 
-                    // Prevents the processing of the effect if the scope is not active
-                    if (isActive) subEffectChannel.send(effect)
+                // Connects the effectHandler the first time an effect of this type is processed
+                val effectsHandler = dispatchTable.effectsHandler(index)
+                scope.launch {
+                    if (isActive) effectsHandler.handleEffects(subEffectChannel, eventsChannel)
                 }
+                return intakeChannel
             }
 
-            override fun dispose() {
-                scope.cancel("Effect Handler disposed")
-                eventsChannel.close()
-                runBlocking {
-                    mutex.withLock {
-                        subEffectChannelsMap.values.forEach { it.close() }
-                        subEffectChannelsMap.clear()
+            object : Connection<F> {
+                override fun accept(effect: F) {
+                    // Prevents the processing of the effect if the scope is not active
+                    if (!scope.isActive) return
+
+                    val index = dispatchTable.indexOf(effect)
+                    if (index == DispatchTable.NO_HANDLER) error("No effectHandler for $effect")
+
+                    // Never fails unless the connection was disposed, since channels that suspend when full
+                    // are fed through an unlimited intake channel
+                    subEffectChannel(index).trySend(effect)
+                }
+
+                override fun dispose() {
+                    scope.cancel("Effect Handler disposed")
+                    eventsChannel.close()
+                    for (index in 0 until subEffectChannels.length()) {
+                        subEffectChannels.get(index)?.cancel()
                     }
                 }
             }
         }
     }
 
+    /**
+     * Maps effects to the index of their [EffectsHandler]. Effect classes without a handler of their own are
+     * resolved to the handler of a supertype once, and the result is cached.
+     */
+    private class DispatchTable<F : Any, E : Any>(effectsHandlersMap: Map<KClass<out F>, Registration<F, E>>) {
+        private val effectClasses = effectsHandlersMap.keys.map { it.javaObjectType }
+        private val registrations = effectsHandlersMap.values.toList()
+        private val indexByClass = ConcurrentHashMap<Class<*>, Int>()
+
+        init {
+            effectClasses.forEachIndexed { index, effectClass -> indexByClass[effectClass] = index }
+        }
+
+        val size: Int
+            get() = registrations.size
+
+        fun effectsHandler(index: Int) = registrations[index].effectsHandler
+
+        fun createChannel(index: Int) =
+            Channel<F>(registrations[index].channelCapacity, registrations[index].onBufferOverflow)
+
+        fun suspendsWhenFull(index: Int): Boolean {
+            val capacity = registrations[index].channelCapacity
+            return registrations[index].onBufferOverflow == BufferOverflow.SUSPEND &&
+                capacity != Channel.UNLIMITED && capacity != Channel.CONFLATED
+        }
+
+        fun indexOf(effect: F): Int = indexByClass[effect.javaClass] ?: resolve(effect.javaClass)
+
+        private fun resolve(effectClass: Class<*>): Int {
+            val index = effectClasses.indexOfFirst { it.isAssignableFrom(effectClass) }
+            indexByClass[effectClass] = index
+            return index
+        }
+
+        companion object {
+            const val NO_HANDLER = -1
+        }
+    }
+
+    private class Registration<F, E>(
+        val effectsHandler: EffectsHandler<F, E>,
+        val channelCapacity: Int,
+        val onBufferOverflow: BufferOverflow,
+    )
+
+    private fun checkChannelConfiguration(capacity: Int, onBufferOverflow: BufferOverflow) {
+        require(capacity >= 0 || capacity == Channel.UNLIMITED || capacity == Channel.CONFLATED ||
+                capacity == Channel.BUFFERED) {
+            "Invalid channel capacity: $capacity"
+        }
+        require(capacity != Channel.CONFLATED || onBufferOverflow == BufferOverflow.SUSPEND) {
+            "A conflated channel can't have a $onBufferOverflow overflow behaviour"
+        }
+    }
+
     /**
      * An execution policy defines how effects of the same type are executed. It is used to create
      * an [EffectsHandler] from an [EffectHandler] implementing its own concurrency execution policy.
+     *
+     * <p>It also defines the channel that effects of the type are delivered to the [EffectsHandler] on. By default,
+     * the channel is unlimited, so effects are never dropped and producing them never waits. The built-in policies
+     * take a capacity and [BufferOverflow] behaviour to bound it, for instance [Channel.CONFLATED] to only keep
+     * the latest effect, or a capacity with [BufferOverflow.DROP_OLDEST] to drop old effects when it's full.
      * */
     @Suppress("UNCHECKED_CAST")
     fun interface ExecutionPolicy<G : F, F, E> {
@@ -307,11 +428,26 @@ class CoroutinesSubtypeEffectHandlerBuilder<F : Any, E : Any> {
          * */
         fun createEffectsHandler(effectHandler: EffectHandler<G, E>): EffectsHandler<F, E>
 
+        /**
+         * The capacity of the channel that effects of type [G] are delivered on. See [Channel] for special values.
+         * */
+        val effectsChannelCapacity: Int
+            get() = Channel.UNLIMITED
+
+        /**
+         * What to do when an effect of type [G] is produced while the effects channel is full.
+         * */
+        val onEffectsBufferOverflow: BufferOverflow
+            get() = BufferOverflow.SUSPEND
+
         /**
          *  Implementation of [ExecutionPolicy] where all effects of the same type wait for the previous one
          *  to finish executing before being executed.
          * */
-        class RunSequentially<G : F, F : Any, E : Any> : ExecutionPolicy<G, F, E> {
+        class RunSequentially<G : F, F : Any, E : Any>(
+            override val effectsChannelCapacity: Int = Channel.UNLIMITED,
+            override val onEffectsBufferOverflow: BufferOverflow = BufferOverflow.SUSPEND,
+        ) : ExecutionPolicy<G, F, E> {
             override fun createEffectsHandler(effectHandler: EffectHandler<G, E>) =
                 EffectsHandler<F, E> { effectChannel, eventsChannel ->
                     for (effect in effectChannel) {
@@ -324,7 +460,10 @@ class CoroutinesSubtypeEffectHandlerBuilder<F : Any, E : Any> {
          *  Implementation of [ExecutionPolicy] where all effects of the same type are executed immediately
          *  and concurrently.
          * */
-        class RunConcurrently<G : F, F, E> : ExecutionPolicy<G, F, E> {
+        class RunConcurrently<G : F, F, E>(
+            override val effectsChannelCapacity: Int = Channel.UNLIMITED,
+            override val onEffectsBufferOverflow: BufferOverflow = BufferOverflow.SUSPEND,
+        ) : ExecutionPolicy<G, F, E> {
             override fun createEffectsHandler(effectHandler: EffectHandler<G, E>) =
                 EffectsHandler<F, E> { effectChannel, eventsChannel ->
                     coroutineScope {
@@ -339,7 +478,10 @@ class CoroutinesSubtypeEffectHandlerBuilder<F : Any, E : Any> {
          *  Implementation of [ExecutionPolicy] where a new effect cancels the execution of any previously running
          *  effect of the same type and start executing immediately.
          * */
-        class CancelPrevious<G : F, F, E> : ExecutionPolicy<G, F, E> {
+        class CancelPrevious<G : F, F, E>(
+            override val effectsChannelCapacity: Int = Channel.UNLIMITED,
+            override val onEffectsBufferOverflow: BufferOverflow = BufferOverflow.SUSPEND,
+        ) : ExecutionPolicy<G, F, E> {
             override fun createEffectsHandler(effectHandler: EffectHandler<G, E>) =
                 EffectsHandler<F, E> { effectChannel, eventsChannel ->
                     coroutineScope {
@@ -351,6 +493,127 @@ class CoroutinesSubtypeEffectHandlerBuilder<F : Any, E : Any> {
                     }
                 }
         }
+
+        /**
+         *  Implementation of [ExecutionPolicy] where effects of the same type are executed concurrently, but with at
+         *  most [maxParallelism] of them executing at any time. Further effects wait in the effects channel, and
+         *  start executing in the order they were produced.
+         * */
+        class RunConcurrentlyBounded<G : F, F, E>(
+            private val maxParallelism: Int,
+            override val effectsChannelCapacity: Int = Channel.UNLIMITED,
+            override val onEffectsBufferOverflow: BufferOverflow = BufferOverflow.SUSPEND,
+        ) : ExecutionPolicy<G, F, E> {
+            init {
+                require(maxParallelism > 0) { "maxParallelism must be positive, was: $maxParallelism" }
+            }
+
+            override fun createEffectsHandler(effectHandler: EffectHandler<G, E>) =
+                EffectsHandler<F, E> { effectChannel, eventsChannel ->
+                    coroutineScope {
+                        repeat(maxParallelism) {
+                            launch {
+                                for (effect in effectChannel) {
+                                    effectHandler.handleEffect(effect as G, eventsChannel)
+                                }
+                            }
+                        }
+                    }
+                }
+        }
+
+        /**
+         *  Implementation of [ExecutionPolicy] where effects of the same type that have the same key, as returned by
+         *  [keySelector], wait for the previous one to finish executing before being executed, while effects with
+         *  different keys are executed concurrently.
+         * */
+        class RunSequentiallyPerKey<G : F, F, E>(
+            override val effectsChannelCapacity: Int = Channel.UNLIMITED,
+            override val onEffectsBufferOverflow: BufferOverflow = BufferOverflow.SUSPEND,
+            private val keySelector: (G) -> Any?,
+        ) : ExecutionPolicy<G, F, E> {
+            override fun createEffectsHandler(effectHandler: EffectHandler<G, E>) =
+                EffectsHandler<F, E> { effectChannel, eventsChannel ->
+                    coroutineScope {
+                        // Only accessed from this loop; completed jobs are removed as the map grows
+                        val lastJobs = mutableMapOf<Any?, Job>()
+                        var pruneThreshold = MIN_PRUNE_THRESHOLD
+
+                        for (effect in effectChannel) {
+                            val key = keySelector(effect as G)
+                            val previousJob = lastJobs[key]
+                            lastJobs[key] = launch {
+                                previousJob?.join()
+                                effectHandler.handleEffect(effect, eventsChannel)
+                            }
+
+                            if (lastJobs.size > pruneThreshold) {
+                                lastJobs.values.removeAll { it.isCompleted }
+                                pruneThreshold = maxOf(MIN_PRUNE_THRESHOLD, lastJobs.size * 2)
+                            }
+                        }
+                    }
+                }
+
+            private companion object {
+                const val MIN_PRUNE_THRESHOLD = 16
+            }
+        }
+
+        /**
+         *  Implementation of [ExecutionPolicy] where an effect is only executed if no other effect of the same type
+         *  is produced within [timeoutMillis] after it. Effects that are already executing aren't cancelled.
+         * */
+        class Debounce<G : F, F, E>(
+            private val timeoutMillis: Long,
+            override val effectsChannelCapacity: Int = Channel.UNLIMITED,
+            override val onEffectsBufferOverflow: BufferOverflow = BufferOverflow.SUSPEND,
+        ) : ExecutionPolicy<G, F, E> {
+            init {
+                require(timeoutMillis > 0) { "timeoutMillis must be positive, was: $timeoutMillis" }
+            }
+
+            override fun createEffectsHandler(effectHandler: EffectHandler<G, E>) =
+                EffectsHandler<F, E> { effectChannel, eventsChannel ->
+                    coroutineScope {
+                        var pendingJob: Job = Job()
+                        for (effect in effectChannel) {
+                            pendingJob.cancel()
+                            pendingJob = launch {
+                                delay(timeoutMillis)
+                                this@coroutineScope.launch { effectHandler.handleEffect(effect as G, eventsChannel) }
+                            }
+                        }
+                    }
+                }
+        }
+
+        /**
+         *  Implementation of [ExecutionPolicy] where an effect is executed immediately, and any other effects of the
+         *  same type produced within [windowMillis] after it are dropped.
+         * */
+        class Throttle<G : F, F, E>(
+            private val windowMillis: Long,
+            override val effectsChannelCapacity: Int = Channel.UNLIMITED,
+            override val onEffectsBufferOverflow: BufferOverflow = BufferOverflow.SUSPEND,
+        ) : ExecutionPolicy<G, F, E> {
+            init {
+                require(windowMillis > 0) { "windowMillis must be positive, was: $windowMillis" }
+            }
+
+            override fun createEffectsHandler(effectHandler: EffectHandler<G, E>) =
+                EffectsHandler<F, E> { effectChannel, eventsChannel ->
+                    coroutineScope {
+                        var windowJob: Job? = null
+                        for (effect in effectChannel) {
+                            if (windowJob?.isActive == true) continue
+
+                            windowJob = launch { delay(windowMillis) }
+                            launch { effectHandler.handleEffect(effect as G, eventsChannel) }
+                        }
+                    }
+                }
+        }
     }
 
     /**
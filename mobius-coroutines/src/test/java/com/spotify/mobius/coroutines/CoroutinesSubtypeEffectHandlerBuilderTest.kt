@@ -24,6 +24,8 @@ import com.google.common.truth.Truth.assertWithMessage
 import com.spotify.mobius.coroutines.CoroutinesSubtypeEffectHandlerBuilder.ExecutionPolicy
 import com.spotify.mobius.coroutines.MobiusCoroutines.Companion.subtypeEffectHandler
 import kotlinx.coroutines.*
+import kotlinx.coroutines.channels.BufferOverflow
+import kotlinx.coroutines.channels.Channel
 import kotlinx.coroutines.flow.flow
 import kotlinx.coroutines.test.*
 import org.junit.Assert.assertThrows
@@ -107,6 +109,189 @@ class CoroutinesSubtypeEffectHandlerBuilderTest {
         }
     }
 
+    @Test
+    @Requirement(
+        given = "A connectable with an effect handler for a supertype",
+        `when` = "an effect of a subtype is produced",
+        then = "the effect is handled by the supertype effect handler"
+    )
+    fun supertypeEffectHandler() = runTest {
+        val effectsConsumed = mutableListOf<Effect>()
+        val effectHandler = subtypeEffectHandler<Effect, Event>()
+            .addConsumer<Effect> { effectsConsumed.add(it) }
+
+        val connection = effectHandler.build(UnconfinedTestDispatcher(testScheduler))
+            .connect { }
+        connection.accept(Effect.Simple)
+        connection.accept(Effect.SingleValue("value"))
+        advanceUntilIdle()
+
+        assertThat(effectsConsumed).containsExactly(Effect.Simple, Effect.SingleValue("value")).inOrder()
+    }
+
+    @Test
+    @Requirement(
+        given = "A connectable with effect handlers for a type and its supertype",
+        `when` = "an effect of the type is produced",
+        then = "the effect is handled by the effect handler for its own type"
+    )
+    fun exactTypeEffectHandlerIsPreferred() = runTest {
+        var supertypeHandlerCalled = false
+        var effectConsumed: Effect? = null
+        val effectHandler = subtypeEffectHandler<Effect, Event>()
+            .addConsumer<Effect> { supertypeHandlerCalled = true }
+            .addConsumer<Effect.SingleValue> { effectConsumed = it }
+
+        effectHandler.build(UnconfinedTestDispatcher(testScheduler))
+            .connect { }
+            .accept(Effect.SingleValue("value"))
+        advanceUntilIdle()
+
+        assertThat(effectConsumed).isEqualTo(Effect.SingleValue("value"))
+        assertThat(supertypeHandlerCalled).isFalse()
+    }
+
+    @Test
+    @Requirement(
+        given = "A connectable with a consumer as effect handler",
+        `when` = "many matching effects are produced",
+        then = "the effects are consumed in the order they were produced"
+    )
+    fun effectsAreConsumedInOrder() = runTest {
+        val effectsConsumed = mutableListOf<String>()
+        val effectHandler = subtypeEffectHandler<Effect, Event>()
+            .addConsumer<Effect.SingleValue> { effectsConsumed.add(it.id) }
+
+        val connection = effectHandler.build(StandardTestDispatcher(testScheduler))
+            .connect { }
+        (1..100).forEach { connection.accept(Effect.SingleValue("$it")) }
+        advanceUntilIdle()
+
+        assertThat(effectsConsumed).containsExactlyElementsIn((1..100).map { "$it" }).inOrder()
+    }
+
+    @Test
+    @Requirement(
+        given = "A connectable with a consumer using a conflated effects channel",
+        `when` = "several matching effects are produced before the consumer runs",
+        then = "only the latest effect is consumed"
+    )
+    fun conflatedEffectsChannel() = runTest {
+        val effectsConsumed = mutableListOf<String>()
+        val effectHandler = subtypeEffectHandler<Effect, Event>()
+            .addConsumer<Effect.SingleValue>(ExecutionPolicy.RunSequentially(Channel.CONFLATED)) {
+                effectsConsumed.add(it.id)
+            }
+
+        val connection = effectHandler.build(StandardTestDispatcher(testScheduler))
+            .connect { }
+        (1..5).forEach { connection.accept(Effect.SingleValue("$it")) }
+        advanceUntilIdle()
+
+        assertThat(effectsConsumed).containsExactly("5")
+    }
+
+    @Test
+    @Requirement(
+        given = "A connectable with a consumer using a bounded effects channel that drops the oldest effects",
+        `when` = "more matching effects than the capacity are produced before the consumer runs",
+        then = "the oldest effects are dropped"
+    )
+    fun dropOldestEffectsChannel() = runTest {
+        val effectsConsumed = mutableListOf<String>()
+        val effectHandler = subtypeEffectHandler<Effect, Event>()
+            .addConsumer<Effect.SingleValue>(
+                ExecutionPolicy.RunSequentially(2, BufferOverflow.DROP_OLDEST)
+            ) { effectsConsumed.add(it.id) }
+
+        val connection = effectHandler.build(StandardTestDispatcher(testScheduler))
+            .connect { }
+        (1..5).forEach { connection.accept(Effect.SingleValue("$it")) }
+        advanceUntilIdle()
+
+        assertThat(effectsConsumed).containsExactly("4", "5").inOrder()
+    }
+
+    @Test
+    @Requirement(
+        given = "A connectable with a consumer using a bounded effects channel that suspends when full",
+        `when` = "more matching effects than the capacity are produced on the thread running the consumer",
+        then = "producing effects doesn't block and all the effects are consumed in order"
+    )
+    fun suspendingEffectsChannel() = runTest {
+        val effectsConsumed = mutableListOf<String>()
+        val effectHandler = subtypeEffectHandler<Effect, Event>()
+            .addConsumer<Effect.SingleValue>(
+                ExecutionPolicy.RunSequentially(2, BufferOverflow.SUSPEND)
+            ) { effectsConsumed.add(it.id) }
+
+        val connection = effectHandler.build(StandardTestDispatcher(testScheduler))
+            .connect { }
+        (1..5).forEach { connection.accept(Effect.SingleValue("$it")) }
+        advanceUntilIdle()
+
+        assertThat(effectsConsumed).containsExactlyElementsIn((1..5).map { "$it" }).inOrder()
+    }
+
+    @Test
+    @Requirement(
+        given = "A connectable with a consumer using a rendezvous effects channel that suspends when full",
+        `when` = "several matching effects are produced before the consumer runs",
+        then = "none of the effects are dropped and they are consumed in order"
+    )
+    fun suspendingRendezvousEffectsChannel() = runTest {
+        val effectsConsumed = mutableListOf<String>()
+        val effectHandler = subtypeEffectHandler<Effect, Event>()
+            .addConsumer<Effect.SingleValue>(
+                ExecutionPolicy.RunSequentially(Channel.RENDEZVOUS, BufferOverflow.SUSPEND)
+            ) { effectsConsumed.add(it.id) }
+
+        val connection = effectHandler.build(StandardTestDispatcher(testScheduler))
+            .connect { }
+        (1..5).forEach { connection.accept(Effect.SingleValue("$it")) }
+        advanceUntilIdle()
+
+        assertThat(effectsConsumed).containsExactlyElementsIn((1..5).map { "$it" }).inOrder()
+    }
+
+    @Test
+    @Requirement(
+        given = "A CoroutinesSubtypeEffectHandlerBuilder",
+        `when` = "an effect handler with an invalid channel configuration is added",
+        then = "an exception is thrown"
+    )
+    fun invalidEffectsChannel() {
+        assertThrows(IllegalArgumentException::class.java) {
+            subtypeEffectHandler<Effect, Event>()
+                .addAction<Effect.Simple>(ExecutionPolicy.RunSequentially(-10)) { }
+        }
+        assertThrows(IllegalArgumentException::class.java) {
+            subtypeEffectHandler<Effect, Event>()
+                .addAction<Effect.Simple>(
+                    ExecutionPolicy.RunSequentially(Channel.CONFLATED, BufferOverflow.DROP_OLDEST)
+                ) { }
+        }
+    }
+
+    @Test
+    @Requirement(
+        given = "A connectable with a buffered events channel",
+        `when` = "effects producing events are handled before the event consumer runs",
+        then = "all the events are forwarded in order"
+    )
+    fun bufferedEventsChannel() = runTest {
+        val eventsReceived = mutableListOf<Event>()
+        val effectHandler = subtypeEffectHandler<Effect, Event>()
+            .addFunction<Effect.SingleValue> { Event.SingleValue(it.id) }
+
+        val connection = effectHandler.build(StandardTestDispatcher(testScheduler), eventsChannelCapacity = 10)
+            .connect { eventsReceived.add(it) }
+        (1..5).forEach { connection.accept(Effect.SingleValue("$it")) }
+        advanceUntilIdle()
+
+        assertThat(eventsReceived).containsExactlyElementsIn((1..5).map { Event.SingleValue("$it") }).inOrder()
+    }
+
     @Test
     @Requirement(
         given = "A connectable with a consumer as effect handler",
@@ -373,6 +558,134 @@ class CoroutinesSubtypeEffectHandlerBuilderTest {
         ).inOrder()
     }
 
+    @Test
+    @Requirement(
+        given = "An effect handler using RunConcurrentlyBounded execution policy",
+        `when` = "more matching effects than the maximum parallelism are produced",
+        then = "all the effects are consumed" +
+                "AND no more than the maximum parallelism run at the same time"
+    )
+    fun processEffectHandlerConcurrentlyBounded() = runTest {
+        var running = 0
+        var maxRunning = 0
+        val effectsConsumed = mutableListOf<Effect.DelayAction>()
+        val effectHandler = subtypeEffectHandler<Effect, Event>()
+            .addConsumer<Effect.DelayAction>(executionPolicy = ExecutionPolicy.RunConcurrentlyBounded(2)) { effect ->
+                maxRunning = maxOf(maxRunning, ++running)
+                delay(effect.delayMillis)
+                running--
+                effectsConsumed.add(effect)
+            }
+
+        val connection = effectHandler.build(StandardTestDispatcher(testScheduler))
+            .connect { }
+        repeat(5) { connection.accept(Effect.DelayAction(100)) }
+        advanceUntilIdle()
+
+        assertThat(effectsConsumed).hasSize(5)
+        assertThat(maxRunning).isEqualTo(2)
+        assertThat(currentTime).isEqualTo(300)
+    }
+
+    @Test
+    @Requirement(
+        given = "An effect handler using RunSequentiallyPerKey execution policy",
+        `when` = "matching effects with the same and different keys are produced",
+        then = "effects with the same key are consumed sequentially" +
+                "AND effects with different keys are consumed concurrently"
+    )
+    fun processEffectHandlerSequentiallyPerKey() = runTest {
+        val effectsFinished = mutableListOf<Pair<Effect.DelayAction, Long>>()
+        val effectHandler = subtypeEffectHandler<Effect, Event>()
+            .addConsumer<Effect.DelayAction>(
+                executionPolicy = ExecutionPolicy.RunSequentiallyPerKey { it.delayMillis }
+            ) { effect ->
+                delay(effect.delayMillis)
+                effectsFinished.add(effect to currentTime)
+            }
+
+        val connection = effectHandler.build(StandardTestDispatcher(testScheduler))
+            .connect { }
+        connection.accept(Effect.DelayAction(100))
+        connection.accept(Effect.DelayAction(100))
+        connection.accept(Effect.DelayAction(50))
+        advanceUntilIdle()
+
+        assertThat(effectsFinished).containsExactly(
+            Effect.DelayAction(50) to 50L,
+            Effect.DelayAction(100) to 100L,
+            Effect.DelayAction(100) to 200L,
+        ).inOrder()
+    }
+
+    @Test
+    @Requirement(
+        given = "An effect handler using Debounce execution policy",
+        `when` = "matching effects are produced within the timeout of each other",
+        then = "only the last effect is consumed"
+    )
+    fun processEffectHandlerDebounce() = runTest {
+        val effectsConsumed = mutableListOf<String>()
+        val effectHandler = subtypeEffectHandler<Effect, Event>()
+            .addConsumer<Effect.SingleValue>(executionPolicy = ExecutionPolicy.Debounce(100)) { effect ->
+                effectsConsumed.add(effect.id)
+            }
+
+        val connection = effectHandler.build(StandardTestDispatcher(testScheduler))
+            .connect { }
+        connection.accept(Effect.SingleValue("1"))
+        advanceTimeBy(50)
+        connection.accept(Effect.SingleValue("2"))
+        advanceTimeBy(50)
+        connection.accept(Effect.SingleValue("3"))
+        advanceUntilIdle()
+
+        assertThat(effectsConsumed).containsExactly("3")
+    }
+
+    @Test
+    @Requirement(
+        given = "An effect handler using Throttle execution policy",
+        `when` = "matching effects are produced within the window of each other",
+        then = "the first effect of each window is consumed" +
+                "AND the other effects are dropped"
+    )
+    fun processEffectHandlerThrottle() = runTest {
+        val effectsConsumed = mutableListOf<String>()
+        val effectHandler = subtypeEffectHandler<Effect, Event>()
+            .addConsumer<Effect.SingleValue>(executionPolicy = ExecutionPolicy.Throttle(100)) { effect ->
+                effectsConsumed.add(effect.id)
+            }
+
+        val connection = effectHandler.build(StandardTestDispatcher(testScheduler))
+            .connect { }
+        connection.accept(Effect.SingleValue("1"))
+        connection.accept(Effect.SingleValue("2"))
+        advanceTimeBy(150)
+        connection.accept(Effect.SingleValue("3"))
+        advanceUntilIdle()
+
+        assertThat(effectsConsumed).containsExactly("1", "3").inOrder()
+    }
+
+    @Test
+    @Requirement(
+        given = "A bounded, debounced or throttled execution policy",
+        `when` = "it is created with a non-positive parameter",
+        then = "an exception is thrown"
+    )
+    fun invalidExecutionPolicyParameters() {
+        assertThrows(IllegalArgumentException::class.java) {
+            ExecutionPolicy.RunConcurrentlyBounded<Effect, Effect, Event>(0)
+        }
+        assertThrows(IllegalArgumentException::class.java) {
+            ExecutionPolicy.Debounce<Effect, Effect, Event>(0)
+        }
+        assertThrows(IllegalArgumentException::class.java) {
+            ExecutionPolicy.Throttle<Effect, Effect, Event>(-1)
+        }
+    }
+
     @Test
     @Throws(InterruptedException::class, ExecutionException::class)
     fun toTransformerNoEventsAreGeneratedAfterDispose() {
@@ -0,0 +1,54 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/** Helpers for making changes to directories durable. */
+final class Directories {
+
+  private Directories() {
+    // prevent instantiation
+  }
+
+  /**
+   * Forces the entries of a directory, such as files that were just created or renamed, to be
+   * written to the storage device. This does nothing on platforms where directories can't be
+   * opened, like Windows.
+   *
+   * @throws IOException if the directory was opened, but couldn't be synced
+   */
+  static void sync(File directory) throws IOException {
+    FileChannel channel;
+
+    try {
+      channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+    } catch (IOException e) {
+      return;
+    }
+
+    try (FileChannel closing = channel) {
+      closing.force(true);
+    }
+  }
+}
@@ -0,0 +1,564 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.persistence;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.functions.Consumer;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+import javax.annotation.Nullable;
+
+/**
+ * An append-only log of events, stored in memory-mapped segment files in a directory.
+ *
+ * <p>Every appended event gets a sequence number, starting at 1 and increasing by one for each
+ * event. Events are written to the current segment until it is full, and then a new segment is
+ * started; segment files are named after the sequence number of their first event. Each event is
+ * stored together with a checksum, so that an event that was only partially written when the
+ * process died is detected and discarded when the journal is opened again.
+ *
+ * <p>Writes go to memory that is mapped to the segment files, which makes appending about as cheap
+ * as copying the serialized event, and means that appended events survive the process crashing.
+ * To also make them survive the machine crashing, call {@link #flush()}.
+ *
+ * <p>New segments are prepared in a temporary file that is renamed once its header has been
+ * written to the storage device, so a crash while rolling over never leaves a segment without a
+ * header. Older segments are read as streams when replaying, and aren't kept mapped afterwards.
+ *
+ * <p>A journal is meant to be used by a single loop at a time. A directory can only be opened by a
+ * single journal at a time, which is enforced with a lock file that is held until the journal is
+ * closed. The methods of this class are thread-safe.
+ *
+ * @param <E> the event type
+ */
+public final class EventJournal<E> implements Closeable {
+
+  /** The default size of segment files; 64 MiB. */
+  public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  private static final String SEGMENT_SUFFIX = ".journal";
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final String LOCK_FILE = "journal.lock";
+
+  // segment header: magic, format version, sequence number of the first event in the segment
+  private static final int MAGIC = 0x4d4a524e; // "MJRN"
+  private static final int VERSION = 1;
+  private static final int SEGMENT_HEADER_SIZE = 4 + 4 + 8;
+
+  // record header: payload length plus one, CRC32 of the payload. A length field of 0 marks the
+  // end of the records in a segment, so that empty payloads can still be stored.
+  private static final int RECORD_HEADER_SIZE = 4 + 4;
+  private static final int END_MARKER_SIZE = 4;
+
+  private final File directory;
+  private final Serializer<E> serializer;
+  private final int segmentSize;
+  private final FileChannel lockChannel;
+  private final CRC32 crc = new CRC32();
+
+  private MappedByteBuffer segment;
+  private long nextSequence;
+  private boolean closed = false;
+
+  private EventJournal(
+      File directory,
+      Serializer<E> serializer,
+      int segmentSize,
+      FileChannel lockChannel,
+      MappedByteBuffer segment,
+      long nextSequence) {
+    this.directory = directory;
+    this.serializer = serializer;
+    this.segmentSize = segmentSize;
+    this.lockChannel = lockChannel;
+    this.segment = segment;
+    this.nextSequence = nextSequence;
+  }
+
+  /**
+   * Opens the journal in the supplied directory, creating it if it doesn't exist, using segments
+   * of {@link #DEFAULT_SEGMENT_SIZE}.
+   *
+   * @throws IOException if the journal can't be read or created
+   */
+  public static <E> EventJournal<E> open(File directory, Serializer<E> serializer)
+      throws IOException {
+    return open(directory, serializer, DEFAULT_SEGMENT_SIZE);
+  }
+
+  /**
+   * Opens the journal in the supplied directory, creating it if it doesn't exist.
+   *
+   * <p>Appending continues after the last complete event in the most recent segment. The segment
+   * size only applies to segments created from now on.
+   *
+   * @param directory the directory to store segment files in
+   * @param serializer the serializer to use for events
+   * @param segmentSize the size in bytes of each segment file; a single serialized event must fit
+   *     in one segment
+   * @throws IOException if the journal can't be read or created, or if the directory is already
+   *     in use by another journal
+   * @throws IllegalArgumentException if the segment size is too small to hold any events
+   */
+  public static <E> EventJournal<E> open(
+      File directory, Serializer<E> serializer, int segmentSize) throws IOException {
+    checkNotNull(directory);
+    checkNotNull(serializer);
+
+    if (segmentSize <= SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE + END_MARKER_SIZE) {
+      throw new IllegalArgumentException("segmentSize too small: " + segmentSize);
+    }
+
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Unable to create journal directory: " + directory);
+    }
+
+    FileChannel lockChannel = lock(directory);
+
+    try {
+      deleteTempFiles(directory);
+      List<Long> segments = listSegments(directory);
+
+      if (segments.isEmpty()) {
+        long firstSequence = 1;
+        MappedByteBuffer segment = createSegment(directory, firstSequence, segmentSize);
+        return new EventJournal<>(
+            directory, serializer, segmentSize, lockChannel, segment, firstSequence);
+      }
+
+      long firstSequence = segments.get(segments.size() - 1);
+      File file = segmentFile(directory, firstSequence);
+      int records = 0;
+      long end;
+
+      try (SegmentInput in = new SegmentInput(file)) {
+        in.checkHeader(firstSequence);
+
+        CRC32 crc = new CRC32();
+        while (in.readRecord(crc) != null) {
+          records++;
+        }
+
+        end = in.position();
+      }
+
+      MappedByteBuffer segment = mapSegment(file);
+      segment.position((int) end);
+
+      return new EventJournal<>(
+          directory, serializer, segmentSize, lockChannel, segment, firstSequence + records);
+
+    } catch (IOException | RuntimeException e) {
+      lockChannel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Appends an event to the journal.
+   *
+   * @return the sequence number of the event
+   * @throws IllegalArgumentException if the serialized event doesn't fit in a segment
+   * @throws UncheckedIOException if a new segment needed to be created, but that failed
+   * @throws IllegalStateException if the journal has been closed
+   */
+  public synchronized long append(E event) {
+    checkNotClosed();
+
+    byte[] bytes = serializer.serialize(event);
+    int recordSize = RECORD_HEADER_SIZE + bytes.length;
+
+    if (recordSize + END_MARKER_SIZE > segmentSize - SEGMENT_HEADER_SIZE) {
+      throw new IllegalArgumentException(
+          String.format(
+              Locale.ROOT,
+              "serialized event is %d bytes, which doesn't fit in a segment of %d bytes: %s",
+              bytes.length,
+              segmentSize,
+              event));
+    }
+
+    if (segment.remaining() < recordSize + END_MARKER_SIZE) {
+      roll();
+    }
+
+    int start = segment.position();
+
+    crc.reset();
+    crc.update(bytes, 0, bytes.length);
+
+    segment.putInt(start + 4, (int) crc.getValue());
+    segment.position(start + RECORD_HEADER_SIZE);
+    segment.put(bytes);
+    segment.putInt(start + recordSize, 0);
+
+    // writing the length last means that a record only becomes visible once it is complete
+    segment.putInt(start, bytes.length + 1);
+
+    return nextSequence++;
+  }
+
+  /**
+   * Returns the sequence number of the last event in the journal, or 0 if the journal is empty.
+   */
+  public synchronized long lastSequence() {
+    return nextSequence - 1;
+  }
+
+  /**
+   * Reads all events with a sequence number greater than {@code afterSequence}, in order, and
+   * passes them to the consumer.
+   *
+   * @param afterSequence the sequence number of the last event that should be skipped; 0 to read
+   *     all events
+   * @param consumer the consumer to pass events to
+   * @return the sequence number of the last event that was read, or {@code afterSequence} if there
+   *     were no events after it
+   * @throws UncheckedIOException if a segment couldn't be read
+   * @throws IllegalStateException if the journal has been closed
+   */
+  public synchronized long replay(long afterSequence, Consumer<? super E> consumer) {
+    checkNotClosed();
+    checkNotNull(consumer);
+
+    long lastRead = afterSequence;
+
+    try {
+      List<Long> segments = listSegments(directory);
+
+      for (int i = 0; i < segments.size(); i++) {
+        long firstSequence = segments.get(i);
+        boolean isLast = i == segments.size() - 1;
+
+        if (!isLast && segments.get(i + 1) <= afterSequence + 1) {
+          // all events in this segment come before the first one to read
+          continue;
+        }
+
+        try (SegmentInput in = new SegmentInput(segmentFile(directory, firstSequence))) {
+          in.checkHeader(firstSequence);
+
+          long sequence = firstSequence;
+          for (byte[] bytes = in.readRecord(crc); bytes != null; bytes = in.readRecord(crc)) {
+            if (sequence > afterSequence) {
+              consumer.accept(serializer.deserialize(bytes));
+              lastRead = sequence;
+            }
+            sequence++;
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    return lastRead;
+  }
+
+  /**
+   * Deletes the segments that only contain events with sequence numbers up to and including the
+   * supplied one, for instance because a snapshot includes them. The current segment is never
+   * deleted, so events before the supplied sequence number may still be replayed afterwards.
+   *
+   * @return the number of deleted segments
+   * @throws UncheckedIOException if the journal directory can't be listed
+   * @throws IllegalStateException if the journal has been closed
+   */
+  public synchronized int deleteSegmentsUpTo(long sequence) {
+    checkNotClosed();
+
+    int deleted = 0;
+
+    try {
+      List<Long> segments = listSegments(directory);
+
+      // a segment only contains events up to the sequence if the next segment starts after it
+      for (int i = 0; i < segments.size() - 1; i++) {
+        if (segments.get(i + 1) > sequence + 1) {
+          break;
+        }
+
+        if (segmentFile(directory, segments.get(i)).delete()) {
+          deleted++;
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    return deleted;
+  }
+
+  /**
+   * Forces all appended events to be written to the storage device.
+   *
+   * @throws IllegalStateException if the journal has been closed
+   */
+  public synchronized void flush() {
+    checkNotClosed();
+    segment.force();
+  }
+
+  /**
+   * Flushes and closes the journal, and releases the lock on its directory. Any further calls to
+   * the journal's methods will throw {@link IllegalStateException}.
+   *
+   * @throws UncheckedIOException if the lock couldn't be released
+   */
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+
+    segment.force();
+    closed = true;
+
+    try {
+      lockChannel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void checkNotClosed() {
+    if (closed) {
+      throw new IllegalStateException("This journal has been closed");
+    }
+  }
+
+  private void roll() {
+    segment.force();
+
+    try {
+      segment = createSegment(directory, nextSequence, segmentSize);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static File segmentFile(File directory, long firstSequence) {
+    return new File(
+        directory, String.format(Locale.ROOT, "%020d%s", firstSequence, SEGMENT_SUFFIX));
+  }
+
+  /** Returns the first sequence numbers of the segments in a directory, in ascending order. */
+  static List<Long> listSegments(File directory) throws IOException {
+    String[] names = directory.list();
+    if (names == null) {
+      throw new IOException("Unable to list journal directory: " + directory);
+    }
+
+    List<Long> segments = new ArrayList<>();
+    for (String name : names) {
+      if (name.endsWith(SEGMENT_SUFFIX)) {
+        try {
+          segments.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+        } catch (NumberFormatException e) {
+          // not one of our files; ignore it
+        }
+      }
+    }
+
+    Collections.sort(segments);
+    return segments;
+  }
+
+  /**
+   * Locks the directory, so that no other journal, in this or another process, can use it. The
+   * lock is released when the returned channel is closed.
+   */
+  private static FileChannel lock(File directory) throws IOException {
+    FileChannel channel =
+        FileChannel.open(
+            new File(directory, LOCK_FILE).toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE);
+
+    FileLock lock;
+    try {
+      lock = channel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      // the lock is held by another journal in this process
+      lock = null;
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+
+    if (lock == null) {
+      channel.close();
+      throw new IOException("Journal directory is already in use: " + directory);
+    }
+
+    return channel;
+  }
+
+  /** Deletes segments that were still being created when the process died. */
+  private static void deleteTempFiles(File directory) throws IOException {
+    String[] names = directory.list();
+    if (names == null) {
+      throw new IOException("Unable to list journal directory: " + directory);
+    }
+
+    for (String name : names) {
+      if (name.endsWith(SEGMENT_SUFFIX + TEMP_SUFFIX)) {
+        //noinspection ResultOfMethodCallIgnored
+        new File(directory, name).delete();
+      }
+    }
+  }
+
+  /**
+   * Creates a segment and maps it into memory. The header is written to a temporary file and
+   * forced to the storage device before the file is renamed, so that a segment file never exists
+   * without a valid header.
+   */
+  private static MappedByteBuffer createSegment(File directory, long firstSequence, int size)
+      throws IOException {
+    File file = segmentFile(directory, firstSequence);
+    File temp = new File(directory, file.getName() + TEMP_SUFFIX);
+
+    try {
+      try (RandomAccessFile raf = new RandomAccessFile(temp, "rw")) {
+        // the rest of the segment, including the end marker after the header, is zero-filled
+        raf.setLength(0);
+        raf.setLength(size);
+        raf.writeInt(MAGIC);
+        raf.writeInt(VERSION);
+        raf.writeLong(firstSequence);
+        raf.getChannel().force(true);
+      }
+
+      Files.move(
+          temp.toPath(),
+          file.toPath(),
+          StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      //noinspection ResultOfMethodCallIgnored
+      temp.delete();
+      throw e;
+    }
+
+    Directories.sync(directory);
+
+    MappedByteBuffer buffer = mapSegment(file);
+    buffer.position(SEGMENT_HEADER_SIZE);
+    return buffer;
+  }
+
+  private static MappedByteBuffer mapSegment(File file) throws IOException {
+    // the mapping stays valid after the file has been closed
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+    }
+  }
+
+  /** Reads the records of a segment file as a stream, without mapping it into memory. */
+  private static final class SegmentInput implements Closeable {
+    private final DataInputStream in;
+    private final long size;
+    private long position;
+
+    SegmentInput(File file) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      this.size = file.length();
+    }
+
+    /** Returns the offset in the file just after the last record that was read. */
+    long position() {
+      return position;
+    }
+
+    void checkHeader(long firstSequence) throws IOException {
+      if (size < SEGMENT_HEADER_SIZE
+          || in.readInt() != MAGIC
+          || in.readInt() != VERSION
+          || in.readLong() != firstSequence) {
+        throw new IOException("Not a valid journal segment for sequence number " + firstSequence);
+      }
+
+      position = SEGMENT_HEADER_SIZE;
+    }
+
+    /**
+     * Reads the next record. Returns null if there is no complete and valid record, in which case
+     * no more records should be read.
+     */
+    @Nullable
+    byte[] readRecord(CRC32 crc) throws IOException {
+      long remaining = size - position;
+
+      if (remaining < RECORD_HEADER_SIZE + END_MARKER_SIZE) {
+        return null;
+      }
+
+      try {
+        int length = in.readInt() - 1;
+        if (length < 0 || length > remaining - RECORD_HEADER_SIZE - END_MARKER_SIZE) {
+          return null;
+        }
+
+        int checksum = in.readInt();
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+
+        crc.reset();
+        crc.update(bytes, 0, length);
+        if ((int) crc.getValue() != checksum) {
+          return null;
+        }
+
+        position += RECORD_HEADER_SIZE + length;
+        return bytes;
+
+      } catch (EOFException e) {
+        // the file was shorter than its size said, for instance because it was truncated
+        return null;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
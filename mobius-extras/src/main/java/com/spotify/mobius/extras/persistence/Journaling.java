@@ -0,0 +1,154 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.persistence;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.MobiusLoop;
+import com.spotify.mobius.Next;
+import com.spotify.mobius.Update;
+import com.spotify.mobius.functions.Consumer;
+import java.io.IOException;
+import javax.annotation.Nonnull;
+
+/**
+ * Factory methods for journaling the events of a loop to an {@link EventJournal}, and for
+ * rebuilding the state of a loop from the journal.
+ *
+ * <p>To journal a loop, wrap its update function using {@link #journaled(Update, EventJournal)}
+ * when building the loop. To restore it after a restart, use {@link #restore(MobiusLoop.Factory,
+ * Update, EventJournal, Object, long)} with the most recent snapshot of the model you have (or the
+ * initial model if you don't have any) and the journal sequence number of the last event that the
+ * snapshot includes. If the snapshots are taken by a {@link Snapshotter}, use {@link
+ * #restore(MobiusLoop.Factory, Update, EventJournal, SnapshotStore, Object)} instead.
+ */
+public final class Journaling {
+  private Journaling() {
+    // prevent instantiation
+  }
+
+  /**
+   * Returns an {@link Update} that appends each event to the journal after the supplied update
+   * function has processed it.
+   *
+   * <p>Events are appended on the loop's event thread, so the time it takes to serialize an event
+   * adds to the time it takes to process it.
+   */
+  @Nonnull
+  public static <M, E, F> Update<M, E, F> journaled(
+      Update<M, E, F> update, EventJournal<E> journal) {
+    return new JournalingUpdate<>(update, journal);
+  }
+
+  /**
+   * Rebuilds a model by passing all events in the journal after {@code afterSequence} through the
+   * update function, starting from the supplied model. The effects returned by the update function
+   * are ignored, since they have already been executed when the events were first processed.
+   *
+   * @param update the update function of the loop; this should not be the journaled update
+   *     function, since that would append the events to the journal again
+   * @param model the model to start from
+   * @param journal the journal to read events from
+   * @param afterSequence the sequence number of the last event that is already included in the
+   *     model; 0 if the model is the initial model of the loop
+   * @return the model after processing all events
+   */
+  @Nonnull
+  public static <M, E, F> M replay(
+      final Update<M, E, F> update, M model, EventJournal<E> journal, long afterSequence) {
+    checkNotNull(update);
+
+    final ModelHolder<M> current = new ModelHolder<>(checkNotNull(model));
+
+    journal.replay(
+        afterSequence,
+        new Consumer<E>() {
+          @Override
+          public void accept(E event) {
+            Next<M, F> next = update.update(current.model, event);
+            current.model = next.modelOrElse(current.model);
+          }
+        });
+
+    return current.model;
+  }
+
+  /**
+   * Starts a loop from the model that results from replaying the journal on top of the supplied
+   * model. See {@link #replay(Update, Object, EventJournal, long)}.
+   *
+   * @param loopFactory the factory to start the loop with; it should use the journaled update
+   *     function, so that the loop keeps appending events to the journal
+   * @param update the plain update function of the loop, to replay events with
+   * @param journal the journal to read events from
+   * @param model the model to start from
+   * @param afterSequence the sequence number of the last event that is already included in the
+   *     model; 0 if the model is the initial model of the loop
+   * @return the started loop
+   */
+  @Nonnull
+  public static <M, E, F> MobiusLoop<M, E, F> restore(
+      MobiusLoop.Factory<M, E, F> loopFactory,
+      Update<M, E, F> update,
+      EventJournal<E> journal,
+      M model,
+      long afterSequence) {
+    return loopFactory.startFrom(replay(update, model, journal, afterSequence));
+  }
+
+  /**
+   * Starts a loop from the most recent snapshot in the store, or from the initial model if there
+   * is no snapshot, and replays the events in the journal that came after it. See {@link
+   * #restore(MobiusLoop.Factory, Update, EventJournal, Object, long)}.
+   *
+   * @param loopFactory the factory to start the loop with; it should use the journaled update
+   *     function, so that the loop keeps appending events to the journal
+   * @param update the plain update function of the loop, to replay events with
+   * @param journal the journal to read events from
+   * @param snapshots the store to read the most recent snapshot from
+   * @param initialModel the model to start from if there is no snapshot
+   * @return the started loop
+   * @throws IOException if the snapshot store can't be read
+   */
+  @Nonnull
+  public static <M, E, F> MobiusLoop<M, E, F> restore(
+      MobiusLoop.Factory<M, E, F> loopFactory,
+      Update<M, E, F> update,
+      EventJournal<E> journal,
+      SnapshotStore<M> snapshots,
+      M initialModel)
+      throws IOException {
+    Snapshot<M> snapshot = snapshots.readLatest();
+
+    if (snapshot == null) {
+      return restore(loopFactory, update, journal, initialModel, 0);
+    }
+
+    return restore(loopFactory, update, journal, snapshot.model(), snapshot.sequence());
+  }
+
+  private static final class ModelHolder<M> {
+    private M model;
+
+    private ModelHolder(M model) {
+      this.model = model;
+    }
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.persistence;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.Next;
+import com.spotify.mobius.Update;
+import javax.annotation.Nonnull;
+
+/** An {@link Update} that appends every event it has successfully processed to a journal. */
+class JournalingUpdate<M, E, F> implements Update<M, E, F> {
+
+  private final Update<M, E, F> actualUpdate;
+  private final EventJournal<E> journal;
+
+  JournalingUpdate(Update<M, E, F> actualUpdate, EventJournal<E> journal) {
+    this.actualUpdate = checkNotNull(actualUpdate);
+    this.journal = checkNotNull(journal);
+  }
+
+  @Nonnull
+  @Override
+  public Next<M, F> update(M model, E event) {
+    Next<M, F> result = actualUpdate.update(model, event);
+
+    // only journal events after update has accepted them, so that replaying can't fail
+    journal.append(event);
+
+    return result;
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.persistence;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Converts values to and from bytes, so that they can be written to disk or kept outside of the
+ * Java heap.
+ *
+ * <p>Implementations must be able to read back anything they have written, and should be
+ * thread-safe.
+ *
+ * @param <T> the type of values to convert
+ */
+public interface Serializer<T> {
+  @Nonnull
+  byte[] serialize(T value);
+
+  @Nonnull
+  T deserialize(byte[] bytes);
+}
@@ -0,0 +1,51 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.persistence;
+
+import com.google.auto.value.AutoValue;
+import javax.annotation.Nonnull;
+
+/**
+ * A model of a loop, together with the number of events that the loop had processed when the
+ * model was captured.
+ *
+ * @param <M> the model type
+ */
+@AutoValue
+public abstract class Snapshot<M> {
+
+  @Nonnull
+  public abstract M model();
+
+  /**
+   * The sequence number of the last event included in the model. When the loop is journaled, this
+   * matches the sequence numbers of the {@link EventJournal}, so that the journal can be replayed
+   * from this point.
+   */
+  public abstract long sequence();
+
+  /** The time when the snapshot was taken, in milliseconds since the epoch. */
+  public abstract long timestampMillis();
+
+  @Nonnull
+  public static <M> Snapshot<M> create(M model, long sequence, long timestampMillis) {
+    return new AutoValue_Snapshot<>(model, sequence, timestampMillis);
+  }
+}
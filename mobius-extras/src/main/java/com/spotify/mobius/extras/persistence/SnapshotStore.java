@@ -0,0 +1,226 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.persistence;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import javax.annotation.Nullable;
+
+/**
+ * Stores {@link Snapshot}s of a loop's model as files in a directory, keeping only the most recent
+ * one.
+ *
+ * <p>Each snapshot is written in a compact binary format: a magic number and format version, the
+ * sequence number and timestamp of the snapshot, the length of the serialized model followed by
+ * the model itself, and finally a CRC32 checksum of all of the preceding bytes. Snapshots are
+ * written to a temporary file that is then renamed, so a crash while writing never destroys the
+ * previous snapshot. Older snapshots are only deleted once the rename has been written to the
+ * storage device.
+ *
+ * @param <M> the model type
+ */
+public final class SnapshotStore<M> {
+
+  private static final String SNAPSHOT_PREFIX = "snapshot-";
+  private static final String SNAPSHOT_SUFFIX = ".bin";
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  private static final int MAGIC = 0x4d534e50; // "MSNP"
+  private static final byte VERSION = 1;
+
+  private final File directory;
+  private final Serializer<M> serializer;
+
+  private SnapshotStore(File directory, Serializer<M> serializer) {
+    this.directory = directory;
+    this.serializer = serializer;
+  }
+
+  /**
+   * Opens the snapshot store in the supplied directory, creating the directory if it doesn't
+   * exist.
+   *
+   * @throws IOException if the directory can't be created
+   */
+  public static <M> SnapshotStore<M> open(File directory, Serializer<M> serializer)
+      throws IOException {
+    checkNotNull(directory);
+    checkNotNull(serializer);
+
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Unable to create snapshot directory: " + directory);
+    }
+
+    return new SnapshotStore<>(directory, serializer);
+  }
+
+  /**
+   * Writes a snapshot, and deletes any snapshots with a lower sequence number.
+   *
+   * @throws IOException if the snapshot couldn't be written
+   */
+  public synchronized void write(Snapshot<M> snapshot) throws IOException {
+    byte[] model = serializer.serialize(snapshot.model());
+
+    File file = snapshotFile(snapshot.sequence());
+    File temp = new File(directory, file.getName() + TEMP_SUFFIX);
+
+    try {
+      try (FileOutputStream fileStream = new FileOutputStream(temp)) {
+        CheckedOutputStream checked = new CheckedOutputStream(fileStream, new CRC32());
+        DataOutputStream out = new DataOutputStream(checked);
+
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(snapshot.sequence());
+        out.writeLong(snapshot.timestampMillis());
+        out.writeInt(model.length);
+        out.write(model);
+        out.flush();
+
+        // the checksum itself isn't part of the checksummed data
+        new DataOutputStream(fileStream).writeInt((int) checked.getChecksum().getValue());
+        fileStream.getFD().sync();
+      }
+
+      Files.move(
+          temp.toPath(),
+          file.toPath(),
+          StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      //noinspection ResultOfMethodCallIgnored
+      temp.delete();
+      throw e;
+    }
+
+    // the new snapshot must survive a crash before the ones it replaces can be deleted
+    Directories.sync(directory);
+
+    for (long sequence : listSnapshots()) {
+      if (sequence < snapshot.sequence()) {
+        // failing to delete an old snapshot is harmless; it'll be retried after the next write
+        //noinspection ResultOfMethodCallIgnored
+        snapshotFile(sequence).delete();
+      }
+    }
+  }
+
+  /**
+   * Returns the snapshot with the highest sequence number, or null if there isn't any. Snapshots
+   * that are corrupt, can't be read, or whose model can't be deserialized are skipped.
+   *
+   * @throws IOException if the directory couldn't be listed
+   */
+  @Nullable
+  public synchronized Snapshot<M> readLatest() throws IOException {
+    List<Long> sequences = listSnapshots();
+
+    for (int i = sequences.size() - 1; i >= 0; i--) {
+      Snapshot<M> snapshot = read(snapshotFile(sequences.get(i)));
+      if (snapshot != null) {
+        return snapshot;
+      }
+    }
+
+    return null;
+  }
+
+  @Nullable
+  private Snapshot<M> read(File file) {
+    try (InputStream fileStream = new FileInputStream(file)) {
+      CheckedInputStream checked = new CheckedInputStream(fileStream, new CRC32());
+      DataInputStream in = new DataInputStream(checked);
+
+      if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+        return null;
+      }
+
+      long sequence = in.readLong();
+      long timestampMillis = in.readLong();
+      int length = in.readInt();
+      if (length < 0 || length > file.length()) {
+        return null;
+      }
+
+      byte[] model = new byte[length];
+      in.readFully(model);
+
+      int expected = (int) checked.getChecksum().getValue();
+      if (new DataInputStream(fileStream).readInt() != expected) {
+        return null;
+      }
+
+      return Snapshot.create(serializer.deserialize(model), sequence, timestampMillis);
+
+    } catch (IOException e) {
+      return null;
+    } catch (RuntimeException e) {
+      // the model couldn't be deserialized, for instance because its format has changed
+      return null;
+    }
+  }
+
+  private File snapshotFile(long sequence) {
+    return new File(
+        directory,
+        String.format(Locale.ROOT, "%s%020d%s", SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX));
+  }
+
+  private List<Long> listSnapshots() throws IOException {
+    String[] names = directory.list();
+    if (names == null) {
+      throw new IOException("Unable to list snapshot directory: " + directory);
+    }
+
+    List<Long> sequences = new ArrayList<>();
+    for (String name : names) {
+      if (name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX)) {
+        try {
+          sequences.add(
+              Long.parseLong(
+                  name.substring(
+                      SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length())));
+        } catch (NumberFormatException e) {
+          // not one of our files; ignore it
+        }
+      }
+    }
+
+    Collections.sort(sequences);
+    return sequences;
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.persistence;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.Update;
+import java.util.concurrent.ScheduledExecutorService;
+import javax.annotation.Nonnull;
+
+/**
+ * Configures how often snapshots of a loop's model get written to a {@link SnapshotStore}.
+ * Instances are immutable, and can be used to set up snapshotting for any number of loops.
+ *
+ * <p>Snapshots are taken by wrapping the update function of the loop using {@link
+ * #snapshotting(Update, long)}. The update function keeps track of the latest model and how many
+ * events the loop has processed, and when it's time for a new snapshot, it asks the executor to
+ * write the latest model. Serializing and writing the model happens on the executor, so it never
+ * slows down the loop. If the loop processes events faster than snapshots can be written,
+ * intermediate snapshots are skipped.
+ *
+ * <p>Snapshots can be used to start a loop using {@code Mobius.loop(...).startFrom(snapshot
+ * .model())}, or combined with an {@link EventJournal} using {@link
+ * Journaling#restore(com.spotify.mobius.MobiusLoop.Factory, Update, EventJournal, SnapshotStore,
+ * Object)}.
+ *
+ * @param <M> the model type
+ */
+public final class Snapshotter<M> {
+
+  static final int NEVER = 0;
+
+  private final SnapshotStore<M> store;
+  private final ScheduledExecutorService executor;
+  private final int everyEvents;
+  private final long everyMillis;
+
+  private Snapshotter(
+      SnapshotStore<M> store,
+      ScheduledExecutorService executor,
+      int everyEvents,
+      long everyMillis) {
+    this.store = checkNotNull(store);
+    this.executor = checkNotNull(executor);
+    this.everyEvents = everyEvents;
+    this.everyMillis = everyMillis;
+  }
+
+  /**
+   * Creates a snapshotter that writes snapshots to the supplied store on the supplied executor.
+   * Use {@link #everyEvents(int)} and/or {@link #everyMillis(long)} to define when to write
+   * snapshots.
+   *
+   * <p>The executor isn't shut down by the snapshotter, and can be shared with other work.
+   */
+  @Nonnull
+  public static <M> Snapshotter<M> create(
+      SnapshotStore<M> store, ScheduledExecutorService executor) {
+    return new Snapshotter<>(store, executor, NEVER, NEVER);
+  }
+
+  /**
+   * Returns a new {@link Snapshotter} that writes a snapshot once the loop has processed the given
+   * number of events since the last snapshot, and the same values as the current one for the
+   * other fields.
+   *
+   * @throws IllegalArgumentException if events is less than 1
+   */
+  @Nonnull
+  public Snapshotter<M> everyEvents(int events) {
+    if (events < 1) {
+      throw new IllegalArgumentException("events must be positive, was: " + events);
+    }
+
+    return new Snapshotter<>(store, executor, events, everyMillis);
+  }
+
+  /**
+   * Returns a new {@link Snapshotter} that writes a snapshot at most the given number of
+   * milliseconds after the model has changed, and the same values as the current one for the other
+   * fields. If the loop is idle, no snapshots are written.
+   *
+   * @throws IllegalArgumentException if millis is less than 1
+   */
+  @Nonnull
+  public Snapshotter<M> everyMillis(long millis) {
+    if (millis < 1) {
+      throw new IllegalArgumentException("millis must be positive, was: " + millis);
+    }
+
+    return new Snapshotter<>(store, executor, everyEvents, millis);
+  }
+
+  /**
+   * Returns an {@link Update} that takes snapshots of the model returned by the supplied update
+   * function, according to the configuration of this snapshotter. Each call returns an update
+   * function with its own event count, so use a separate call for each loop.
+   *
+   * <p>If the loop is also journaled, wrap the journaled update function, and pass {@link
+   * EventJournal#lastSequence()} as the start sequence, so that the sequence numbers of snapshots
+   * match those of the journal.
+   *
+   * @param update the update function to wrap
+   * @param startSequence the sequence number of the last event included in the model that the loop
+   *     starts from; 0 for a new loop
+   * @throws IllegalStateException if neither {@link #everyEvents(int)} nor {@link
+   *     #everyMillis(long)} has been configured
+   */
+  @Nonnull
+  public <E, F> Update<M, E, F> snapshotting(Update<M, E, F> update, long startSequence) {
+    if (everyEvents == NEVER && everyMillis == NEVER) {
+      throw new IllegalStateException(
+          "Configure when to take snapshots using everyEvents() or everyMillis()");
+    }
+
+    return new SnapshottingUpdate<>(
+        update, store, executor, everyEvents, everyMillis, startSequence);
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.persistence;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.Next;
+import com.spotify.mobius.Update;
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link Update} that keeps track of the latest model and event sequence number, and asks an
+ * executor to write a snapshot of them when the {@link Snapshotter} configuration says so.
+ */
+class SnapshottingUpdate<M, E, F> implements Update<M, E, F> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SnapshottingUpdate.class);
+
+  private final Update<M, E, F> actualUpdate;
+  private final SnapshotStore<M> store;
+  private final ScheduledExecutorService executor;
+  private final int everyEvents;
+  private final long everyMillis;
+
+  // guarded by this; written on the event thread, read by the writer
+  @Nullable private M latestModel;
+  private long latestSequence;
+
+  // only accessed on the event thread
+  private long requestedSequence;
+
+  // at most one write per trigger is pending at any time
+  private final AtomicBoolean writeQueued = new AtomicBoolean(false);
+  private final AtomicBoolean timerScheduled = new AtomicBoolean(false);
+
+  private final Object writeLock = new Object();
+  private long writtenSequence; // guarded by writeLock
+
+  private final Runnable writeTask =
+      new Runnable() {
+        @Override
+        public void run() {
+          writeQueued.set(false);
+          write();
+        }
+      };
+
+  private final Runnable timerTask =
+      new Runnable() {
+        @Override
+        public void run() {
+          timerScheduled.set(false);
+          write();
+        }
+      };
+
+  SnapshottingUpdate(
+      Update<M, E, F> actualUpdate,
+      SnapshotStore<M> store,
+      ScheduledExecutorService executor,
+      int everyEvents,
+      long everyMillis,
+      long startSequence) {
+    this.actualUpdate = checkNotNull(actualUpdate);
+    this.store = checkNotNull(store);
+    this.executor = checkNotNull(executor);
+    this.everyEvents = everyEvents;
+    this.everyMillis = everyMillis;
+    this.latestSequence = startSequence;
+    this.requestedSequence = startSequence;
+    this.writtenSequence = startSequence;
+  }
+
+  @Nonnull
+  @Override
+  public Next<M, F> update(M model, E event) {
+    Next<M, F> result = actualUpdate.update(model, event);
+
+    long sequence;
+    synchronized (this) {
+      latestModel = result.modelOrElse(model);
+      sequence = ++latestSequence;
+    }
+
+    if (everyEvents != Snapshotter.NEVER
+        && sequence - requestedSequence >= everyEvents
+        && schedule(writeQueued, writeTask, 0)) {
+      requestedSequence = sequence;
+    }
+
+    if (everyMillis != Snapshotter.NEVER) {
+      schedule(timerScheduled, timerTask, everyMillis);
+    }
+
+    return result;
+  }
+
+  /**
+   * Schedules a task, unless the flag says it already is scheduled. Returns true if it was
+   * scheduled.
+   */
+  private boolean schedule(AtomicBoolean scheduled, Runnable task, long delayMillis) {
+    if (!scheduled.compareAndSet(false, true)) {
+      return false;
+    }
+
+    try {
+      executor.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+      return true;
+    } catch (RejectedExecutionException e) {
+      scheduled.set(false);
+      LOGGER.warn("Unable to schedule snapshot, executor rejected it", e);
+      return false;
+    }
+  }
+
+  private void write() {
+    // Tasks clear their flag before reading the latest state, so that no update is missed: either
+    // it is included in this write, or it schedules a new one.
+    synchronized (writeLock) {
+      M model;
+      long sequence;
+
+      synchronized (this) {
+        model = latestModel;
+        sequence = latestSequence;
+      }
+
+      if (model == null || sequence <= writtenSequence) {
+        return;
+      }
+
+      try {
+        store.write(Snapshot.create(model, sequence, System.currentTimeMillis()));
+        writtenSequence = sequence;
+      } catch (IOException | RuntimeException e) {
+        LOGGER.error("Failed to write snapshot for sequence number {}", sequence, e);
+      }
+    }
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.runtime;
+
+import com.spotify.mobius.MobiusLoop;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Keeps track of how busy a loop is, and when it last did something, by acting as the loop's
+ * {@link MobiusLoop.Metrics}. All calls are forwarded to a delegate, if there is one.
+ */
+class LoopActivity implements MobiusLoop.Metrics {
+
+  @Nullable private final MobiusLoop.Metrics delegate;
+
+  @Nullable private volatile Gauge pendingEvents;
+  @Nullable private volatile Gauge pendingEffects;
+
+  private volatile long lastActiveNanos = System.nanoTime();
+
+  // only written on the loop's event thread
+  private volatile long eventsProcessed;
+
+  LoopActivity(@Nullable MobiusLoop.Metrics delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * Returns true if nothing has happened in the loop for at least {@code idleNanos}, and it has no
+   * pending events or effects.
+   */
+  boolean isIdle(long nowNanos, long idleNanos) {
+    return nowNanos - lastActiveNanos >= idleNanos
+        && value(pendingEvents) == 0
+        && value(pendingEffects) == 0;
+  }
+
+  /** Returns the number of events that have been dispatched to the loop but not processed. */
+  int pendingEvents() {
+    return value(pendingEvents);
+  }
+
+  <K> LoopLoad<K> load(K id, long nowNanos) {
+    return LoopLoad.create(
+        id,
+        value(pendingEvents),
+        value(pendingEffects),
+        eventsProcessed,
+        TimeUnit.NANOSECONDS.toMillis(nowNanos - lastActiveNanos));
+  }
+
+  private static int value(@Nullable Gauge gauge) {
+    return gauge == null ? 0 : gauge.value();
+  }
+
+  @Override
+  public void loopStarted(Gauge pendingEvents, Gauge pendingEffects) {
+    this.pendingEvents = pendingEvents;
+    this.pendingEffects = pendingEffects;
+
+    if (delegate != null) {
+      delegate.loopStarted(pendingEvents, pendingEffects);
+    }
+  }
+
+  @Override
+  public void loopDisposed(Gauge pendingEvents, Gauge pendingEffects) {
+    if (delegate != null) {
+      delegate.loopDisposed(pendingEvents, pendingEffects);
+    }
+  }
+
+  @Override
+  public void eventDispatched() {
+    lastActiveNanos = System.nanoTime();
+
+    if (delegate != null) {
+      delegate.eventDispatched();
+    }
+  }
+
+  @Override
+  public void eventDropped() {
+    if (delegate != null) {
+      delegate.eventDropped();
+    }
+  }
+
+  @Override
+  public void eventDequeued(long queueTimeNanos) {
+    if (delegate != null) {
+      delegate.eventDequeued(queueTimeNanos);
+    }
+  }
+
+  @Override
+  public void updateCompleted(long durationNanos) {
+    eventsProcessed++;
+    lastActiveNanos = System.nanoTime();
+
+    if (delegate != null) {
+      delegate.updateCompleted(durationNanos);
+    }
+  }
+
+  @Override
+  public void modelChanged() {
+    if (delegate != null) {
+      delegate.modelChanged();
+    }
+  }
+
+  @Override
+  public void effectDispatched() {
+    if (delegate != null) {
+      delegate.effectDispatched();
+    }
+  }
+
+  @Override
+  public void effectDequeued(long queueTimeNanos) {
+    lastActiveNanos = System.nanoTime();
+
+    if (delegate != null) {
+      delegate.effectDequeued(queueTimeNanos);
+    }
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.runtime;
+
+import com.google.auto.value.AutoValue;
+import javax.annotation.Nonnull;
+
+/**
+ * A sample of how busy a loop in a {@link MobiusRuntime} is.
+ *
+ * @param <K> the type of the loop ids
+ */
+@AutoValue
+public abstract class LoopLoad<K> {
+
+  @Nonnull
+  public abstract K id();
+
+  /** The number of events that have been dispatched to the loop but not yet processed. */
+  public abstract int pendingEvents();
+
+  /** The number of effects that have been emitted but not yet handed to the effect handler. */
+  public abstract int pendingEffects();
+
+  /** The number of events the loop has processed since it was started. */
+  public abstract long eventsProcessed();
+
+  /** The time since an event or effect was last dispatched or processed, in milliseconds. */
+  public abstract long idleMillis();
+
+  @Nonnull
+  static <K> LoopLoad<K> create(
+      K id, int pendingEvents, int pendingEffects, long eventsProcessed, long idleMillis) {
+    return new AutoValue_LoopLoad<>(id, pendingEvents, pendingEffects, eventsProcessed, idleMillis);
+  }
+}
@@ -0,0 +1,671 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.runtime;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.MobiusLoop;
+import com.spotify.mobius.disposables.Disposable;
+import com.spotify.mobius.functions.Producer;
+import com.spotify.mobius.runners.WorkRunner;
+import com.spotify.mobius.runners.WorkRunners;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs any number of loops of the same kind, identified by ids, on a shared set of threads.
+ *
+ * <p>This is intended for hosting one loop per session or user in a server. The runtime starts the
+ * loop for an id the first time it is used, loading its model from a {@link ModelStore}. All loops
+ * share one pool of event threads and one pool of effect threads, so the number of threads doesn't
+ * depend on the number of loops. Events for each loop are still processed one at a time and in
+ * order.
+ *
+ * <p>Loops can be stopped explicitly using {@link #stop(Object)}, and, if the runtime is configured
+ * to, they are stopped automatically after being idle for some time. When a loop is stopped, it
+ * first processes the events that are waiting in its queue, and then its most recent model is
+ * saved to the {@link ModelStore}, so that the loop can pick up where it left off the next time it
+ * is used. Loading and saving a model only holds up the loop it belongs to. Disposing the runtime
+ * stops all loops and shuts down its threads.
+ *
+ * <p>Loops are stopped on their own event threads, so {@link #stop(Object)} may be called from a
+ * model observer or an event source. When called from one of the runtime's event threads, it
+ * returns without waiting for the model to be saved. {@link #dispose()} must not be called from
+ * the runtime's event threads.
+ *
+ * <p>Loops should receive their events through {@link #dispatchEvent(Object, Object)}, which
+ * makes sure that the events aren't lost if the loop is being stopped concurrently. Events that
+ * are dispatched directly to a loop, including those from its event sources and effect handlers,
+ * count as activity, but may get dropped if they race with the loop being stopped.
+ *
+ * @param <K> the type of the loop ids, which must be usable as keys in a map
+ * @param <M> the model type
+ * @param <E> the event type
+ * @param <F> the effect type
+ */
+public final class MobiusRuntime<K, M, E, F> implements Disposable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MobiusRuntime.class);
+
+  static final long NO_EVICTION = 0;
+
+  // how many times a loop that is being stopped waits for events that keep arriving, before it
+  // gives up and drops them
+  static final int MAX_STOP_ATTEMPTS = 16;
+
+  // the runtime that owns the current thread, if it is an event thread
+  private static final ThreadLocal<Object> EVENT_THREAD_OWNER = new ThreadLocal<>();
+
+  private final MobiusLoop.Builder<M, E, F> loopBuilder;
+  private final ModelStore<K, M> modelStore;
+  @Nullable private final MobiusLoop.Metrics metrics;
+  private final long idleNanos;
+
+  private final ExecutorService eventExecutor;
+  private final ExecutorService effectExecutor;
+  @Nullable private final ScheduledExecutorService evictionExecutor;
+
+  private final ConcurrentMap<K, RunningLoop<M, E, F>> loops = new ConcurrentHashMap<>();
+
+  // Loops are started and marked as stopped while holding their own lock. A stopped loop's model
+  // is saved before a loop with the same id is started again, without loops holding each other up.
+  private final Object disposeLock = new Object();
+  private volatile boolean disposed;
+
+  private MobiusRuntime(Builder<K, M, E, F> builder) {
+    this.modelStore = builder.modelStore;
+    this.metrics = builder.metrics;
+    this.idleNanos = TimeUnit.MILLISECONDS.toNanos(builder.idleMillis);
+
+    this.eventExecutor =
+        Executors.newFixedThreadPool(
+            builder.eventThreads,
+            new DaemonThreadFactory("mobius-runtime-event-thread-%d", this));
+    this.effectExecutor =
+        Executors.newFixedThreadPool(
+            builder.effectThreads,
+            new DaemonThreadFactory("mobius-runtime-effect-thread-%d", null));
+
+    this.loopBuilder =
+        builder.loopBuilder.effectRunner(
+            new Producer<WorkRunner>() {
+              @Nonnull
+              @Override
+              public WorkRunner get() {
+                return WorkRunners.shared(effectExecutor);
+              }
+            });
+
+    if (builder.idleMillis == NO_EVICTION) {
+      this.evictionExecutor = null;
+    } else {
+      long period = Math.max(1, builder.idleMillis / 2);
+
+      this.evictionExecutor =
+          Executors.newSingleThreadScheduledExecutor(
+              new DaemonThreadFactory("mobius-runtime-eviction-thread-%d", null));
+      this.evictionExecutor.scheduleWithFixedDelay(
+          new Runnable() {
+            @Override
+            public void run() {
+              evictIdleLoops();
+            }
+          },
+          period,
+          period,
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Creates a {@link Builder} for a runtime that starts loops using the supplied loop builder, and
+   * loads and saves their models using the supplied model store.
+   *
+   * <p>The runtime replaces the event runner, effect runner and metrics of the loop builder. Use
+   * {@link Builder#metrics(MobiusLoop.Metrics)} to collect metrics for the loops.
+   */
+  @Nonnull
+  public static <K, M, E, F> Builder<K, M, E, F> builder(
+      MobiusLoop.Builder<M, E, F> loopBuilder, ModelStore<K, M> modelStore) {
+    int processors = Runtime.getRuntime().availableProcessors();
+
+    return new Builder<>(
+        checkNotNull(loopBuilder),
+        checkNotNull(modelStore),
+        processors,
+        processors,
+        NO_EVICTION,
+        null);
+  }
+
+  /**
+   * Returns the loop with the supplied id, starting it from the model returned by the {@link
+   * ModelStore} if it isn't running.
+   *
+   * @throws IllegalStateException if the runtime has been disposed
+   */
+  @Nonnull
+  public MobiusLoop<M, E, F> loop(K id) {
+    return checkNotNull(runningLoop(checkNotNull(id)).loop);
+  }
+
+  /**
+   * Dispatches an event to the loop with the supplied id, starting the loop if it isn't running.
+   * If the loop is being stopped, this waits for its model to be saved and then starts it again.
+   *
+   * @throws IllegalStateException if the runtime has been disposed, or if this is called from one
+   *     of the runtime's event threads while the loop is being stopped
+   */
+  public void dispatchEvent(K id, E event) {
+    checkNotNull(id);
+    checkNotNull(event);
+
+    // the loop may have been stopped after it was looked up, in which case it gets started again
+    while (!runningLoop(id).dispatchEvent(event)) {}
+  }
+
+  /**
+   * Stops the loop with the supplied id and saves its most recent model to the {@link
+   * ModelStore}, after processing the events that have already been dispatched to it. Returns
+   * false if no loop with that id was running.
+   *
+   * <p>This waits for the model to be saved, unless it is called from one of the runtime's event
+   * threads.
+   */
+  public boolean stop(K id) {
+    RunningLoop<M, E, F> running = loops.get(checkNotNull(id));
+
+    if (running == null || !stop(id, running, false)) {
+      return false;
+    }
+
+    if (!isEventThread()) {
+      running.awaitSaved();
+    }
+    return true;
+  }
+
+  /** Returns the ids of the loops that are currently running. */
+  @Nonnull
+  public Set<K> loopIds() {
+    Set<K> ids = new HashSet<>();
+
+    for (Map.Entry<K, RunningLoop<M, E, F>> entry : loops.entrySet()) {
+      if (entry.getValue().activity != null) {
+        ids.add(entry.getKey());
+      }
+    }
+
+    return Collections.unmodifiableSet(ids);
+  }
+
+  /**
+   * Returns how busy the loop with the supplied id is, or null if no loop with that id is running.
+   */
+  @Nullable
+  public LoopLoad<K> load(K id) {
+    RunningLoop<M, E, F> running = loops.get(checkNotNull(id));
+    LoopActivity activity = running == null ? null : running.activity;
+
+    return activity == null ? null : activity.load(id, System.nanoTime());
+  }
+
+  /** Returns how busy each of the loops that are currently running is. */
+  @Nonnull
+  public List<LoopLoad<K>> load() {
+    long now = System.nanoTime();
+    List<LoopLoad<K>> result = new ArrayList<>(loops.size());
+
+    for (Map.Entry<K, RunningLoop<M, E, F>> entry : loops.entrySet()) {
+      LoopActivity activity = entry.getValue().activity;
+      if (activity != null) {
+        result.add(activity.load(entry.getKey(), now));
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Stops all loops, saving their models to the {@link ModelStore}, and shuts down the threads of
+   * the runtime. Like {@link #stop(Object)}, this first processes the events that have already
+   * been dispatched to the loops. The runtime can't be used after it has been disposed.
+   *
+   * @throws IllegalStateException if called from one of the runtime's event threads, since it
+   *     needs them to stop the loops
+   */
+  @Override
+  public void dispose() {
+    if (isEventThread()) {
+      throw new IllegalStateException("A runtime can't be disposed from one of its event threads");
+    }
+
+    synchronized (disposeLock) {
+      if (disposed) {
+        return;
+      }
+
+      // loops that are being started concurrently either see this flag, or are already in the map
+      disposed = true;
+
+      List<RunningLoop<M, E, F>> stopping = new ArrayList<>(loops.size());
+      for (Map.Entry<K, RunningLoop<M, E, F>> entry : loops.entrySet()) {
+        stop(entry.getKey(), entry.getValue(), false);
+        stopping.add(entry.getValue());
+      }
+
+      // the loops are stopped on the event threads, so they must be done before shutting them down
+      for (RunningLoop<M, E, F> running : stopping) {
+        if (running.stopped) {
+          running.awaitSaved();
+        }
+      }
+
+      if (evictionExecutor != null) {
+        evictionExecutor.shutdown();
+      }
+      eventExecutor.shutdown();
+      effectExecutor.shutdown();
+    }
+  }
+
+  /** Stops all loops that have been idle for longer than the configured time. */
+  int evictIdleLoops() {
+    int evicted = 0;
+
+    for (Map.Entry<K, RunningLoop<M, E, F>> entry : loops.entrySet()) {
+      if (stop(entry.getKey(), entry.getValue(), true)) {
+        evicted++;
+      }
+    }
+
+    return evicted;
+  }
+
+  /** Returns the started loop with the supplied id, starting it if needed. */
+  private RunningLoop<M, E, F> runningLoop(K id) {
+    while (true) {
+      RunningLoop<M, E, F> running = loops.get(id);
+
+      if (running == null) {
+        if (disposed) {
+          throw new IllegalStateException("This runtime has already been disposed");
+        }
+
+        RunningLoop<M, E, F> created = new RunningLoop<>();
+        running = loops.putIfAbsent(id, created);
+        if (running == null) {
+          running = created;
+        }
+      }
+
+      if (running.activity != null && !running.stopped) {
+        return running;
+      }
+
+      if (start(id, running)) {
+        return running;
+      }
+
+      // the loop is being stopped, and a new one can be started once its model has been saved
+      if (!running.isSaved() && isEventThread()) {
+        // waiting could deadlock, since the loop may need this thread to finish stopping
+        throw new IllegalStateException(
+            "Loop " + id + " is being stopped and can't be restarted from an event thread");
+      }
+
+      running.awaitSaved();
+      loops.remove(id, running);
+    }
+  }
+
+  /** Returns true if the current thread is one of this runtime's event threads. */
+  private boolean isEventThread() {
+    return EVENT_THREAD_OWNER.get() == this;
+  }
+
+  /**
+   * Starts the loop, unless it already has been. Returns false if it has been stopped. Only the
+   * lock of the loop itself is held while loading its model, so that a slow {@link ModelStore}
+   * doesn't hold up other loops.
+   */
+  private boolean start(K id, RunningLoop<M, E, F> running) {
+    synchronized (running) {
+      if (running.stopped) {
+        return false;
+      }
+
+      if (running.activity != null) {
+        return true;
+      }
+
+      try {
+        if (disposed) {
+          throw new IllegalStateException("This runtime has already been disposed");
+        }
+
+        LoopActivity activity = new LoopActivity(metrics);
+        final WorkRunner eventRunner = WorkRunners.serial(eventExecutor);
+
+        running.loop =
+            loopBuilder
+                .eventRunner(
+                    new Producer<WorkRunner>() {
+                      @Nonnull
+                      @Override
+                      public WorkRunner get() {
+                        return eventRunner;
+                      }
+                    })
+                .metrics(activity)
+                .startFrom(checkNotNull(modelStore.load(id)));
+        running.eventRunner = eventRunner;
+        running.activity = activity;
+        return true;
+
+      } catch (RuntimeException e) {
+        running.stopped = true;
+        loops.remove(id, running);
+        running.saved.countDown();
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Stops the loop once it has processed the events that have been dispatched to it, and saves its
+   * model. If {@code onlyIfIdle} is true, the loop is only stopped if it has been idle for the
+   * configured time. Returns false if the loop wasn't stopped. The loop is stopped by a task on its
+   * event runner, so this doesn't wait for the model to be saved; use {@link
+   * RunningLoop#awaitSaved()} for that.
+   */
+  private boolean stop(K id, RunningLoop<M, E, F> running, boolean onlyIfIdle) {
+    WorkRunner eventRunner;
+
+    synchronized (running) {
+      LoopActivity activity = running.activity;
+      eventRunner = running.eventRunner;
+
+      if (running.stopped || activity == null || eventRunner == null) {
+        return false;
+      }
+
+      if (onlyIfIdle && !activity.isIdle(System.nanoTime(), idleNanos)) {
+        return false;
+      }
+
+      // from here on, dispatchEvent waits for the model to be saved and then starts a new loop
+      running.stopped = true;
+    }
+
+    eventRunner.post(new StopTask(id, running, eventRunner));
+    return true;
+  }
+
+  /**
+   * Disposes a loop and saves its model once it has processed all events that are waiting in its
+   * queue. Events are processed on the loop's serial event runner, so when this task runs, the
+   * events that were queued before it have been processed. The pending event count tells if more
+   * events were queued after it, in which case the task posts itself again, up to {@link
+   * #MAX_STOP_ATTEMPTS} times.
+   */
+  private final class StopTask implements Runnable {
+    private final K id;
+    private final RunningLoop<M, E, F> running;
+    private final WorkRunner eventRunner;
+    private int attempts;
+
+    private StopTask(K id, RunningLoop<M, E, F> running, WorkRunner eventRunner) {
+      this.id = id;
+      this.running = running;
+      this.eventRunner = eventRunner;
+    }
+
+    @Override
+    public void run() {
+      int pendingEvents = checkNotNull(running.activity).pendingEvents();
+      attempts++;
+
+      if (pendingEvents > 0 && attempts < MAX_STOP_ATTEMPTS) {
+        eventRunner.post(this);
+        return;
+      }
+
+      if (pendingEvents > 0) {
+        LOGGER.warn("Loop {} kept receiving events while stopping, dropping {}", id, pendingEvents);
+      }
+
+      try {
+        MobiusLoop<M, E, F> loop = checkNotNull(running.loop);
+        loop.dispose();
+        modelStore.save(id, checkNotNull(loop.getMostRecentModel()));
+      } catch (RuntimeException e) {
+        LOGGER.error("Failed to save the model of loop {}", id, e);
+      } finally {
+        loops.remove(id, running);
+        running.saved.countDown();
+      }
+    }
+  }
+
+  /**
+   * The state of one loop. Starting the loop, marking it as stopped, and dispatching events to it,
+   * happen while holding the lock of this object.
+   */
+  private static final class RunningLoop<M, E, F> {
+    // written once, while holding the lock, before the loop is visible as started
+    @Nullable private volatile MobiusLoop<M, E, F> loop;
+    @Nullable private volatile LoopActivity activity;
+    @Nullable private volatile WorkRunner eventRunner;
+
+    private volatile boolean stopped;
+
+    // counted down once a stopped loop has been disposed and its model saved
+    private final CountDownLatch saved = new CountDownLatch(1);
+
+    boolean isSaved() {
+      return saved.getCount() == 0;
+    }
+
+    /**
+     * Waits until the loop has been disposed and its model saved. If the thread is interrupted,
+     * this keeps waiting, and leaves the interrupt flag set.
+     */
+    void awaitSaved() {
+      boolean interrupted = false;
+
+      while (true) {
+        try {
+          saved.await();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    /** Returns false if the loop has been stopped, in which case the event wasn't dispatched. */
+    synchronized boolean dispatchEvent(E event) {
+      if (stopped || loop == null) {
+        return false;
+      }
+
+      loop.dispatchEvent(event);
+      return true;
+    }
+  }
+
+  private static final class DaemonThreadFactory implements ThreadFactory {
+    private final AtomicLong threadCount = new AtomicLong(0);
+    private final String nameFormat;
+    @Nullable private final Object owner;
+
+    /** Creates threads that are marked as event threads of {@code owner}, if it isn't null. */
+    private DaemonThreadFactory(String nameFormat, @Nullable Object owner) {
+      this.nameFormat = nameFormat;
+      this.owner = owner;
+    }
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+      checkNotNull(runnable);
+
+      Runnable target = runnable;
+      if (owner != null) {
+        target =
+            new Runnable() {
+              @Override
+              public void run() {
+                EVENT_THREAD_OWNER.set(owner);
+                runnable.run();
+              }
+            };
+      }
+
+      Thread thread = Executors.defaultThreadFactory().newThread(target);
+
+      thread.setName(String.format(Locale.ENGLISH, nameFormat, threadCount.incrementAndGet()));
+      thread.setDaemon(true);
+
+      return thread;
+    }
+  }
+
+  /**
+   * Configures a {@link MobiusRuntime}. Instances are immutable.
+   *
+   * @param <K> the type of the loop ids
+   * @param <M> the model type
+   * @param <E> the event type
+   * @param <F> the effect type
+   */
+  public static final class Builder<K, M, E, F> {
+    private final MobiusLoop.Builder<M, E, F> loopBuilder;
+    private final ModelStore<K, M> modelStore;
+    private final int eventThreads;
+    private final int effectThreads;
+    private final long idleMillis;
+    @Nullable private final MobiusLoop.Metrics metrics;
+
+    private Builder(
+        MobiusLoop.Builder<M, E, F> loopBuilder,
+        ModelStore<K, M> modelStore,
+        int eventThreads,
+        int effectThreads,
+        long idleMillis,
+        @Nullable MobiusLoop.Metrics metrics) {
+      this.loopBuilder = loopBuilder;
+      this.modelStore = modelStore;
+      this.eventThreads = eventThreads;
+      this.effectThreads = effectThreads;
+      this.idleMillis = idleMillis;
+      this.metrics = metrics;
+    }
+
+    /**
+     * Returns a new {@link Builder} whose runtime processes events on the given number of threads,
+     * and the same values as the current one for the other fields. The default is the number of
+     * available processors.
+     *
+     * @throws IllegalArgumentException if threads is less than 1
+     */
+    @Nonnull
+    public Builder<K, M, E, F> eventThreads(int threads) {
+      if (threads < 1) {
+        throw new IllegalArgumentException("threads must be positive, was: " + threads);
+      }
+
+      return new Builder<>(loopBuilder, modelStore, threads, effectThreads, idleMillis, metrics);
+    }
+
+    /**
+     * Returns a new {@link Builder} whose runtime runs effect handlers on the given number of
+     * threads, and the same values as the current one for the other fields. The default is the
+     * number of available processors, so effect handlers that block should configure more.
+     *
+     * @throws IllegalArgumentException if threads is less than 1
+     */
+    @Nonnull
+    public Builder<K, M, E, F> effectThreads(int threads) {
+      if (threads < 1) {
+        throw new IllegalArgumentException("threads must be positive, was: " + threads);
+      }
+
+      return new Builder<>(loopBuilder, modelStore, eventThreads, threads, idleMillis, metrics);
+    }
+
+    /**
+     * Returns a new {@link Builder} whose runtime stops loops that haven't dispatched or processed
+     * any events or effects for the given time, and the same values as the current one for the
+     * other fields. By default, loops are only stopped when {@link MobiusRuntime#stop(Object)} is
+     * called or the runtime is disposed.
+     *
+     * @throws IllegalArgumentException if the duration is less than 1 millisecond
+     */
+    @Nonnull
+    public Builder<K, M, E, F> evictIdleAfter(long duration, TimeUnit unit) {
+      long millis = checkNotNull(unit).toMillis(duration);
+      if (millis < 1) {
+        throw new IllegalArgumentException(
+            "duration must be at least 1 millisecond, was: " + duration + " " + unit);
+      }
+
+      return new Builder<>(loopBuilder, modelStore, eventThreads, effectThreads, millis, metrics);
+    }
+
+    /**
+     * Returns a new {@link Builder} whose runtime reports metrics for all its loops to the supplied
+     * {@link MobiusLoop.Metrics}, and the same values as the current one for the other fields.
+     */
+    @Nonnull
+    public Builder<K, M, E, F> metrics(MobiusLoop.Metrics metrics) {
+      return new Builder<>(
+          loopBuilder, modelStore, eventThreads, effectThreads, idleMillis, checkNotNull(metrics));
+    }
+
+    /** Creates a runtime with the configuration of this builder, and starts its threads. */
+    @Nonnull
+    public MobiusRuntime<K, M, E, F> build() {
+      return new MobiusRuntime<>(this);
+    }
+  }
+}
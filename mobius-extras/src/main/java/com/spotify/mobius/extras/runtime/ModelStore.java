@@ -0,0 +1,45 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.runtime;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Loads and saves the models of the loops in a {@link MobiusRuntime}.
+ *
+ * <p>The runtime loads the model of a loop when it starts the loop, and saves its most recent
+ * model when it stops it, for instance because it has been idle for too long. Calls for the same
+ * id never overlap, and a model is always saved before the loop for the same id is started again.
+ *
+ * @param <K> the type of the loop ids
+ * @param <M> the model type
+ */
+public interface ModelStore<K, M> {
+
+  /**
+   * Returns the model to start the loop with the supplied id from. This is either a model that
+   * was previously saved for the id, or the initial model of a new loop.
+   */
+  @Nonnull
+  M load(K id);
+
+  /** Saves the most recent model of the loop with the supplied id, which has been stopped. */
+  void save(K id, M model);
+}
@@ -0,0 +1,402 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.runtime;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.MobiusLoop;
+import com.spotify.mobius.disposables.Disposable;
+import com.spotify.mobius.extras.persistence.Serializer;
+import com.spotify.mobius.functions.Consumer;
+import com.spotify.mobius.internal_util.FireAtLeastOnceObserver;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A loop that releases its resources while it is idle, and transparently starts again when it
+ * receives an event.
+ *
+ * <p>A running {@link MobiusLoop} holds on to its work runners, its effect handler connection and
+ * its event source subscription until it is disposed. When a passivating loop hasn't received
+ * any events and its model hasn't changed for the configured time, it disposes its loop and keeps
+ * only the most recent model. If a {@link Serializer} is configured, the model is serialized
+ * into a direct buffer, so it doesn't take up space on the Java heap either. The next call to
+ * {@link #dispatchEvent(Object)} starts a new loop from the model, using the {@link
+ * MobiusLoop.Factory} of the passivating loop.
+ *
+ * <p>Since passivation disposes the effect handler, effects that are still running when the loop
+ * is passivated are cancelled, and events that are dispatched directly to the loop by its effect
+ * handler or event source after that are dropped. The idle time should therefore be longer than
+ * the longest running effect. Model observers stay registered across passivation, but receive the
+ * current model again when the loop is started again.
+ *
+ * <p>Passivation also drops events that have been dispatched but are still waiting in the loop's
+ * event queue, since the loop is created by a {@link MobiusLoop.Factory} whose event runner the
+ * passivating loop can't wait for. Dispatching an event counts as activity, so a loop is only
+ * passivated for being idle if no event has been dispatched to it for the configured time; that
+ * time should be longer than it takes the loop to work through its queue. {@link #passivate()}
+ * should only be called when no events are in flight, for instance from the thread that
+ * dispatches events to a loop with an immediate event runner.
+ *
+ * @param <M> the model type
+ * @param <E> the event type
+ * @param <F> the effect type
+ */
+public final class PassivatingLoop<M, E, F> implements Disposable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PassivatingLoop.class);
+
+  static final long DEFAULT_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+  private final MobiusLoop.Factory<M, E, F> loopFactory;
+  private final ScheduledExecutorService scheduler;
+  private final long idleNanos;
+  @Nullable private final Serializer<M> serializer;
+
+  private final List<Consumer<M>> modelObservers = new CopyOnWriteArrayList<>();
+
+  private final Consumer<M> modelForwarder =
+      new Consumer<M>() {
+        @Override
+        public void accept(M model) {
+          lastActiveNanos = System.nanoTime();
+
+          for (Consumer<M> observer : modelObservers) {
+            observer.accept(model);
+          }
+        }
+      };
+
+  private final Runnable passivationCheck =
+      new Runnable() {
+        @Override
+        public void run() {
+          passivateIfIdle(System.nanoTime());
+        }
+      };
+
+  private volatile long lastActiveNanos;
+
+  // guarded by this; exactly one of loop, passivatedModel and passivatedBytes is set until the
+  // loop has been disposed
+  @Nullable private MobiusLoop<M, E, F> loop;
+  @Nullable private M passivatedModel;
+  @Nullable private ByteBuffer passivatedBytes;
+  @Nullable private ScheduledFuture<?> scheduledCheck;
+  private boolean disposed;
+
+  private PassivatingLoop(Builder<M, E, F> builder, M startModel) {
+    this.loopFactory = builder.loopFactory;
+    this.scheduler = builder.scheduler;
+    this.idleNanos = TimeUnit.MILLISECONDS.toNanos(builder.idleMillis);
+    this.serializer = builder.serializer;
+
+    synchronized (this) {
+      activate(loopFactory.startFrom(startModel));
+    }
+  }
+
+  /**
+   * Creates a {@link Builder} for passivating loops that are started using the supplied loop
+   * factory. The supplied executor is used to check if the loops are idle, and can be shared by
+   * any number of loops.
+   */
+  @Nonnull
+  public static <M, E, F> Builder<M, E, F> builder(
+      MobiusLoop.Factory<M, E, F> loopFactory, ScheduledExecutorService scheduler) {
+    return new Builder<>(
+        checkNotNull(loopFactory), checkNotNull(scheduler), DEFAULT_IDLE_MILLIS, null);
+  }
+
+  /**
+   * Dispatches an event to the loop, starting it from its most recent model first if it has been
+   * passivated.
+   *
+   * @throws IllegalStateException if the loop has been disposed
+   */
+  public synchronized void dispatchEvent(E event) {
+    checkNotNull(event);
+
+    if (disposed) {
+      throw new IllegalStateException(
+          "This loop has already been disposed. You cannot dispatch events after disposal - event"
+              + " received: "
+              + event);
+    }
+
+    if (loop == null) {
+      activate(loopFactory.startFrom(takePassivatedModel()));
+    }
+
+    lastActiveNanos = System.nanoTime();
+    loop.dispatchEvent(event);
+  }
+
+  /**
+   * Returns the most recent model of the loop. If the loop is passivated, this is the model it will
+   * be started from.
+   *
+   * @throws IllegalStateException if the loop has been disposed
+   */
+  @Nonnull
+  public synchronized M getMostRecentModel() {
+    if (disposed) {
+      throw new IllegalStateException(
+          "This loop has already been disposed. You cannot get the model of a disposed loop");
+    }
+
+    if (loop != null) {
+      return checkNotNull(loop.getMostRecentModel());
+    }
+
+    if (passivatedBytes != null) {
+      return deserialize(checkNotNull(serializer), passivatedBytes);
+    }
+
+    return checkNotNull(passivatedModel);
+  }
+
+  /**
+   * Adds an observer that is notified of model changes, and immediately receives the most recent
+   * model. The observer stays registered while the loop is passivated, and receives the model
+   * again when the loop is started again.
+   *
+   * @return a {@link Disposable} that removes the observer
+   * @throws IllegalStateException if the loop has been disposed
+   */
+  @Nonnull
+  public Disposable observe(Consumer<M> observer) {
+    final FireAtLeastOnceObserver<M> fireAtLeastOnce =
+        new FireAtLeastOnceObserver<>(checkNotNull(observer));
+    final M currentModel;
+
+    synchronized (this) {
+      if (disposed) {
+        throw new IllegalStateException(
+            "This loop has already been disposed. You cannot observe a disposed loop");
+      }
+
+      modelObservers.add(fireAtLeastOnce);
+      currentModel = getMostRecentModel();
+    }
+
+    // Start by emitting the current model, unless a racing model change has already been emitted
+    fireAtLeastOnce.acceptIfFirst(currentModel);
+
+    return new Disposable() {
+      @Override
+      public void dispose() {
+        modelObservers.remove(fireAtLeastOnce);
+      }
+    };
+  }
+
+  /** Returns true if the loop is running, and false if it is passivated or has been disposed. */
+  public synchronized boolean isActive() {
+    return loop != null;
+  }
+
+  /**
+   * Passivates the loop right away, whether it is idle or not. Events that are still waiting in the
+   * loop's event queue are dropped. Returns false if the loop already was passivated or has been
+   * disposed.
+   */
+  public synchronized boolean passivate() {
+    if (loop == null) {
+      return false;
+    }
+
+    cancelScheduledCheck();
+
+    MobiusLoop<M, E, F> stopped = loop;
+    loop = null;
+
+    stopped.dispose();
+    storePassivatedModel(checkNotNull(stopped.getMostRecentModel()));
+    return true;
+  }
+
+  /** Disposes the loop. The loop can't be used after it has been disposed. */
+  @Override
+  public synchronized void dispose() {
+    if (disposed) {
+      return;
+    }
+
+    disposed = true;
+    cancelScheduledCheck();
+    modelObservers.clear();
+
+    if (loop != null) {
+      loop.dispose();
+      loop = null;
+    }
+
+    passivatedModel = null;
+    passivatedBytes = null;
+  }
+
+  /** Passivates the loop if it has been idle for the configured time. Returns true if it was. */
+  synchronized boolean passivateIfIdle(long nowNanos) {
+    if (loop == null) {
+      return false;
+    }
+
+    long idleFor = nowNanos - lastActiveNanos;
+    if (idleFor >= idleNanos) {
+      return passivate();
+    }
+
+    scheduleCheck(idleNanos - idleFor);
+    return false;
+  }
+
+  private void activate(MobiusLoop<M, E, F> started) {
+    loop = started;
+    lastActiveNanos = System.nanoTime();
+
+    started.observe(modelForwarder);
+    scheduleCheck(idleNanos);
+  }
+
+  private void scheduleCheck(long delayNanos) {
+    try {
+      scheduledCheck = scheduler.schedule(passivationCheck, delayNanos, TimeUnit.NANOSECONDS);
+    } catch (RejectedExecutionException e) {
+      scheduledCheck = null;
+      LOGGER.warn("Unable to schedule passivation check, loop will stay active", e);
+    }
+  }
+
+  private void cancelScheduledCheck() {
+    if (scheduledCheck != null) {
+      scheduledCheck.cancel(false);
+      scheduledCheck = null;
+    }
+  }
+
+  private void storePassivatedModel(M model) {
+    if (serializer == null) {
+      passivatedModel = model;
+      return;
+    }
+
+    try {
+      byte[] bytes = serializer.serialize(model);
+      passivatedBytes = ByteBuffer.allocateDirect(bytes.length);
+      passivatedBytes.put(bytes);
+    } catch (RuntimeException e) {
+      LOGGER.warn("Failed to serialize model, keeping it on the heap instead", e);
+      passivatedModel = model;
+    }
+  }
+
+  private M takePassivatedModel() {
+    M model;
+
+    if (passivatedBytes != null) {
+      model = deserialize(checkNotNull(serializer), passivatedBytes);
+    } else {
+      model = checkNotNull(passivatedModel);
+    }
+
+    passivatedModel = null;
+    passivatedBytes = null;
+    return model;
+  }
+
+  private static <M> M deserialize(Serializer<M> serializer, ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.capacity()];
+
+    ByteBuffer view = buffer.duplicate();
+    view.clear();
+    view.get(bytes);
+
+    return checkNotNull(serializer.deserialize(bytes));
+  }
+
+  /**
+   * Configures a {@link PassivatingLoop}. Instances are immutable.
+   *
+   * @param <M> the model type
+   * @param <E> the event type
+   * @param <F> the effect type
+   */
+  public static final class Builder<M, E, F> {
+    private final MobiusLoop.Factory<M, E, F> loopFactory;
+    private final ScheduledExecutorService scheduler;
+    private final long idleMillis;
+    @Nullable private final Serializer<M> serializer;
+
+    private Builder(
+        MobiusLoop.Factory<M, E, F> loopFactory,
+        ScheduledExecutorService scheduler,
+        long idleMillis,
+        @Nullable Serializer<M> serializer) {
+      this.loopFactory = loopFactory;
+      this.scheduler = scheduler;
+      this.idleMillis = idleMillis;
+      this.serializer = serializer;
+    }
+
+    /**
+     * Returns a new {@link Builder} whose loops are passivated after being idle for the given
+     * time, and the same values as the current one for the other fields. The default is one
+     * minute.
+     *
+     * @throws IllegalArgumentException if the duration is less than 1 millisecond
+     */
+    @Nonnull
+    public Builder<M, E, F> passivateAfter(long duration, TimeUnit unit) {
+      long millis = checkNotNull(unit).toMillis(duration);
+      if (millis < 1) {
+        throw new IllegalArgumentException(
+            "duration must be at least 1 millisecond, was: " + duration + " " + unit);
+      }
+
+      return new Builder<>(loopFactory, scheduler, millis, serializer);
+    }
+
+    /**
+     * Returns a new {@link Builder} whose loops keep the model serialized outside of the Java heap
+     * while they are passivated, and the same values as the current one for the other fields. By
+     * default, the model object itself is kept.
+     */
+    @Nonnull
+    public Builder<M, E, F> serializer(Serializer<M> serializer) {
+      return new Builder<>(loopFactory, scheduler, idleMillis, checkNotNull(serializer));
+    }
+
+    /** Starts a passivating loop from the supplied model. */
+    @Nonnull
+    public PassivatingLoop<M, E, F> startFrom(M startModel) {
+      return new PassivatingLoop<>(this, checkNotNull(startModel));
+    }
+  }
+}
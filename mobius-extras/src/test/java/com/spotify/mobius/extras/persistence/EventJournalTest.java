@@ -0,0 +1,227 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EventJournalTest {
+
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  private File directory;
+  private List<String> replayed;
+
+  @Before
+  public void setUp() throws Exception {
+    directory = new File(folder.getRoot(), "journal");
+    replayed = new ArrayList<>();
+  }
+
+  @Test
+  public void shouldAssignIncreasingSequenceNumbers() throws Exception {
+    EventJournal<String> journal = EventJournal.open(directory, new StringSerializer());
+
+    assertThat(journal.lastSequence()).isEqualTo(0);
+    assertThat(journal.append("one")).isEqualTo(1);
+    assertThat(journal.append("two")).isEqualTo(2);
+    assertThat(journal.lastSequence()).isEqualTo(2);
+
+    journal.close();
+  }
+
+  @Test
+  public void shouldReplayEventsAfterSequenceNumber() throws Exception {
+    EventJournal<String> journal = EventJournal.open(directory, new StringSerializer());
+    journal.append("one");
+    journal.append("two");
+    journal.append("three");
+
+    long last = journal.replay(1, replayed::add);
+
+    assertThat(replayed).containsExactly("two", "three");
+    assertThat(last).isEqualTo(3);
+
+    journal.close();
+  }
+
+  @Test
+  public void shouldRollSegmentsWhenFull() throws Exception {
+    EventJournal<String> journal = EventJournal.open(directory, new StringSerializer(), 128);
+
+    for (int i = 1; i <= 50; i++) {
+      journal.append("event-" + i);
+    }
+
+    journal.replay(40, replayed::add);
+
+    assertThat(EventJournal.listSegments(directory).size()).isGreaterThan(1);
+    assertThat(replayed).hasSize(10).startsWith("event-41").endsWith("event-50");
+
+    journal.close();
+  }
+
+  @Test
+  public void shouldContinueAfterLastEventWhenReopened() throws Exception {
+    EventJournal<String> journal = EventJournal.open(directory, new StringSerializer(), 128);
+    for (int i = 1; i <= 20; i++) {
+      journal.append("event-" + i);
+    }
+    journal.close();
+
+    journal = EventJournal.open(directory, new StringSerializer(), 128);
+
+    assertThat(journal.lastSequence()).isEqualTo(20);
+    assertThat(journal.append("event-21")).isEqualTo(21);
+
+    journal.replay(19, replayed::add);
+    assertThat(replayed).containsExactly("event-20", "event-21");
+
+    journal.close();
+  }
+
+  @Test
+  public void shouldDiscardPartiallyWrittenEvent() throws Exception {
+    EventJournal<String> journal = EventJournal.open(directory, new StringSerializer());
+    journal.append("one");
+    journal.append("two");
+    journal.close();
+
+    // corrupt the payload of the last event, like a write that was interrupted halfway
+    File segment = EventJournal.segmentFile(directory, 1);
+    try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+      // segment header (16 bytes) + first record (8 + 3 bytes) + second record header (8 bytes)
+      file.seek(16 + 11 + 8);
+      file.write('X');
+    }
+
+    journal = EventJournal.open(directory, new StringSerializer());
+    journal.replay(0, replayed::add);
+
+    assertThat(journal.lastSequence()).isEqualTo(1);
+    assertThat(replayed).containsExactly("one");
+
+    assertThat(journal.append("three")).isEqualTo(2);
+
+    journal.close();
+  }
+
+  @Test
+  public void shouldReplayEventsWithEmptyPayload() throws Exception {
+    EventJournal<String> journal = EventJournal.open(directory, new StringSerializer());
+    journal.append("");
+    journal.append("two");
+
+    journal.replay(0, replayed::add);
+    journal.close();
+
+    assertThat(replayed).containsExactly("", "two");
+
+    replayed.clear();
+    journal = EventJournal.open(directory, new StringSerializer());
+    journal.replay(0, replayed::add);
+
+    assertThat(replayed).containsExactly("", "two");
+    assertThat(journal.lastSequence()).isEqualTo(2);
+
+    journal.close();
+  }
+
+  @Test
+  public void shouldDeleteSegmentsCoveredBySequenceNumber() throws Exception {
+    EventJournal<String> journal = EventJournal.open(directory, new StringSerializer(), 128);
+
+    for (int i = 1; i <= 50; i++) {
+      journal.append("event-" + i);
+    }
+
+    int segments = directory.list().length;
+    int deleted = journal.deleteSegmentsUpTo(40);
+
+    assertThat(deleted).isPositive();
+    assertThat(directory.list()).hasSize(segments - deleted);
+
+    journal.replay(40, replayed::add);
+    assertThat(replayed).hasSize(10).startsWith("event-41").endsWith("event-50");
+
+    journal.close();
+  }
+
+  @Test
+  public void shouldRejectEventsThatDoNotFitInSegment() throws Exception {
+    EventJournal<String> journal = EventJournal.open(directory, new StringSerializer(), 64);
+
+    assertThatThrownBy(() -> journal.append(new String(new char[100])))
+        .isInstanceOf(IllegalArgumentException.class);
+
+    journal.close();
+  }
+
+  @Test
+  public void shouldIgnoreSegmentThatWasBeingCreatedWhenProcessDied() throws Exception {
+    EventJournal<String> journal = EventJournal.open(directory, new StringSerializer(), 128);
+    journal.append("one");
+    journal.close();
+
+    // a zero-filled segment that never got its header, like after a crash while rolling over
+    File temp = new File(directory, EventJournal.segmentFile(directory, 2).getName() + ".tmp");
+    try (RandomAccessFile file = new RandomAccessFile(temp, "rw")) {
+      file.setLength(128);
+    }
+
+    journal = EventJournal.open(directory, new StringSerializer(), 128);
+    journal.replay(0, replayed::add);
+
+    assertThat(replayed).containsExactly("one");
+    assertThat(journal.append("two")).isEqualTo(2);
+    assertThat(temp).doesNotExist();
+
+    journal.close();
+  }
+
+  @Test
+  public void shouldOnlyAllowOneJournalPerDirectory() throws Exception {
+    EventJournal<String> journal = EventJournal.open(directory, new StringSerializer());
+
+    assertThatThrownBy(() -> EventJournal.open(directory, new StringSerializer()))
+        .isInstanceOf(IOException.class);
+
+    journal.close();
+    EventJournal.open(directory, new StringSerializer()).close();
+  }
+
+  @Test
+  public void shouldRejectUseAfterClose() throws Exception {
+    EventJournal<String> journal = EventJournal.open(directory, new StringSerializer());
+    journal.close();
+
+    assertThatThrownBy(() -> journal.append("one")).isInstanceOf(IllegalStateException.class);
+  }
+}
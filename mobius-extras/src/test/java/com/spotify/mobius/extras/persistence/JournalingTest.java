@@ -0,0 +1,145 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.spotify.mobius.Effects;
+import com.spotify.mobius.Mobius;
+import com.spotify.mobius.MobiusLoop;
+import com.spotify.mobius.Next;
+import com.spotify.mobius.Update;
+import com.spotify.mobius.runners.WorkRunners;
+import com.spotify.mobius.test.RecordingConsumer;
+import com.spotify.mobius.test.SimpleConnection;
+import java.io.File;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JournalingTest {
+
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  private final RecordingConsumer<String> effects = new RecordingConsumer<>();
+
+  private final Update<String, String, String> update =
+      (model, event) -> Next.next(model + event, Effects.effects("effect-" + event));
+
+  private EventJournal<String> journal;
+
+  @Before
+  public void setUp() throws Exception {
+    journal = EventJournal.open(new File(folder.getRoot(), "journal"), new StringSerializer());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    journal.close();
+  }
+
+  @Test
+  public void shouldJournalProcessedEvents() throws Exception {
+    MobiusLoop<String, String, String> loop = loopFactory().startFrom("");
+
+    loop.dispatchEvent("a");
+    loop.dispatchEvent("b");
+    loop.dispose();
+
+    assertThat(journal.lastSequence()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldReplayEventsWithoutEffects() throws Exception {
+    journal.append("a");
+    journal.append("b");
+    journal.append("c");
+
+    assertThat(Journaling.replay(update, "", journal, 0)).isEqualTo("abc");
+    assertThat(Journaling.replay(update, "ab", journal, 2)).isEqualTo("abc");
+  }
+
+  @Test
+  public void shouldRestoreLoopFromJournal() throws Exception {
+    MobiusLoop<String, String, String> loop = loopFactory().startFrom("");
+    loop.dispatchEvent("a");
+    loop.dispatchEvent("b");
+    loop.dispose();
+    effects.clearValues();
+
+    MobiusLoop<String, String, String> restored =
+        Journaling.restore(loopFactory(), update, journal, "", 0);
+
+    assertThat(restored.getMostRecentModel()).isEqualTo("ab");
+    effects.assertValues();
+
+    restored.dispatchEvent("c");
+    restored.dispose();
+
+    assertThat(journal.lastSequence()).isEqualTo(3);
+    effects.assertValues("effect-c");
+  }
+
+  @Test
+  public void shouldRestoreLoopFromSnapshotAndJournal() throws Exception {
+    SnapshotStore<String> store =
+        SnapshotStore.open(new File(folder.getRoot(), "snapshots"), new StringSerializer());
+    journal.append("a");
+    journal.append("b");
+    journal.append("c");
+    store.write(Snapshot.create("AB", 2, 0));
+
+    MobiusLoop<String, String, String> restored =
+        Journaling.restore(loopFactory(), update, journal, store, "");
+
+    assertThat(restored.getMostRecentModel()).isEqualTo("ABc");
+    restored.dispose();
+  }
+
+  @Test
+  public void shouldRestoreLoopFromJournalWithoutSnapshot() throws Exception {
+    SnapshotStore<String> store =
+        SnapshotStore.open(new File(folder.getRoot(), "snapshots"), new StringSerializer());
+    journal.append("a");
+    journal.append("b");
+
+    MobiusLoop<String, String, String> restored =
+        Journaling.restore(loopFactory(), update, journal, store, "");
+
+    assertThat(restored.getMostRecentModel()).isEqualTo("ab");
+    restored.dispose();
+  }
+
+  private MobiusLoop.Factory<String, String, String> loopFactory() {
+    return Mobius.loop(
+            Journaling.journaled(update, journal),
+            output ->
+                new SimpleConnection<String>() {
+                  @Override
+                  public void accept(String value) {
+                    effects.accept(value);
+                  }
+                })
+        .eventRunner(WorkRunners::immediate)
+        .effectRunner(WorkRunners::immediate);
+  }
+}
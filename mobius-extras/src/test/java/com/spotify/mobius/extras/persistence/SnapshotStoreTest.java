@@ -0,0 +1,130 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import javax.annotation.Nonnull;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SnapshotStoreTest {
+
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  private File directory;
+  private SnapshotStore<String> store;
+
+  @Before
+  public void setUp() throws Exception {
+    directory = new File(folder.getRoot(), "snapshots");
+    store = SnapshotStore.open(directory, new StringSerializer());
+  }
+
+  @Test
+  public void shouldReturnNullWhenEmpty() throws Exception {
+    assertThat(store.readLatest()).isNull();
+  }
+
+  @Test
+  public void shouldReadWrittenSnapshot() throws Exception {
+    store.write(Snapshot.create("model", 17, 1234));
+
+    assertThat(store.readLatest()).isEqualTo(Snapshot.create("model", 17, 1234));
+  }
+
+  @Test
+  public void shouldOnlyKeepLatestSnapshot() throws Exception {
+    store.write(Snapshot.create("first", 1, 0));
+    store.write(Snapshot.create("second", 2, 0));
+
+    assertThat(directory.list()).hasSize(1);
+    assertThat(store.readLatest().model()).isEqualTo("second");
+  }
+
+  @Test
+  public void shouldReadSnapshotsAfterReopening() throws Exception {
+    store.write(Snapshot.create("model", 5, 0));
+
+    SnapshotStore<String> reopened = SnapshotStore.open(directory, new StringSerializer());
+
+    assertThat(reopened.readLatest()).isEqualTo(Snapshot.create("model", 5, 0));
+  }
+
+  @Test
+  public void shouldSkipCorruptSnapshots() throws Exception {
+    store.write(Snapshot.create("older", 1, 0));
+    File older = new File(directory, "snapshot-00000000000000000001.bin");
+    File backup = new File(folder.getRoot(), "older.bin");
+    assertThat(older.renameTo(backup)).isTrue();
+    store.write(Snapshot.create("newer", 2, 0));
+    assertThat(backup.renameTo(older)).isTrue();
+
+    try (RandomAccessFile file =
+        new RandomAccessFile(new File(directory, "snapshot-00000000000000000002.bin"), "rw")) {
+      file.seek(file.length() - 6);
+      file.write('X');
+    }
+
+    assertThat(store.readLatest().model()).isEqualTo("older");
+  }
+
+  @Test
+  public void shouldSkipSnapshotsThatCannotBeDeserialized() throws Exception {
+    store =
+        SnapshotStore.open(
+            directory,
+            new StringSerializer() {
+              @Nonnull
+              @Override
+              public String deserialize(byte[] bytes) {
+                String model = super.deserialize(bytes);
+                if (model.equals("unreadable")) {
+                  throw new IllegalArgumentException("unknown model format");
+                }
+                return model;
+              }
+            });
+
+    // only snapshots with lower sequence numbers are deleted, so both are kept
+    store.write(Snapshot.create("unreadable", 2, 0));
+    store.write(Snapshot.create("readable", 1, 0));
+
+    assertThat(store.readLatest().model()).isEqualTo("readable");
+  }
+
+  @Test
+  public void shouldDeleteTemporaryFileWhenWriteFails() throws Exception {
+    // a non-empty directory in place of the snapshot file makes the rename fail
+    File blocking = new File(directory, "snapshot-00000000000000000003.bin");
+    assertThat(new File(blocking, "file").mkdirs()).isTrue();
+
+    assertThatThrownBy(() -> store.write(Snapshot.create("model", 3, 0)))
+        .isInstanceOf(IOException.class);
+
+    assertThat(directory.list()).containsExactly(blocking.getName());
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+import com.spotify.mobius.Next;
+import com.spotify.mobius.Update;
+import java.io.File;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SnapshotterTest {
+
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  private final Update<String, String, String> update = (model, event) -> Next.next(model + event);
+
+  private SnapshotStore<String> store;
+  private ScheduledExecutorService executor;
+
+  @Before
+  public void setUp() throws Exception {
+    store = SnapshotStore.open(new File(folder.getRoot(), "snapshots"), new StringSerializer());
+    executor = Executors.newSingleThreadScheduledExecutor();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void shouldSnapshotEveryNEvents() throws Exception {
+    Update<String, String, String> snapshotting =
+        Snapshotter.create(store, executor).everyEvents(2).snapshotting(update, 0);
+
+    snapshotting.update("", "a");
+    snapshotting.update("a", "b");
+
+    executor.shutdown();
+    executor.awaitTermination(5, TimeUnit.SECONDS);
+
+    Snapshot<String> snapshot = store.readLatest();
+    assertThat(snapshot.model()).isEqualTo("ab");
+    assertThat(snapshot.sequence()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldNotSnapshotBeforeNEvents() throws Exception {
+    Update<String, String, String> snapshotting =
+        Snapshotter.create(store, executor).everyEvents(2).snapshotting(update, 0);
+
+    snapshotting.update("", "a");
+
+    executor.shutdown();
+    executor.awaitTermination(5, TimeUnit.SECONDS);
+
+    assertThat(store.readLatest()).isNull();
+  }
+
+  @Test
+  public void shouldSnapshotAfterInterval() throws Exception {
+    Update<String, String, String> snapshotting =
+        Snapshotter.create(store, executor).everyMillis(10).snapshotting(update, 5);
+
+    snapshotting.update("", "a");
+
+    await()
+        .atMost(5, TimeUnit.SECONDS)
+        .until(() -> store.readLatest() != null && store.readLatest().sequence() == 6);
+    assertThat(store.readLatest().model()).isEqualTo("a");
+  }
+
+  @Test
+  public void shouldRejectInvalidIntervals() throws Exception {
+    Snapshotter<String> snapshotter = Snapshotter.create(store, executor);
+
+    assertThatThrownBy(() -> snapshotter.everyEvents(0))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> snapshotter.everyMillis(0))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void shouldRequireAnInterval() throws Exception {
+    assertThatThrownBy(() -> Snapshotter.create(store, executor).snapshotting(update, 0))
+        .isInstanceOf(IllegalStateException.class);
+  }
+}
@@ -0,0 +1,281 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.runtime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+import com.spotify.mobius.Mobius;
+import com.spotify.mobius.MobiusLoop;
+import com.spotify.mobius.Next;
+import com.spotify.mobius.test.SimpleConnection;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MobiusRuntimeTest {
+
+  private MapModelStore store;
+  private MobiusLoop.Builder<String, String, String> loopBuilder;
+  private MobiusRuntime<String, String, String, String> runtime;
+
+  @Before
+  public void setUp() throws Exception {
+    store = new MapModelStore();
+    loopBuilder =
+        Mobius.loop(
+            (String model, String event) -> Next.<String, String>next(model + event),
+            output ->
+                new SimpleConnection<String>() {
+                  @Override
+                  public void accept(String value) {}
+                });
+    runtime = MobiusRuntime.builder(loopBuilder, store).eventThreads(2).effectThreads(2).build();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    runtime.dispose();
+  }
+
+  @Test
+  public void shouldStartLoopFromStoredModel() throws Exception {
+    store.models.put("a", "stored");
+
+    assertThat(runtime.loop("a").getMostRecentModel()).isEqualTo("stored");
+    assertThat(runtime.loop("b").getMostRecentModel()).isEqualTo("");
+    assertThat(runtime.loopIds()).containsExactlyInAnyOrder("a", "b");
+  }
+
+  @Test
+  public void shouldDispatchEventsToLoopWithSameId() throws Exception {
+    runtime.dispatchEvent("a", "1");
+    runtime.dispatchEvent("b", "2");
+    runtime.dispatchEvent("a", "3");
+
+    await().atMost(Duration.ofSeconds(5)).until(() -> "13".equals(modelOf("a")));
+    await().atMost(Duration.ofSeconds(5)).until(() -> "2".equals(modelOf("b")));
+  }
+
+  @Test
+  public void shouldSaveModelWhenStoppingLoop() throws Exception {
+    runtime.dispatchEvent("a", "1");
+    await().atMost(Duration.ofSeconds(5)).until(() -> "1".equals(modelOf("a")));
+
+    assertThat(runtime.stop("a")).isTrue();
+
+    assertThat(store.models).containsEntry("a", "1");
+    assertThat(runtime.loopIds()).isEmpty();
+  }
+
+  @Test
+  public void shouldProcessDispatchedEventsBeforeStopping() throws Exception {
+    for (int i = 0; i < 100; i++) {
+      runtime.dispatchEvent("a", "x");
+    }
+
+    runtime.stop("a");
+
+    assertThat(store.models.get("a")).hasSize(100);
+  }
+
+  @Test
+  public void shouldProcessDispatchedEventsBeforeDisposing() throws Exception {
+    for (int i = 0; i < 100; i++) {
+      runtime.dispatchEvent("a", "x");
+      runtime.dispatchEvent("b", "y");
+    }
+
+    runtime.dispose();
+
+    assertThat(store.models.get("a")).hasSize(100);
+    assertThat(store.models.get("b")).hasSize(100);
+  }
+
+  @Test
+  public void shouldStopLoopFromItsOwnEventThread() throws Exception {
+    runtime
+        .loop("a")
+        .observe(
+            model -> {
+              if (model.endsWith("stop")) {
+                runtime.stop("a");
+              }
+            });
+
+    runtime.dispatchEvent("a", "stop");
+
+    await().atMost(Duration.ofSeconds(5)).until(() -> "stop".equals(store.models.get("a")));
+    assertThat(runtime.loopIds()).isEmpty();
+  }
+
+  @Test
+  public void shouldNotHoldUpOtherLoopsWhileLoadingModel() throws Exception {
+    store.blockLoading("slow");
+    Thread starting = new Thread(() -> runtime.loop("slow"));
+    starting.start();
+    await().atMost(Duration.ofSeconds(5)).until(() -> store.loading.contains("slow"));
+
+    runtime.dispatchEvent("a", "1");
+    runtime.stop("a");
+
+    assertThat(store.models).containsEntry("a", "1");
+
+    store.unblockLoading();
+    starting.join();
+    assertThat(runtime.loopIds()).containsExactly("slow");
+  }
+
+  @Test
+  public void shouldNotStopLoopThatIsNotRunning() throws Exception {
+    assertThat(runtime.stop("a")).isFalse();
+    assertThat(store.models).isEmpty();
+  }
+
+  @Test
+  public void shouldContinueFromSavedModelAfterStopping() throws Exception {
+    runtime.dispatchEvent("a", "1");
+    await().atMost(Duration.ofSeconds(5)).until(() -> "1".equals(modelOf("a")));
+    runtime.stop("a");
+
+    runtime.dispatchEvent("a", "2");
+
+    await().atMost(Duration.ofSeconds(5)).until(() -> "12".equals(modelOf("a")));
+  }
+
+  @Test
+  public void shouldEvictIdleLoops() throws Exception {
+    runtime.dispose();
+    runtime =
+        MobiusRuntime.builder(loopBuilder, store)
+            .evictIdleAfter(50, TimeUnit.MILLISECONDS)
+            .build();
+
+    runtime.dispatchEvent("a", "1");
+
+    await().atMost(Duration.ofSeconds(5)).until(() -> runtime.loopIds().isEmpty());
+    assertThat(store.models).containsEntry("a", "1");
+  }
+
+  @Test
+  public void shouldNotEvictActiveLoops() throws Exception {
+    runtime.dispose();
+    runtime =
+        MobiusRuntime.builder(loopBuilder, store).evictIdleAfter(1, TimeUnit.HOURS).build();
+
+    runtime.dispatchEvent("a", "1");
+
+    assertThat(runtime.evictIdleLoops()).isEqualTo(0);
+    assertThat(runtime.loopIds()).containsExactly("a");
+  }
+
+  @Test
+  public void shouldReportLoad() throws Exception {
+    runtime.dispatchEvent("a", "1");
+    runtime.dispatchEvent("a", "2");
+    await().atMost(Duration.ofSeconds(5)).until(() -> "12".equals(modelOf("a")));
+    await().atMost(Duration.ofSeconds(5)).until(() -> runtime.load("a").pendingEvents() == 0);
+
+    LoopLoad<String> load = runtime.load("a");
+
+    assertThat(load.id()).isEqualTo("a");
+    assertThat(load.eventsProcessed()).isEqualTo(2);
+    assertThat(load.pendingEvents()).isEqualTo(0);
+    assertThat(load.pendingEffects()).isEqualTo(0);
+    assertThat(runtime.load()).extracting(LoopLoad::id).containsExactly("a");
+    assertThat(runtime.load("b")).isNull();
+  }
+
+  @Test
+  public void shouldStopAllLoopsWhenDisposed() throws Exception {
+    runtime.dispatchEvent("a", "1");
+    runtime.dispatchEvent("b", "2");
+    await().atMost(Duration.ofSeconds(5)).until(() -> "2".equals(modelOf("b")));
+    await().atMost(Duration.ofSeconds(5)).until(() -> "1".equals(modelOf("a")));
+
+    runtime.dispose();
+
+    assertThat(store.models).containsEntry("a", "1").containsEntry("b", "2");
+    assertThatThrownBy(() -> runtime.dispatchEvent("a", "3"))
+        .isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void shouldRejectInvalidConfiguration() throws Exception {
+    MobiusRuntime.Builder<String, String, String, String> builder =
+        MobiusRuntime.builder(loopBuilder, store);
+
+    assertThatThrownBy(() -> builder.eventThreads(0)).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> builder.effectThreads(0))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> builder.evictIdleAfter(0, TimeUnit.SECONDS))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private String modelOf(String id) {
+    return runtime.loop(id).getMostRecentModel();
+  }
+
+  private static class MapModelStore implements ModelStore<String, String> {
+    final Map<String, String> models = new ConcurrentHashMap<>();
+    final Set<String> loading = ConcurrentHashMap.newKeySet();
+
+    private final CountDownLatch unblocked = new CountDownLatch(1);
+    private volatile String blockedId;
+
+    void blockLoading(String id) {
+      blockedId = id;
+    }
+
+    void unblockLoading() {
+      unblocked.countDown();
+    }
+
+    @Nonnull
+    @Override
+    public String load(String id) {
+      loading.add(id);
+
+      if (id.equals(blockedId)) {
+        try {
+          unblocked.await();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+
+      String model = models.get(id);
+      return model == null ? "" : model;
+    }
+
+    @Override
+    public void save(String id, String model) {
+      models.put(id, model);
+    }
+  }
+}
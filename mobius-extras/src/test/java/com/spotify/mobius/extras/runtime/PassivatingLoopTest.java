@@ -0,0 +1,226 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2020 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.runtime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+import com.spotify.mobius.Mobius;
+import com.spotify.mobius.MobiusLoop;
+import com.spotify.mobius.Next;
+import com.spotify.mobius.extras.persistence.Serializer;
+import com.spotify.mobius.runners.ImmediateWorkRunner;
+import com.spotify.mobius.test.RecordingConsumer;
+import com.spotify.mobius.test.SimpleConnection;
+import com.spotify.mobius.test.TestWorkRunner;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nonnull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PassivatingLoopTest {
+
+  private ScheduledExecutorService scheduler;
+  private AtomicInteger loopsStarted;
+  private MobiusLoop.Builder<String, String, String> factory;
+  private PassivatingLoop<String, String, String> loop;
+
+  @Before
+  public void setUp() throws Exception {
+    scheduler = Executors.newSingleThreadScheduledExecutor();
+    loopsStarted = new AtomicInteger();
+
+    factory =
+        Mobius.loop(
+                (String model, String event) -> Next.<String, String>next(model + event),
+                output -> {
+                  loopsStarted.incrementAndGet();
+                  return new SimpleConnection<String>() {
+                    @Override
+                    public void accept(String value) {}
+                  };
+                })
+            .eventRunner(ImmediateWorkRunner::new)
+            .effectRunner(ImmediateWorkRunner::new);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (loop != null) {
+      loop.dispose();
+    }
+    scheduler.shutdownNow();
+  }
+
+  @Test
+  public void shouldDispatchEventsToLoop() throws Exception {
+    loop = PassivatingLoop.builder(factory, scheduler).startFrom("a");
+
+    loop.dispatchEvent("b");
+    loop.dispatchEvent("c");
+
+    assertThat(loop.isActive()).isTrue();
+    assertThat(loop.getMostRecentModel()).isEqualTo("abc");
+  }
+
+  @Test
+  public void shouldKeepModelWhenPassivated() throws Exception {
+    loop = PassivatingLoop.builder(factory, scheduler).startFrom("a");
+    loop.dispatchEvent("b");
+
+    assertThat(loop.passivate()).isTrue();
+
+    assertThat(loop.isActive()).isFalse();
+    assertThat(loop.getMostRecentModel()).isEqualTo("ab");
+    assertThat(loop.passivate()).isFalse();
+  }
+
+  @Test
+  public void shouldDropEventsThatAreStillQueuedWhenPassivated() throws Exception {
+    TestWorkRunner eventRunner = new TestWorkRunner();
+    loop =
+        PassivatingLoop.builder(factory.eventRunner(() -> eventRunner), scheduler).startFrom("a");
+    loop.dispatchEvent("b");
+
+    assertThat(loop.passivate()).isTrue();
+
+    assertThat(eventRunner.isDisposed()).isTrue();
+    assertThat(loop.getMostRecentModel()).isEqualTo("a");
+  }
+
+  @Test
+  public void shouldRestartThroughFactoryOnNextEvent() throws Exception {
+    loop = PassivatingLoop.builder(factory, scheduler).startFrom("a");
+    loop.dispatchEvent("b");
+    loop.passivate();
+
+    loop.dispatchEvent("c");
+
+    assertThat(loop.isActive()).isTrue();
+    assertThat(loop.getMostRecentModel()).isEqualTo("abc");
+    assertThat(loopsStarted.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldPassivateAfterBeingIdle() throws Exception {
+    loop =
+        PassivatingLoop.builder(factory, scheduler)
+            .passivateAfter(50, TimeUnit.MILLISECONDS)
+            .startFrom("a");
+    loop.dispatchEvent("b");
+
+    await().atMost(Duration.ofSeconds(5)).until(() -> !loop.isActive());
+
+    assertThat(loop.getMostRecentModel()).isEqualTo("ab");
+  }
+
+  @Test
+  public void shouldNotPassivateWhileReceivingEvents() throws Exception {
+    loop =
+        PassivatingLoop.builder(factory, scheduler)
+            .passivateAfter(1, TimeUnit.HOURS)
+            .startFrom("a");
+    loop.dispatchEvent("b");
+
+    assertThat(loop.passivateIfIdle(System.nanoTime())).isFalse();
+    assertThat(loop.isActive()).isTrue();
+  }
+
+  @Test
+  public void shouldRestoreSerializedModel() throws Exception {
+    loop =
+        PassivatingLoop.builder(factory, scheduler)
+            .serializer(new StringSerializer())
+            .startFrom("a");
+    loop.dispatchEvent("b");
+    loop.passivate();
+
+    assertThat(loop.getMostRecentModel()).isEqualTo("ab");
+
+    loop.dispatchEvent("c");
+
+    assertThat(loop.getMostRecentModel()).isEqualTo("abc");
+  }
+
+  @Test
+  public void shouldKeepObserversAcrossPassivation() throws Exception {
+    RecordingConsumer<String> observer = new RecordingConsumer<>();
+    loop = PassivatingLoop.builder(factory, scheduler).startFrom("a");
+    loop.observe(observer);
+
+    loop.dispatchEvent("b");
+    loop.passivate();
+    loop.dispatchEvent("c");
+
+    observer.assertValues("a", "ab", "ab", "abc");
+  }
+
+  @Test
+  public void shouldRejectEventsAfterDisposal() throws Exception {
+    loop = PassivatingLoop.builder(factory, scheduler).startFrom("a");
+    loop.passivate();
+
+    loop.dispose();
+
+    assertThat(loop.isActive()).isFalse();
+    assertThatThrownBy(() -> loop.dispatchEvent("b")).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void shouldRejectObservingAfterDisposal() throws Exception {
+    loop = PassivatingLoop.builder(factory, scheduler).startFrom("a");
+
+    loop.dispose();
+
+    assertThatThrownBy(() -> loop.observe(new RecordingConsumer<>()))
+        .isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> loop.getMostRecentModel()).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void shouldRejectInvalidIdleTime() throws Exception {
+    assertThatThrownBy(
+            () ->
+                PassivatingLoop.builder(factory, scheduler)
+                    .passivateAfter(0, TimeUnit.MILLISECONDS))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static class StringSerializer implements Serializer<String> {
+    @Nonnull
+    @Override
+    public byte[] serialize(String model) {
+      return model.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Nonnull
+    @Override
+    public String deserialize(byte[] bytes) {
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+  }
+}
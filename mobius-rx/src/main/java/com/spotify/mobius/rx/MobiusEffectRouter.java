@@ -20,64 +20,108 @@
 package com.spotify.mobius.rx;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import rx.Observable;
 import rx.Observable.Transformer;
-import rx.functions.Func1;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.subjects.PublishSubject;
+import rx.subjects.Subject;
 
 /**
  * Transformer that routes each incoming Effect descriptor to a sub-transformer associated with the
  * Effect descriptor class.
+ *
+ * <p>The concrete class of each Effect is resolved to its sub-transformer the first time it is
+ * seen, and Effects are then pushed directly to that sub-transformer, so routing an Effect doesn't
+ * get more expensive with the number of sub-transformers.
  */
 class MobiusEffectRouter<F, E> implements Observable.Transformer<F, E> {
 
-  private final MergedTransformer<F, E> mergedTransformer;
+  private static final int UNHANDLED = -1;
+
+  private final List<Class<?>> effectClasses;
+  private final List<Transformer<F, E>> effectPerformers;
+  private final ConcurrentMap<Class<?>, Integer> performerIndexByClass = new ConcurrentHashMap<>();
 
-  MobiusEffectRouter(
-      Set<Class<?>> handledEffectClasses,
-      Collection<Observable.Transformer<F, E>> effectPerformers) {
+  MobiusEffectRouter(Map<Class<?>, Transformer<F, E>> effectPerformers) {
+    this.effectClasses = new ArrayList<>(effectPerformers.size());
+    this.effectPerformers = new ArrayList<>(effectPerformers.size());
 
-    final Set<Class<?>> effectClasses = new HashSet<>(handledEffectClasses);
-    final List<Transformer<F, E>> immutableEffectPerformers =
-        Collections.unmodifiableList(new ArrayList<>(effectPerformers));
+    for (Map.Entry<Class<?>, Transformer<F, E>> entry : effectPerformers.entrySet()) {
+      this.effectClasses.add(entry.getKey());
+      this.effectPerformers.add(entry.getValue());
+    }
+  }
 
-    Transformer<F, E> unhandledEffectHandler =
-        new Transformer<F, E>() {
+  @Override
+  public Observable<E> call(final Observable<F> effects) {
+    return Observable.defer(
+        new Func0<Observable<E>>() {
           @Override
-          public Observable<E> call(Observable<F> effects) {
-            return effects
-                .filter(
-                    new Func1<F, Boolean>() {
-                      @Override
-                      public Boolean call(F e) {
-                        for (Class<?> effectClass : effectClasses) {
-                          if (effectClass.isAssignableFrom(e.getClass())) {
-                            return false;
-                          }
-                        }
-                        return true;
-                      }
-                    })
-                .map(
-                    new Func1<F, E>() {
-                      @Override
-                      public E call(F e) {
-                        throw new UnknownEffectException(e);
-                      }
-                    });
+          public Observable<E> call() {
+            return route(effects);
           }
-        };
-    List<Transformer<F, E>> allHandlers = new ArrayList<>(immutableEffectPerformers);
-    allHandlers.add(unhandledEffectHandler);
-    mergedTransformer = new MergedTransformer<>(allHandlers);
+        });
   }
 
-  @Override
-  public Observable<E> call(Observable<F> effects) {
-    return effects.compose(mergedTransformer);
+  private Observable<E> route(Observable<F> effects) {
+    final List<Subject<F, F>> subjects = new ArrayList<>(effectPerformers.size());
+    final List<Observable<E>> results = new ArrayList<>(effectPerformers.size() + 1);
+
+    for (Transformer<F, E> effectPerformer : effectPerformers) {
+      Subject<F, F> subject = PublishSubject.create();
+      subjects.add(subject);
+      results.add(subject.compose(effectPerformer));
+    }
+
+    // merge subscribes in order, so all the performers are ready before the first effect arrives
+    results.add(
+        effects
+            .doOnCompleted(
+                new Action0() {
+                  @Override
+                  public void call() {
+                    for (Subject<F, F> subject : subjects) {
+                      subject.onCompleted();
+                    }
+                  }
+                })
+            .doOnNext(
+                new Action1<F>() {
+                  @Override
+                  public void call(F effect) {
+                    int index = performerIndex(effect.getClass());
+                    if (index == UNHANDLED) {
+                      throw new UnknownEffectException(effect);
+                    }
+                    subjects.get(index).onNext(effect);
+                  }
+                })
+            .toCompletable()
+            .<E>toObservable());
+
+    return Observable.merge(results);
+  }
+
+  private int performerIndex(Class<?> effectClass) {
+    Integer index = performerIndexByClass.get(effectClass);
+
+    if (index == null) {
+      index = UNHANDLED;
+      for (int i = 0; i < effectClasses.size(); i++) {
+        if (effectClasses.get(i).isAssignableFrom(effectClass)) {
+          index = i;
+          break;
+        }
+      }
+      performerIndexByClass.put(effectClass, index);
+    }
+
+    return index;
   }
 }
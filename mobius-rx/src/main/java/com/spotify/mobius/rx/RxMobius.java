@@ -328,7 +328,7 @@ public final class RxMobius {
             @Override
             public Observable<E> call(Observable<F> effects) {
               return effects
-                  .ofType(effectClass)
+                  .cast(effectClass)
                   .compose(effectHandler)
                   .doOnError(onErrorFunction.call(effectHandler));
             }
@@ -452,7 +452,7 @@ public final class RxMobius {
     }
 
     public Observable.Transformer<F, E> build() {
-      return new MobiusEffectRouter<>(effectPerformerMap.keySet(), effectPerformerMap.values());
+      return new MobiusEffectRouter<>(effectPerformerMap);
     }
 
     private class DefaultOnError implements Func1<Transformer<? extends F, E>, Action1<Throwable>> {
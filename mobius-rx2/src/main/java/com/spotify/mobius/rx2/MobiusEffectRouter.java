@@ -20,67 +20,109 @@
 package com.spotify.mobius.rx2;
 
 import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
 import io.reactivex.ObservableTransformer;
-import io.reactivex.functions.Function;
-import io.reactivex.functions.Predicate;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Transformer that routes each incoming Effect descriptor to a sub-transformer associated with the
  * Effect descriptor class.
+ *
+ * <p>The concrete class of each Effect is resolved to its sub-transformer the first time it is
+ * seen, and Effects are then pushed directly to that sub-transformer, so routing an Effect doesn't
+ * get more expensive with the number of sub-transformers.
  */
 class MobiusEffectRouter<F, E> implements ObservableTransformer<F, E> {
 
-  private final MergedTransformer<F, E> mergedTransformer;
+  private static final int UNHANDLED = -1;
+
+  private final List<Class<?>> effectClasses;
+  private final List<ObservableTransformer<F, E>> effectPerformers;
+  private final ConcurrentMap<Class<?>, Integer> performerIndexByClass = new ConcurrentHashMap<>();
 
-  MobiusEffectRouter(
-      Set<Class<?>> handledEffectClasses,
-      Collection<ObservableTransformer<F, E>> effectPerformers) {
+  MobiusEffectRouter(Map<Class<?>, ObservableTransformer<F, E>> effectPerformers) {
+    this.effectClasses = new ArrayList<>(effectPerformers.size());
+    this.effectPerformers = new ArrayList<>(effectPerformers.size());
 
-    final Set<Class<?>> effectClasses = new HashSet<>(handledEffectClasses);
-    final List<ObservableTransformer<F, E>> immutableEffectPerformers =
-        Collections.unmodifiableList(new ArrayList<>(effectPerformers));
+    for (Map.Entry<Class<?>, ObservableTransformer<F, E>> entry : effectPerformers.entrySet()) {
+      this.effectClasses.add(entry.getKey());
+      this.effectPerformers.add(entry.getValue());
+    }
+  }
 
-    ObservableTransformer<F, E> unhandledEffectHandler =
-        new ObservableTransformer<F, E>() {
+  @Override
+  public Observable<E> apply(final Observable<F> effects) {
+    return Observable.defer(
+        new Callable<ObservableSource<E>>() {
           @Override
-          public Observable<E> apply(Observable<F> effects) {
-            return effects
-                .filter(
-                    new Predicate<F>() {
-                      @Override
-                      public boolean test(F e) {
-                        for (Class<?> effectClass : effectClasses) {
-                          if (effectClass.isAssignableFrom(e.getClass())) {
-                            return false;
-                          }
-                        }
-                        return true;
-                      }
-                    })
-                .map(
-                    new Function<F, E>() {
-                      @Override
-                      public E apply(F e) {
-                        throw new UnknownEffectException(e);
-                      }
-                    });
+          public ObservableSource<E> call() {
+            return route(effects);
           }
-        };
-    List<ObservableTransformer<F, E>> allHandlers = new ArrayList<>(immutableEffectPerformers);
-    allHandlers.add(unhandledEffectHandler);
+        });
+  }
 
-    mergedTransformer = new MergedTransformer<>(allHandlers);
+  private Observable<E> route(Observable<F> effects) {
+    final List<Subject<F>> subjects = new ArrayList<>(effectPerformers.size());
+    final List<Observable<E>> results = new ArrayList<>(effectPerformers.size() + 1);
+
+    for (ObservableTransformer<F, E> effectPerformer : effectPerformers) {
+      Subject<F> subject = PublishSubject.create();
+      subjects.add(subject);
+      results.add(subject.compose(effectPerformer));
+    }
+
+    // merge subscribes in order, so all the performers are ready before the first effect arrives
+    results.add(
+        effects
+            .doOnComplete(
+                new Action() {
+                  @Override
+                  public void run() {
+                    for (Subject<F> subject : subjects) {
+                      subject.onComplete();
+                    }
+                  }
+                })
+            .doOnNext(
+                new Consumer<F>() {
+                  @Override
+                  public void accept(F effect) {
+                    int index = performerIndex(effect.getClass());
+                    if (index == UNHANDLED) {
+                      throw new UnknownEffectException(effect);
+                    }
+                    subjects.get(index).onNext(effect);
+                  }
+                })
+            .ignoreElements()
+            .<E>toObservable());
+
+    return Observable.merge(results);
   }
 
-  @Override
-  public Observable<E> apply(Observable<F> effects) {
+  private int performerIndex(Class<?> effectClass) {
+    Integer index = performerIndexByClass.get(effectClass);
+
+    if (index == null) {
+      index = UNHANDLED;
+      for (int i = 0; i < effectClasses.size(); i++) {
+        if (effectClasses.get(i).isAssignableFrom(effectClass)) {
+          index = i;
+          break;
+        }
+      }
+      performerIndexByClass.put(effectClass, index);
+    }
 
-    return effects.compose(mergedTransformer);
+    return index;
   }
 }
@@ -106,6 +106,41 @@ public class MobiusEffectRouterTest {
     testSubscriber.assertValue(AEvent.create(123));
   }
 
+  @Test
+  public void shouldKeepOrderOfEffectsRoutedToDifferentPerformers() throws Exception {
+    publishSubject.onNext(A.create(1));
+    publishSubject.onNext(B.create(2));
+    publishSubject.onNext(E.create(3));
+    publishSubject.onNext(A.create(4));
+    publishSubject.onComplete();
+
+    testSubscriber.awaitTerminalEvent();
+    testSubscriber.assertValues(
+        AEvent.create(1), BEvent.create(2), AEvent.create(3), AEvent.create(4));
+  }
+
+  @Test
+  public void shouldRouteSubclassesToPerformerForSuperclass() throws Exception {
+    // redo some test setup for test case specific conditions
+    publishSubject = PublishSubject.create();
+    testSubscriber = TestObserver.create();
+
+    ObservableTransformer<TestEffect, TestEvent> router =
+        RxMobius.<TestEffect, TestEvent>subtypeEffectHandler()
+            .addFunction(Parent.class, parent -> AEvent.create(1))
+            .build();
+
+    publishSubject.compose(router).subscribe(testSubscriber);
+
+    publishSubject.onNext(new Child());
+    publishSubject.onNext(new Parent());
+    publishSubject.onNext(new Child());
+    publishSubject.onComplete();
+
+    testSubscriber.awaitTerminalEvent();
+    testSubscriber.assertValues(AEvent.create(1), AEvent.create(1), AEvent.create(1));
+  }
+
   @Test
   public void shouldFailForUnhandledEffect() throws Exception {
     Unhandled unhandled = Unhandled.create();
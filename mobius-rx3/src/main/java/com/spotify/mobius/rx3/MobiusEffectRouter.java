@@ -23,65 +23,110 @@ import io.reactivex.rxjava3.annotations.NonNull;
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.ObservableSource;
 import io.reactivex.rxjava3.core.ObservableTransformer;
-import io.reactivex.rxjava3.functions.Function;
-import io.reactivex.rxjava3.functions.Predicate;
+import io.reactivex.rxjava3.functions.Action;
+import io.reactivex.rxjava3.functions.Consumer;
+import io.reactivex.rxjava3.functions.Supplier;
+import io.reactivex.rxjava3.subjects.PublishSubject;
+import io.reactivex.rxjava3.subjects.Subject;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Transformer that routes each incoming Effect descriptor to a sub-transformer associated with the
  * Effect descriptor class.
+ *
+ * <p>The concrete class of each Effect is resolved to its sub-transformer the first time it is
+ * seen, and Effects are then pushed directly to that sub-transformer, so routing an Effect doesn't
+ * get more expensive with the number of sub-transformers.
  */
 class MobiusEffectRouter<F, E> implements ObservableTransformer<F, E> {
 
-  @NonNull private final MergedTransformer<F, E> mergedTransformer;
+  private static final int UNHANDLED = -1;
+
+  @NonNull private final List<Class<?>> effectClasses;
+  @NonNull private final List<ObservableTransformer<F, E>> effectPerformers;
 
-  MobiusEffectRouter(
-      @NonNull Set<Class<?>> handledEffectClasses,
-      @NonNull Collection<ObservableTransformer<F, E>> effectPerformers) {
+  @NonNull
+  private final ConcurrentMap<Class<?>, Integer> performerIndexByClass = new ConcurrentHashMap<>();
 
-    final Set<Class<?>> effectClasses = new HashSet<>(handledEffectClasses);
-    final List<ObservableTransformer<F, E>> immutableEffectPerformers =
-        Collections.unmodifiableList(new ArrayList<>(effectPerformers));
+  MobiusEffectRouter(@NonNull Map<Class<?>, ObservableTransformer<F, E>> effectPerformers) {
+    this.effectClasses = new ArrayList<>(effectPerformers.size());
+    this.effectPerformers = new ArrayList<>(effectPerformers.size());
+
+    for (Map.Entry<Class<?>, ObservableTransformer<F, E>> entry : effectPerformers.entrySet()) {
+      this.effectClasses.add(entry.getKey());
+      this.effectPerformers.add(entry.getValue());
+    }
+  }
 
-    final ObservableTransformer<F, E> unhandledEffectHandler =
-        new ObservableTransformer<F, E>() {
+  @Override
+  public @NonNull ObservableSource<E> apply(@NonNull final Observable<F> effects) {
+    return Observable.defer(
+        new Supplier<ObservableSource<E>>() {
           @Override
-          public @NonNull ObservableSource<E> apply(@NonNull Observable<F> effects) {
-            return effects
-                .filter(
-                    new Predicate<F>() {
-                      @Override
-                      public boolean test(F e) throws Throwable {
-                        for (Class<?> effectClass : effectClasses) {
-                          if (effectClass.isAssignableFrom(e.getClass())) {
-                            return false;
-                          }
-                        }
-                        return true;
-                      }
-                    })
-                .map(
-                    new Function<F, E>() {
-                      @Override
-                      public E apply(F e) throws Throwable {
-                        throw new UnknownEffectException(e);
-                      }
-                    });
+          public ObservableSource<E> get() {
+            return route(effects);
           }
-        };
-    final List<ObservableTransformer<F, E>> allHandlers =
-        new ArrayList<>(immutableEffectPerformers);
-    allHandlers.add(unhandledEffectHandler);
-    mergedTransformer = new MergedTransformer<>(allHandlers);
+        });
   }
 
-  @Override
-  public Observable<E> apply(@NonNull Observable<F> effects) {
-    return effects.compose(mergedTransformer);
+  @NonNull
+  private Observable<E> route(@NonNull Observable<F> effects) {
+    final List<Subject<F>> subjects = new ArrayList<>(effectPerformers.size());
+    final List<Observable<E>> results = new ArrayList<>(effectPerformers.size() + 1);
+
+    for (ObservableTransformer<F, E> effectPerformer : effectPerformers) {
+      Subject<F> subject = PublishSubject.create();
+      subjects.add(subject);
+      results.add(subject.compose(effectPerformer));
+    }
+
+    // merge subscribes in order, so all the performers are ready before the first effect arrives
+    results.add(
+        effects
+            .doOnComplete(
+                new Action() {
+                  @Override
+                  public void run() {
+                    for (Subject<F> subject : subjects) {
+                      subject.onComplete();
+                    }
+                  }
+                })
+            .doOnNext(
+                new Consumer<F>() {
+                  @Override
+                  public void accept(F effect) {
+                    int index = performerIndex(effect.getClass());
+                    if (index == UNHANDLED) {
+                      throw new UnknownEffectException(effect);
+                    }
+                    subjects.get(index).onNext(effect);
+                  }
+                })
+            .ignoreElements()
+            .<E>toObservable());
+
+    return Observable.merge(results);
+  }
+
+  private int performerIndex(@NonNull Class<?> effectClass) {
+    Integer index = performerIndexByClass.get(effectClass);
+
+    if (index == null) {
+      index = UNHANDLED;
+      for (int i = 0; i < effectClasses.size(); i++) {
+        if (effectClasses.get(i).isAssignableFrom(effectClass)) {
+          index = i;
+          break;
+        }
+      }
+      performerIndexByClass.put(effectClass, index);
+    }
+
+    return index;
   }
 }
@@ -167,7 +167,7 @@ public final class RxMobius {
           effectClass,
           (Observable<F> effects) ->
               effects
-                  .ofType(effectClass)
+                  .cast(effectClass)
                   .compose(effectHandler)
                   .doOnError(onErrorFunction.apply(effectHandler)));
 
@@ -219,6 +219,67 @@ public final class RxMobius {
       return addTransformer(effectClass, Transformers.fromFunction(function, scheduler));
     }
 
+    /**
+     * Add a {@link Function} for handling effects of a given type, with at most {@code
+     * maxConcurrency} invocations of the function running at the same time. Further effects of the
+     * type wait until a running invocation has finished.
+     *
+     * <p>Adding handlers for two effect classes where one is a super-class of the other is
+     * considered a collision and is not allowed. Registering the same class twice is also
+     * considered a collision.
+     *
+     * @param effectClass the class to handle
+     * @param function the function that should be invoked for the effect
+     * @param scheduler the scheduler that should be used to invoke the function
+     * @param maxConcurrency the maximum number of effects of the type handled at the same time
+     * @param <G> the effect class as a type parameter
+     * @return this builder
+     * @throws IllegalArgumentException if there is a handler collision, or if maxConcurrency is
+     *     less than 1
+     */
+    public <G extends F> RxMobius.SubtypeEffectHandlerBuilder<F, E> addFunction(
+        final Class<G> effectClass,
+        final Function<G, E> function,
+        Scheduler scheduler,
+        int maxConcurrency) {
+      checkNotNull(effectClass);
+      checkNotNull(function);
+      return addTransformer(
+          effectClass, Transformers.fromFunction(function, scheduler, maxConcurrency));
+    }
+
+    /**
+     * Add a {@link Function} for handling effects of a given type, where effects with the same key
+     * are handled one at a time, in the order they were received, and effects with different keys
+     * are handled concurrently. The key of each effect is returned by {@code keySelector}.
+     *
+     * <p>The handler keeps a group for every key it has seen for as long as the loop is running, so
+     * keys should come from a bounded set of values.
+     *
+     * <p>Adding handlers for two effect classes where one is a super-class of the other is
+     * considered a collision and is not allowed. Registering the same class twice is also
+     * considered a collision.
+     *
+     * @param effectClass the class to handle
+     * @param function the function that should be invoked for the effect
+     * @param scheduler the scheduler that should be used to invoke the function
+     * @param keySelector the function returning the key of an effect
+     * @param <G> the effect class as a type parameter
+     * @return this builder
+     * @throws IllegalArgumentException if there is a handler collision
+     */
+    public <G extends F> RxMobius.SubtypeEffectHandlerBuilder<F, E> addFunction(
+        final Class<G> effectClass,
+        final Function<G, E> function,
+        Scheduler scheduler,
+        final Function<? super G, ?> keySelector) {
+      checkNotNull(effectClass);
+      checkNotNull(function);
+      checkNotNull(keySelector);
+      return addTransformer(
+          effectClass, Transformers.fromFunction(function, scheduler, keySelector));
+    }
+
     /**
      * Add an {@link Action} for handling effects of a given type. The action will be invoked once
      * for every received effect object that extends the given class.
@@ -262,6 +323,63 @@ public final class RxMobius {
       return addTransformer(effectClass, Transformers.fromAction(action, scheduler));
     }
 
+    /**
+     * Add an {@link Action} for handling effects of a given type, with at most {@code
+     * maxConcurrency} invocations of the action running at the same time. Further effects of the
+     * type wait until a running invocation has finished.
+     *
+     * <p>Adding handlers for two effect classes where one is a super-class of the other is
+     * considered a collision and is not allowed. Registering the same class twice is also
+     * considered a collision.
+     *
+     * @param effectClass the class to handle
+     * @param action the action that should be invoked for the effect
+     * @param scheduler the scheduler that should be used to invoke the action
+     * @param maxConcurrency the maximum number of effects of the type handled at the same time
+     * @param <G> the effect class as a type parameter
+     * @return this builder
+     * @throws IllegalArgumentException if there is a handler collision, or if maxConcurrency is
+     *     less than 1
+     */
+    public <G extends F> RxMobius.SubtypeEffectHandlerBuilder<F, E> addAction(
+        final Class<G> effectClass, final Action action, Scheduler scheduler, int maxConcurrency) {
+      checkNotNull(effectClass);
+      checkNotNull(action);
+      return addTransformer(
+          effectClass, Transformers.fromAction(action, scheduler, maxConcurrency));
+    }
+
+    /**
+     * Add an {@link Action} for handling effects of a given type, where effects with the same key
+     * are handled one at a time, in the order they were received, and effects with different keys
+     * are handled concurrently. The key of each effect is returned by {@code keySelector}.
+     *
+     * <p>The handler keeps a group for every key it has seen for as long as the loop is running, so
+     * keys should come from a bounded set of values.
+     *
+     * <p>Adding handlers for two effect classes where one is a super-class of the other is
+     * considered a collision and is not allowed. Registering the same class twice is also
+     * considered a collision.
+     *
+     * @param effectClass the class to handle
+     * @param action the action that should be invoked for the effect
+     * @param scheduler the scheduler that should be used to invoke the action
+     * @param keySelector the function returning the key of an effect
+     * @param <G> the effect class as a type parameter
+     * @return this builder
+     * @throws IllegalArgumentException if there is a handler collision
+     */
+    public <G extends F> RxMobius.SubtypeEffectHandlerBuilder<F, E> addAction(
+        final Class<G> effectClass,
+        final Action action,
+        Scheduler scheduler,
+        final Function<? super G, ?> keySelector) {
+      checkNotNull(effectClass);
+      checkNotNull(action);
+      checkNotNull(keySelector);
+      return addTransformer(effectClass, Transformers.fromAction(action, scheduler, keySelector));
+    }
+
     /**
      * Add an {@link Consumer} for handling effects of a given type. The consumer will be invoked
      * once for every received effect object that extends the given class.
@@ -305,6 +423,67 @@ public final class RxMobius {
       return addTransformer(effectClass, Transformers.fromConsumer(consumer, scheduler));
     }
 
+    /**
+     * Add a {@link Consumer} for handling effects of a given type, with at most {@code
+     * maxConcurrency} invocations of the consumer running at the same time. Further effects of the
+     * type wait until a running invocation has finished.
+     *
+     * <p>Adding handlers for two effect classes where one is a super-class of the other is
+     * considered a collision and is not allowed. Registering the same class twice is also
+     * considered a collision.
+     *
+     * @param effectClass the class to handle
+     * @param consumer the consumer that should be invoked for the effect
+     * @param scheduler the scheduler that should be used to invoke the consumer
+     * @param maxConcurrency the maximum number of effects of the type handled at the same time
+     * @param <G> the effect class as a type parameter
+     * @return this builder
+     * @throws IllegalArgumentException if there is a handler collision, or if maxConcurrency is
+     *     less than 1
+     */
+    public <G extends F> RxMobius.SubtypeEffectHandlerBuilder<F, E> addConsumer(
+        final Class<G> effectClass,
+        final Consumer<G> consumer,
+        Scheduler scheduler,
+        int maxConcurrency) {
+      checkNotNull(effectClass);
+      checkNotNull(consumer);
+      return addTransformer(
+          effectClass, Transformers.fromConsumer(consumer, scheduler, maxConcurrency));
+    }
+
+    /**
+     * Add a {@link Consumer} for handling effects of a given type, where effects with the same key
+     * are handled one at a time, in the order they were received, and effects with different keys
+     * are handled concurrently. The key of each effect is returned by {@code keySelector}.
+     *
+     * <p>The handler keeps a group for every key it has seen for as long as the loop is running, so
+     * keys should come from a bounded set of values.
+     *
+     * <p>Adding handlers for two effect classes where one is a super-class of the other is
+     * considered a collision and is not allowed. Registering the same class twice is also
+     * considered a collision.
+     *
+     * @param effectClass the class to handle
+     * @param consumer the consumer that should be invoked for the effect
+     * @param scheduler the scheduler that should be used to invoke the consumer
+     * @param keySelector the function returning the key of an effect
+     * @param <G> the effect class as a type parameter
+     * @return this builder
+     * @throws IllegalArgumentException if there is a handler collision
+     */
+    public <G extends F> RxMobius.SubtypeEffectHandlerBuilder<F, E> addConsumer(
+        final Class<G> effectClass,
+        final Consumer<G> consumer,
+        Scheduler scheduler,
+        final Function<? super G, ?> keySelector) {
+      checkNotNull(effectClass);
+      checkNotNull(consumer);
+      checkNotNull(keySelector);
+      return addTransformer(
+          effectClass, Transformers.fromConsumer(consumer, scheduler, keySelector));
+    }
+
     /**
      * Optionally set a shared error handler in case a handler throws an uncaught exception.
      *
@@ -337,7 +516,7 @@ public final class RxMobius {
     }
 
     public ObservableTransformer<F, E> build() {
-      return new MobiusEffectRouter<>(effectPerformerMap.keySet(), effectPerformerMap.values());
+      return new MobiusEffectRouter<>(effectPerformerMap);
     }
 
     private static <F, E> Consumer<Throwable> defaultOnError(
@@ -22,7 +22,6 @@ package com.spotify.mobius.rx3;
 import io.reactivex.rxjava3.annotations.NonNull;
 import io.reactivex.rxjava3.annotations.Nullable;
 import io.reactivex.rxjava3.core.Completable;
-import io.reactivex.rxjava3.core.CompletableSource;
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.ObservableSource;
 import io.reactivex.rxjava3.core.ObservableTransformer;
@@ -31,8 +30,16 @@ import io.reactivex.rxjava3.functions.Action;
 import io.reactivex.rxjava3.functions.Consumer;
 import io.reactivex.rxjava3.functions.Function;
 import io.reactivex.rxjava3.functions.Supplier;
+import io.reactivex.rxjava3.observables.GroupedObservable;
 
-/** Transformers. */
+/**
+ * Transformers.
+ *
+ * <p>By default, every effect is handled as soon as it is received, so a burst of effects leads to
+ * as many concurrent invocations. Transformers created with a {@code maxConcurrency} limit how many
+ * effects are handled at the same time, and transformers created with a {@code keySelector} handle
+ * effects with the same key one at a time, in the order they were received.
+ */
 final class Transformers {
 
   private Transformers() {}
@@ -71,22 +78,29 @@ final class Transformers {
    */
   static <F, E> ObservableTransformer<F, E> fromAction(
       final Action doEffect, @Nullable final Scheduler scheduler) {
-    return new ObservableTransformer<F, E>() {
-      @Override
-      public ObservableSource<E> apply(Observable<F> effectStream) {
-        return effectStream
-            .flatMapCompletable(
-                new Function<F, CompletableSource>() {
-                  @Override
-                  public CompletableSource apply(F f) throws Exception {
-                    return scheduler == null
-                        ? Completable.fromAction(doEffect)
-                        : Completable.fromAction(doEffect).subscribeOn(scheduler);
-                  }
-                })
-            .toObservable();
-      }
-    };
+    return fromAction(doEffect, scheduler, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Like {@link #fromAction(Action, Scheduler)}, but with at most {@code maxConcurrency}
+   * invocations of the action running at the same time.
+   *
+   * @throws IllegalArgumentException if maxConcurrency is less than 1
+   */
+  static <F, E> ObservableTransformer<F, E> fromAction(
+      final Action doEffect, @Nullable final Scheduler scheduler, int maxConcurrency) {
+    return flatMapping(Transformers.<F, E>actionPerformer(doEffect, scheduler), maxConcurrency);
+  }
+
+  /**
+   * Like {@link #fromAction(Action, Scheduler)}, but the action is invoked for one effect at a time
+   * per key, as returned by {@code keySelector}.
+   */
+  static <F, E> ObservableTransformer<F, E> fromAction(
+      final Action doEffect,
+      @Nullable final Scheduler scheduler,
+      final Function<? super F, ?> keySelector) {
+    return concatMappingByKey(Transformers.<F, E>actionPerformer(doEffect, scheduler), keySelector);
   }
 
   /**
@@ -122,28 +136,30 @@ final class Transformers {
    */
   static <F, E> ObservableTransformer<F, E> fromConsumer(
       final Consumer<F> doEffect, @Nullable final Scheduler scheduler) {
-    return new ObservableTransformer<F, E>() {
-      @Override
-      public ObservableSource<E> apply(Observable<F> effectStream) {
-        return effectStream
-            .flatMapCompletable(
-                new Function<F, CompletableSource>() {
-                  @Override
-                  public CompletableSource apply(final F effect) {
-                    Completable completable =
-                        Completable.fromAction(
-                            new Action() {
-                              @Override
-                              public void run() throws Throwable {
-                                doEffect.accept(effect);
-                              }
-                            });
-                    return scheduler == null ? completable : completable.subscribeOn(scheduler);
-                  }
-                })
-            .toObservable();
-      }
-    };
+    return fromConsumer(doEffect, scheduler, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Like {@link #fromConsumer(Consumer, Scheduler)}, but with at most {@code maxConcurrency}
+   * invocations of the consumer running at the same time.
+   *
+   * @throws IllegalArgumentException if maxConcurrency is less than 1
+   */
+  static <F, E> ObservableTransformer<F, E> fromConsumer(
+      final Consumer<F> doEffect, @Nullable final Scheduler scheduler, int maxConcurrency) {
+    return flatMapping(Transformers.<F, E>consumerPerformer(doEffect, scheduler), maxConcurrency);
+  }
+
+  /**
+   * Like {@link #fromConsumer(Consumer, Scheduler)}, but the consumer is invoked for one effect at
+   * a time per key, as returned by {@code keySelector}.
+   */
+  static <F, E> ObservableTransformer<F, E> fromConsumer(
+      final Consumer<F> doEffect,
+      @Nullable final Scheduler scheduler,
+      final Function<? super F, ?> keySelector) {
+    return concatMappingByKey(
+        Transformers.<F, E>consumerPerformer(doEffect, scheduler), keySelector);
   }
 
   /**
@@ -161,26 +177,29 @@ final class Transformers {
    */
   static <F, E> ObservableTransformer<F, E> fromFunction(
       final Function<F, E> function, @Nullable final Scheduler scheduler) {
-    return new ObservableTransformer<F, E>() {
-      @Override
-      public ObservableSource<E> apply(Observable<F> effectStream) {
-        return effectStream.flatMap(
-            new Function<F, ObservableSource<E>>() {
-              @Override
-              public ObservableSource<E> apply(@NonNull F f) {
-                Observable<E> eventObservable =
-                    Observable.fromSupplier(
-                        new Supplier<E>() {
-                          @Override
-                          public E get() throws Throwable {
-                            return function.apply(f);
-                          }
-                        });
-                return scheduler == null ? eventObservable : eventObservable.subscribeOn(scheduler);
-              }
-            });
-      }
-    };
+    return fromFunction(function, scheduler, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Like {@link #fromFunction(Function, Scheduler)}, but with at most {@code maxConcurrency}
+   * invocations of the function running at the same time.
+   *
+   * @throws IllegalArgumentException if maxConcurrency is less than 1
+   */
+  static <F, E> ObservableTransformer<F, E> fromFunction(
+      final Function<F, E> function, @Nullable final Scheduler scheduler, int maxConcurrency) {
+    return flatMapping(functionPerformer(function, scheduler), maxConcurrency);
+  }
+
+  /**
+   * Like {@link #fromFunction(Function, Scheduler)}, but the function is invoked for one effect at
+   * a time per key, as returned by {@code keySelector}.
+   */
+  static <F, E> ObservableTransformer<F, E> fromFunction(
+      final Function<F, E> function,
+      @Nullable final Scheduler scheduler,
+      final Function<? super F, ?> keySelector) {
+    return concatMappingByKey(functionPerformer(function, scheduler), keySelector);
   }
 
   /**
@@ -198,4 +217,90 @@ final class Transformers {
   static <F, E> ObservableTransformer<F, E> fromFunction(final Function<F, E> function) {
     return fromFunction(function, null);
   }
+
+  private static <F, E> Function<F, ObservableSource<E>> actionPerformer(
+      final Action doEffect, @Nullable final Scheduler scheduler) {
+    return new Function<F, ObservableSource<E>>() {
+      @Override
+      public ObservableSource<E> apply(F f) {
+        return subscribeOn(Completable.fromAction(doEffect), scheduler).toObservable();
+      }
+    };
+  }
+
+  private static <F, E> Function<F, ObservableSource<E>> consumerPerformer(
+      final Consumer<F> doEffect, @Nullable final Scheduler scheduler) {
+    return new Function<F, ObservableSource<E>>() {
+      @Override
+      public ObservableSource<E> apply(final F effect) {
+        Completable completable =
+            Completable.fromAction(
+                new Action() {
+                  @Override
+                  public void run() throws Throwable {
+                    doEffect.accept(effect);
+                  }
+                });
+        return subscribeOn(completable, scheduler).toObservable();
+      }
+    };
+  }
+
+  private static <F, E> Function<F, ObservableSource<E>> functionPerformer(
+      final Function<F, E> function, @Nullable final Scheduler scheduler) {
+    return new Function<F, ObservableSource<E>>() {
+      @Override
+      public ObservableSource<E> apply(@NonNull final F f) {
+        Observable<E> eventObservable =
+            Observable.fromSupplier(
+                new Supplier<E>() {
+                  @Override
+                  public E get() throws Throwable {
+                    return function.apply(f);
+                  }
+                });
+        return scheduler == null ? eventObservable : eventObservable.subscribeOn(scheduler);
+      }
+    };
+  }
+
+  private static Completable subscribeOn(Completable completable, @Nullable Scheduler scheduler) {
+    return scheduler == null ? completable : completable.subscribeOn(scheduler);
+  }
+
+  private static <F, E> ObservableTransformer<F, E> flatMapping(
+      final Function<F, ObservableSource<E>> performer, final int maxConcurrency) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("maxConcurrency must be positive, was: " + maxConcurrency);
+    }
+
+    return new ObservableTransformer<F, E>() {
+      @Override
+      public ObservableSource<E> apply(Observable<F> effectStream) {
+        return effectStream.flatMap(performer, maxConcurrency);
+      }
+    };
+  }
+
+  /**
+   * Groups the effects by key, and performs the effects in each group one at a time. A group is
+   * kept for each key that has been seen, for as long as the transformer is subscribed to.
+   */
+  private static <F, E> ObservableTransformer<F, E> concatMappingByKey(
+      final Function<F, ObservableSource<E>> performer, final Function<? super F, ?> keySelector) {
+    return new ObservableTransformer<F, E>() {
+      @Override
+      public ObservableSource<E> apply(Observable<F> effectStream) {
+        return effectStream
+            .groupBy(keySelector)
+            .flatMap(
+                new Function<GroupedObservable<?, F>, ObservableSource<E>>() {
+                  @Override
+                  public ObservableSource<E> apply(GroupedObservable<?, F> group) {
+                    return group.concatMap(performer);
+                  }
+                });
+      }
+    };
+  }
 }
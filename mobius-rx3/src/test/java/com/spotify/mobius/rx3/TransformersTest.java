@@ -20,13 +20,16 @@
 package com.spotify.mobius.rx3;
 
 import static com.google.common.collect.Lists.transform;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.awaitility.Awaitility.await;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.functions.Consumer;
 import io.reactivex.rxjava3.functions.Function;
 import io.reactivex.rxjava3.observers.TestObserver;
 import io.reactivex.rxjava3.schedulers.Schedulers;
@@ -36,6 +39,9 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 
 /** TransformersTest. */
@@ -148,6 +154,76 @@ public class TransformersTest {
     disposable.dispose();
   }
 
+  @Test
+  public void boundedEffectPerformerLimitsConcurrentInvocations() {
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    final AtomicInteger completed = new AtomicInteger();
+    final CountDownLatch release = new CountDownLatch(1);
+
+    PublishSubject<String> upstream = PublishSubject.create();
+    Consumer<String> blockingConsumer =
+        s -> {
+          maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+          release.await();
+          running.decrementAndGet();
+          completed.incrementAndGet();
+        };
+    final Disposable disposable =
+        upstream
+            .compose(Transformers.fromConsumer(blockingConsumer, Schedulers.io(), 2))
+            .subscribe();
+
+    for (String effect : Arrays.asList("a", "b", "c", "d", "e")) {
+      upstream.onNext(effect);
+    }
+
+    await().atMost(Duration.ofSeconds(5)).until(() -> running.get() == 2);
+    release.countDown();
+    await().atMost(Duration.ofSeconds(5)).until(() -> completed.get() == 5);
+
+    assertThat(maxRunning.get(), is(2));
+    disposable.dispose();
+  }
+
+  @Test
+  public void boundedEffectPerformerRejectsNonPositiveMaxConcurrency() {
+    assertThatThrownBy(() -> Transformers.fromAction(() -> {}, Schedulers.io(), 0))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void keyedEffectPerformerHandlesEffectsWithTheSameKeyOneAtATime() {
+    final List<String> started = new CopyOnWriteArrayList<>();
+    final CountDownLatch release = new CountDownLatch(1);
+
+    PublishSubject<String> upstream = PublishSubject.create();
+    Consumer<String> consumer =
+        s -> {
+          started.add(s);
+          if (s.equals("a1")) {
+            release.await();
+          }
+        };
+    final Disposable disposable =
+        upstream
+            .compose(Transformers.fromConsumer(consumer, Schedulers.io(), s -> s.charAt(0)))
+            .subscribe();
+
+    upstream.onNext("a1");
+    upstream.onNext("a2");
+    upstream.onNext("b1");
+
+    await().atMost(Duration.ofSeconds(5)).until(() -> started.size() == 2);
+    assertThat(started, containsInAnyOrder("a1", "b1"));
+
+    release.countDown();
+    await().atMost(Duration.ofSeconds(5)).until(() -> started.size() == 3);
+
+    assertThat(started.get(2), is("a2"));
+    disposable.dispose();
+  }
+
   private Duration durationForEffects(List<String> effects) {
     int maxDuration = -1;
     for (String f : effects) {